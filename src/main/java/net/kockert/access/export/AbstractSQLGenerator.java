@@ -0,0 +1,339 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.Relationship;
+import com.healthmarketscience.jackcess.Table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Generates the SQL statements common to all dialects. Dialects supply the quoting of identifiers and the mapping of
+ * Access data types.
+ */
+public abstract class AbstractSQLGenerator implements SQLGenerator {
+
+    @Override
+    public String createTable(Table table, List<? extends Column> columns, List<Relationship> relationships) {
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        List<? extends Index.Column> primaryKeyColumns = getPrimaryKeyColumns(table);
+        if (!containsAllColumns(columns, primaryKeyColumns)) {
+            primaryKeyColumns = Collections.emptyList();
+        }
+
+        String tableName = table.getName();
+        stmtBuilder.append("CREATE TABLE ");
+        stmtBuilder.append(quoteIdentifier(tableName));
+        stmtBuilder.append(" (");
+
+        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+            Column column = iterator.next();
+
+            stmtBuilder.append(quoteIdentifier(column.getName()));
+            stmtBuilder.append(" ");
+            if (isPrimaryKeyColumn(primaryKeyColumns, column)) {
+                stmtBuilder.append(mapPrimaryKeyDatatype(column));
+                stmtBuilder.append(" PRIMARY KEY");
+            } else {
+                stmtBuilder.append(mapDatatype(column));
+            }
+
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+
+        if (hasMultiplePrimaryKeyColumns(primaryKeyColumns)) {
+            stmtBuilder.append(", ");
+            stmtBuilder.append(createPrimaryKeyTableConstraint(primaryKeyColumns));
+        }
+
+        if (inlineForeignKeys()) {
+            for (Relationship relationship : relationships) {
+                if (!relationship.getToTable().equals(table) || !columns.containsAll(relationship.getToColumns())) {
+                    continue;
+                }
+
+                stmtBuilder.append(", ");
+                stmtBuilder.append(createForeignKeyTableConstraint(relationship));
+            }
+        }
+
+        stmtBuilder.append(")");
+        stmtBuilder.append(createTableOptions(columns, primaryKeyColumns));
+
+        return stmtBuilder.toString();
+    }
+
+    /**
+     * Maps the type of a column that is the only column of the primary key. By default it is mapped like any other
+     * column, see {@link #mapDatatype(Column)}.
+     *
+     * @param column the only column of the primary key
+     * @return a datatype of the target database
+     */
+    protected String mapPrimaryKeyDatatype(Column column) {
+        return mapDatatype(column);
+    }
+
+    /**
+     * Returns the options appended to the {@code CREATE TABLE} statement, starting with a space.
+     *
+     * @param columns           the columns of the table
+     * @param primaryKeyColumns the columns of the primary key, empty if the table does not have a primary key
+     * @return the table options or an empty string
+     */
+    protected String createTableOptions(List<? extends Column> columns, List<? extends Index.Column> primaryKeyColumns) {
+        return "";
+    }
+
+    /**
+     * Returns {@code true} if foreign key constraints are part of the {@code CREATE TABLE} statement. Otherwise they
+     * are added after the data was loaded, see {@link #createForeignKeys(Table, List, List)}.
+     *
+     * @return {@code true} if foreign key constraints are created together with the table
+     */
+    protected abstract boolean inlineForeignKeys();
+
+    @Override
+    public List<String> createForeignKeys(Table table, List<? extends Column> columns, List<Relationship> relationships) {
+        if (inlineForeignKeys()) {
+            return Collections.emptyList();
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (Relationship relationship : relationships) {
+            if (!relationship.getToTable().equals(table) || !columns.containsAll(relationship.getToColumns())) {
+                continue;
+            }
+            statements.add("ALTER TABLE " + quoteIdentifier(table.getName()) + " ADD "
+                    + createForeignKeyTableConstraint(relationship));
+        }
+        return statements;
+    }
+
+    /**
+     * Maps the type of the given column to a datatype of the target database.
+     *
+     * @param column the column
+     * @return a datatype of the target database
+     * @throws IllegalArgumentException if the type of the column is not supported
+     */
+    protected abstract String mapDatatype(Column column);
+
+    /**
+     * Quotes the given identifier for the target database.
+     *
+     * @param identifier the name of a table, column or index
+     * @return the quoted identifier
+     */
+    protected abstract String quoteIdentifier(String identifier);
+
+    /**
+     * Returns {@code true} if all index columns are contained in the given columns.
+     *
+     * @param columns      the columns
+     * @param indexColumns the columns of an index
+     * @return {@code true} if all index columns are contained, otherwise {@code false}
+     */
+    static boolean containsAllColumns(List<? extends Column> columns, List<? extends Index.Column> indexColumns) {
+        for (Index.Column indexColumn : indexColumns) {
+            if (!columns.contains(indexColumn.getColumn())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the primary key consists solely of the given column.
+     *
+     * @param primaryKeyColumns the columns of the primary key
+     * @param column the column
+     * @return {@code true} if the column is the only column of the primary key, otherwise {@code false}
+     */
+    private boolean isPrimaryKeyColumn(List<? extends Index.Column> primaryKeyColumns, Column column) {
+        return primaryKeyColumns.size() == 1 && primaryKeyColumns.get(0).getColumn().equals(column);
+    }
+
+    /**
+     * Returns {@code true} if the primary key consists of more than one column.
+     *
+     * @param primaryKeyColumns the columns of the primary key
+     * @return {@code true} if the primary key consists of more than one column, otherwise {@code false}
+     */
+    private boolean hasMultiplePrimaryKeyColumns(List<? extends Index.Column> primaryKeyColumns) {
+        return primaryKeyColumns.size() > 1;
+    }
+
+    /**
+     * Creates a primary key table constraint, e.g.
+     * <pre>
+     * PRIMARY KEY('column1', 'column2')
+     * </pre>
+     *
+     * @param primaryKeyColumns the columns of the primary key
+     * @return a primary key table contraint
+     * @see <a href="https://www.sqlite.org/syntax/table-constraint.html">SQLite table-contraint</a>
+     */
+    private String createPrimaryKeyTableConstraint(List<? extends Index.Column> primaryKeyColumns) {
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        stmtBuilder.append("PRIMARY KEY(");
+        for (Iterator<? extends Index.Column> iterator = primaryKeyColumns.iterator(); iterator.hasNext(); ) {
+            stmtBuilder.append(quoteIdentifier(iterator.next().getName()));
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+        stmtBuilder.append(")");
+
+        return stmtBuilder.toString();
+    }
+
+    /**
+     * Creates a foreign key table constraint, e.g.
+     * <pre>
+     * FOREIGN KEY('otherTableId') REFERENCES otherTable('id')
+     * </pre>
+     *
+     * @param relationship the relationship from the Access database
+     * @return a foreign key constraint
+     * @see <a href="https://www.sqlite.org/syntax/table-constraint.html">SQLite table-contraint</a>
+     * @see <a href="https://www.sqlite.org/syntax/foreign-key-clause.html">SQLite foreign-key-clause</a>
+     */
+    private String createForeignKeyTableConstraint(Relationship relationship) {
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        stmtBuilder.append("FOREIGN KEY(");
+        for (Iterator<Column> iterator = relationship.getToColumns().iterator(); iterator.hasNext(); ) {
+            Column foreignKeyColumn = iterator.next();
+            stmtBuilder.append(quoteIdentifier(foreignKeyColumn.getName()));
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+        stmtBuilder.append(") REFERENCES ");
+        stmtBuilder.append(quoteIdentifier(relationship.getFromTable().getName()));
+        stmtBuilder.append("(");
+        for (Iterator<Column> iterator = relationship.getFromColumns().iterator(); iterator.hasNext(); ) {
+            Column referencedColumn = iterator.next();
+            stmtBuilder.append(quoteIdentifier(referencedColumn.getName()));
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+        stmtBuilder.append(")");
+
+        return stmtBuilder.toString();
+    }
+
+    /**
+     * Searches for a primary key index on the given table and returns the columns that were used for the index key.
+     * If the table does not have a primary key index the returned list will be empty.
+     *
+     * @param table the table on which to search for a primary key index
+     * @return the list of columns used for the index key or an empty list, if no primary key index exists
+     */
+    List<? extends Index.Column> getPrimaryKeyColumns(Table table) {
+        for (Index index : table.getIndexes()) {
+            if (index.isPrimaryKey()) {
+                return index.getColumns();
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String createIndex(Index index) {
+        List<? extends Index.Column> columns = index.getColumns();
+
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        final String tableName = index.getTable().getName();
+        final String indexName = tableName + "_" + index.getName();
+
+        stmtBuilder.append("CREATE ");
+        if (index.isUnique()) {
+            stmtBuilder.append("UNIQUE ");
+        }
+        stmtBuilder.append("INDEX ");
+        stmtBuilder.append(quoteIdentifier(indexName));
+        stmtBuilder.append(" ON ");
+        stmtBuilder.append(quoteIdentifier(tableName));
+        stmtBuilder.append("(");
+
+        for (Iterator<? extends Index.Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+            Index.Column column = iterator.next();
+            stmtBuilder.append(quoteIdentifier(column.getName()));
+            if (iterator.hasNext())
+                stmtBuilder.append(", ");
+        }
+        stmtBuilder.append(")");
+
+        return stmtBuilder.toString();
+    }
+
+    @Override
+    public String insertIntoTable(Table table, List<? extends Column> columns, int rowCount) {
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        stmtBuilder.append("INSERT INTO ");
+        stmtBuilder.append(quoteIdentifier(table.getName()));
+        stmtBuilder.append(" (");
+
+        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+            Column column = iterator.next();
+            stmtBuilder.append(quoteIdentifier(column.getName()));
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+
+        stmtBuilder.append(") VALUES ");
+
+        for (int row = 0; row < rowCount; row++) {
+            if (row > 0) {
+                stmtBuilder.append(", ");
+            }
+            stmtBuilder.append("(");
+            for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+                iterator.next();
+                stmtBuilder.append("?");
+                if (iterator.hasNext()) {
+                    stmtBuilder.append(", ");
+                }
+            }
+            stmtBuilder.append(")");
+        }
+
+        return stmtBuilder.toString();
+    }
+
+    @Override
+    public String selectFromTable(Table table, List<? extends Column> columns) {
+        final StringBuilder stmtBuilder = new StringBuilder();
+
+        stmtBuilder.append("SELECT ");
+        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+            stmtBuilder.append(quoteIdentifier(iterator.next().getName()));
+            if (iterator.hasNext()) {
+                stmtBuilder.append(", ");
+            }
+        }
+        stmtBuilder.append(" FROM ");
+        stmtBuilder.append(quoteIdentifier(table.getName()));
+
+        return stmtBuilder.toString();
+    }
+
+}
@@ -0,0 +1,143 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses the number of statements per JDBC batch by measuring the throughput of a table load. The best size
+ * depends on the target more than on the dialect, e.g. a local SSD favours small batches and a network file system
+ * or server large ones.
+ * <p>
+ * At first every candidate size is used for one measurement window, then the size with the most rows per second is
+ * kept. If the throughput of a later window drifts from the one measured for the chosen size, the neighbouring sizes
+ * are probed again. A window lasts at least {@value #WINDOW_MILLIS} ms and ends after a batch was executed, so it
+ * covers reading, binding and executing alike.
+ */
+class BatchSizeTuner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchSizeTuner.class);
+
+    private static final long WINDOW_MILLIS = 500;
+
+    /**
+     * The relative change in throughput that triggers a new probe.
+     */
+    private static final double MAX_DRIFT = 0.25;
+
+    /**
+     * The factor between neighbouring candidate sizes.
+     */
+    private static final int STEP = 4;
+
+    private final String tableName;
+
+    private final int maxBatchSize;
+
+    private final LongSupplier clock;
+
+    private int[] candidates;
+
+    private int candidate;
+
+    private int bestBatchSize;
+
+    private double bestRate;
+
+    private boolean probing = true;
+
+    private long windowStart;
+
+    private long windowRows;
+
+    /**
+     * @param tableName      the table that is loaded, for logging
+     * @param startBatchSize the configured batch size, candidates range from a sixteenth to four times of it
+     */
+    BatchSizeTuner(String tableName, int startBatchSize) {
+        this(tableName, startBatchSize, System::nanoTime);
+    }
+
+    BatchSizeTuner(String tableName, int startBatchSize, LongSupplier clock) {
+        this.tableName = tableName;
+        this.maxBatchSize = startBatchSize * STEP;
+        this.clock = clock;
+        this.candidates = neighbours(startBatchSize / (STEP * STEP), 3);
+        this.windowStart = clock.getAsLong();
+    }
+
+    /**
+     * Returns the number of statements of the next batch.
+     */
+    int getBatchSize() {
+        return probing ? candidates[candidate] : bestBatchSize;
+    }
+
+    /**
+     * Records rows that were sent to the target, measures the window after a batch was executed.
+     *
+     * @param rows          the number of rows
+     * @param batchExecuted whether a batch ended with these rows
+     */
+    void rowsWritten(long rows, boolean batchExecuted) {
+        windowRows += rows;
+        if (!batchExecuted) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long elapsed = now - windowStart;
+        if (elapsed < TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS)) {
+            return;
+        }
+        double rate = windowRows * 1e9 / elapsed;
+        windowStart = now;
+        windowRows = 0;
+
+        if (probing) {
+            probed(rate);
+        } else if (Math.abs(rate - bestRate) > MAX_DRIFT * bestRate) {
+            LOGGER.debug("Throughput of table {} drifted from {} to {} rows/s, probing batch sizes again",
+                    tableName, Math.round(bestRate), Math.round(rate));
+            candidates = neighbours(bestBatchSize / STEP, 2);
+            candidate = 0;
+            bestRate = 0;
+            probing = true;
+        }
+    }
+
+    private void probed(double rate) {
+        LOGGER.debug("Batch size {} for table {}: {} rows/s", candidates[candidate], tableName, Math.round(rate));
+        if (rate > bestRate) {
+            bestRate = rate;
+            bestBatchSize = candidates[candidate];
+        }
+        if (++candidate == candidates.length) {
+            probing = false;
+            LOGGER.info("Chose batch size {} for table {} at {} rows/s", bestBatchSize, tableName, Math.round(bestRate));
+        }
+    }
+
+    /**
+     * Returns the smallest size and up to the given number of larger sizes, each {@value #STEP} times the previous
+     * one, limited to the maximum size.
+     */
+    private int[] neighbours(int smallest, int steps) {
+        int size = Math.max(1, smallest);
+        int[] sizes = new int[steps + 1];
+        int n = 0;
+        for (int i = 0; i <= steps && size <= maxBatchSize; i++) {
+            sizes[n++] = size;
+            size *= STEP;
+        }
+        int[] result = new int[n];
+        System.arraycopy(sizes, 0, result, 0, n);
+        return result;
+    }
+
+}
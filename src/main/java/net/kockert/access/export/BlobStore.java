@@ -0,0 +1,86 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores each distinct binary value once in a side table of the target database, addressed by its SHA-256 hash.
+ * The rows of the exported tables then only reference the value by its id in the side table.
+ * <p>
+ * The ids of the stored values are kept in memory by hash, so a value that was stored before is recognized without
+ * a query. That takes about 100 bytes per distinct value, no matter how large the values are.
+ * <p>
+ * A store belongs to one export. Tables that are loaded in parallel into separate files share it, so the ids are
+ * unique across the files and each value is stored in only one of them.
+ */
+class BlobStore {
+
+    static final String TABLE_NAME = "access_export_blobs";
+
+    private final Map<ByteBuffer, Long> ids = new HashMap<>();
+
+    private final MessageDigest digest;
+
+    private long nextId = 1;
+
+    private long duplicates;
+
+    BlobStore() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the id of a value, stores the value with the given statement if it was not stored before.
+     *
+     * @param value  the value
+     * @param insert the {@link #insertBlob() insert statement} on the connection of the calling writer
+     * @return the id of the value in the side table
+     * @throws SQLException if the value could not be stored
+     */
+    synchronized long store(byte[] value, PreparedStatement insert) throws SQLException {
+        byte[] hash = digest.digest(value);
+        Long id = ids.get(ByteBuffer.wrap(hash));
+        if (id != null) {
+            duplicates++;
+            return id;
+        }
+        id = nextId++;
+        insert.setLong(1, id);
+        insert.setBytes(2, hash);
+        insert.setBytes(3, value);
+        insert.executeUpdate();
+        ids.put(ByteBuffer.wrap(hash), id);
+        return id;
+    }
+
+    synchronized long getStoredCount() {
+        return ids.size();
+    }
+
+    synchronized long getDuplicateCount() {
+        return duplicates;
+    }
+
+    static String createTable() {
+        return "CREATE TABLE \"" + TABLE_NAME + "\" "
+                + "(\"id\" INTEGER PRIMARY KEY, \"sha256\" BLOB NOT NULL, \"data\" BLOB NOT NULL)";
+    }
+
+    static String insertBlob() {
+        return "INSERT INTO \"" + TABLE_NAME + "\" (\"id\", \"sha256\", \"data\") VALUES (?, ?, ?)";
+    }
+
+}
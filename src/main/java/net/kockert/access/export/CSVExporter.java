@@ -4,26 +4,66 @@
 
 package net.kockert.access.export;
 
+import com.healthmarketscience.jackcess.Column;
 import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
 import com.healthmarketscience.jackcess.util.ExportUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Set;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
- * Exports an Access database using Jackcess' built-in {@link ExportUtil} with default settings plus header.
+ * Exports an Access database to CSV files in the format of Jackcess' built-in {@link ExportUtil} with default
+ * settings plus header. The rows are read through a {@link TableScan}, so the {@link ExportOptions} apply.
+ * <p>
+ * The files are written either into a directory or as deflated entries of a single ZIP archive. The archive is
+ * written in one sequential pass, each table is streamed into its entry while it is exported, and it ends with a
+ * {@value #MANIFEST_NAME} listing the file and the number of rows of every table.
  */
 public class CSVExporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CSVExporter.class);
 
+    private static final String DELIMITER = ExportUtil.DEFAULT_DELIMITER;
+
+    private static final char QUOTE = ExportUtil.DEFAULT_QUOTE_CHAR;
+
+    private static final Pattern NEEDS_QUOTE_PATTERN = Pattern.compile(
+            "(?:" + Pattern.quote(DELIMITER) + ")|(?:" + Pattern.quote(String.valueOf(QUOTE)) + ")|(?:[\n\r])");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    static final String MANIFEST_NAME = "manifest.csv";
+
     private final Database db;
 
+    private final ExportOptions options;
+
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    private ExportThrottle throttle = new ExportThrottle();
+
+    private boolean collectStatistics;
+
+    private final List<TableStatistics> statistics = new ArrayList<>();
+
     public CSVExporter(Database db) throws IOException {
+        this(db, ExportOptions.DEFAULTS);
+    }
+
+    public CSVExporter(Database db, ExportOptions options) throws IOException {
         this.db = db;
+        this.options = options;
     }
 
     /**
@@ -34,12 +74,20 @@ public class CSVExporter {
      * @throws IOException if there was an error reading the source database or writing the target files
      */
     public void export(Path targetDir, Set<String> tablesToExport) throws IOException {
-        ExportUtil.Builder builder = new ExportUtil.Builder(db);
-        builder.setHeader(true);
-        for (String table : tablesToExport) {
-            builder.setTableName(table);
-            LOGGER.debug("Exporting table '" + table + "'");
-            builder.exportFile(targetDir.resolve(table + "." + ExportUtil.DEFAULT_FILE_EXT).toFile());
+        statistics.clear();
+        metrics.start();
+        try {
+            for (String tableName : tablesToExport) {
+                Table table = db.getTable(tableName);
+                if (table == null) {
+                    throw new IOException("Table '" + tableName + "' does not exist");
+                }
+                LOGGER.debug("Exporting table '" + tableName + "'");
+                exportTable(table, targetDir);
+            }
+            writeStatistics(targetDir);
+        } finally {
+            metrics.stop();
         }
     }
 
@@ -50,10 +98,347 @@ public class CSVExporter {
      * @throws IOException if there was an error reading the source database or writing the target files
      */
     public void export(Path targetDir) throws IOException {
-        ExportUtil.Builder builder = new ExportUtil.Builder(db);
-        builder.setHeader(true);
         LOGGER.debug("Exporting all tables");
-        builder.exportAll(targetDir.toFile());
+        statistics.clear();
+        metrics.start();
+        try {
+            for (String table : db.getTableNames()) {
+                exportTable(db.getTable(table), targetDir);
+            }
+            writeStatistics(targetDir);
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Exports the specified tables to a ZIP archive with a CSV file per table.
+     *
+     * @param zipFile        the archive to create
+     * @param tablesToExport the tables to export
+     * @throws IOException if there was an error reading the source database or writing the archive
+     */
+    public void exportZip(Path zipFile, Set<String> tablesToExport) throws IOException {
+        List<Table> tables = new ArrayList<>();
+        for (String tableName : tablesToExport) {
+            Table table = db.getTable(tableName);
+            if (table == null) {
+                throw new IOException("Table '" + tableName + "' does not exist");
+            }
+            tables.add(table);
+        }
+        exportZip(zipFile, tables);
+    }
+
+    /**
+     * Exports all tables to a ZIP archive with a CSV file per table.
+     *
+     * @param zipFile the archive to create
+     * @throws IOException if there was an error reading the source database or writing the archive
+     */
+    public void exportZip(Path zipFile) throws IOException {
+        LOGGER.debug("Exporting all tables");
+        List<Table> tables = new ArrayList<>();
+        for (String tableName : db.getTableNames()) {
+            tables.add(db.getTable(tableName));
+        }
+        exportZip(zipFile, tables);
+    }
+
+    private void exportZip(Path zipFile, List<Table> tables) throws IOException {
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        statistics.clear();
+        metrics.start();
+        try (ZipOutputStream zip = new ZipOutputStream(new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(zipFile)), metrics, throttle))) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zip, Charset.defaultCharset()));
+            for (Table table : tables) {
+                LOGGER.debug("Exporting table '" + table.getName() + "'");
+                String fileName = table.getName() + "." + ExportUtil.DEFAULT_FILE_EXT;
+                metrics.startTable(table.getName(), table.getRowCount());
+                ResourceUsage start = ResourceUsage.snapshot();
+                try {
+                    zip.putNextEntry(new ZipEntry(fileName));
+                    rowCounts.put(fileName, writeTable(table, writer));
+                    writer.flush();
+                    zip.closeEntry();
+                } finally {
+                    metrics.finishTable();
+                }
+                metrics.phaseFinished(table.getName(), "export", ResourceUsage.since(start));
+            }
+            if (collectStatistics) {
+                zip.putNextEntry(new ZipEntry(TableStatistics.FILE_NAME));
+                Writer statisticsWriter = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+                TableStatistics.writeJson(statistics, statisticsWriter);
+                statisticsWriter.flush();
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+            writeManifest(rowCounts, writer);
+            writer.flush();
+            zip.closeEntry();
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Exports a single table to the given stream as UTF-8. The stream is flushed, but not closed.
+     *
+     * @param tableName the table to export
+     * @param out       the stream to write to
+     * @throws IOException if there was an error reading the source database or writing to the stream
+     */
+    public void export(String tableName, OutputStream out) throws IOException {
+        Table table = db.getTable(tableName);
+        if (table == null) {
+            throw new IOException("Table '" + tableName + "' does not exist");
+        }
+        metrics.start();
+        try {
+            metrics.startTable(table.getName(), table.getRowCount());
+            try {
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                        new CountingOutputStream(out, metrics, throttle), StandardCharsets.UTF_8));
+                writeTable(table, writer);
+                writer.flush();
+            } finally {
+                metrics.finishTable();
+            }
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Writes the file name and the number of exported rows of each table.
+     */
+    private void writeManifest(Map<String, Long> rowCounts, BufferedWriter writer) throws IOException {
+        writer.write("file" + DELIMITER + "rows");
+        writer.newLine();
+        for (Map.Entry<String, Long> rowCount : rowCounts.entrySet()) {
+            writeValue(rowCount.getKey(), writer);
+            writer.write(DELIMITER);
+            writer.write(String.valueOf(rowCount.getValue()));
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Limits the rates of the export, by default the export runs at full speed.
+     *
+     * @param throttle the limits, which may be changed while the export runs
+     */
+    public void setThrottle(ExportThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Collects statistics of every exported column while the rows are written and stores them in
+     * {@value TableStatistics#FILE_NAME} next to the CSV files: the number of nulls, minimum and maximum, the average
+     * length of text and binary values, the approximate number of distinct values and the most frequent values.
+     *
+     * @param collect whether to collect the statistics
+     * @see TableStatistics
+     */
+    public void setCollectStatistics(boolean collect) {
+        this.collectStatistics = collect;
+    }
+
+    /**
+     * Returns the progress of the export, which is also registered as an MBean while the export runs.
+     *
+     * @return the metrics of this exporter
+     */
+    public ExportMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns a sink that writes rows read elsewhere to a CSV file per table, like {@link #export(Path)} but without
+     * reading the source itself.
+     *
+     * @param targetDir the target directory for the CSV files
+     * @return the sink
+     */
+    public ExportSink sink(Path targetDir) {
+        return new ExportSink() {
+            @Override
+            public void start(List<Table> tables) {
+                statistics.clear();
+            }
+
+            @Override
+            public RowWriter openTable(Table table, List<? extends Column> columns) throws IOException {
+                CSVRowWriter rowWriter = new CSVRowWriter(openTableFile(table, targetDir), columns.size());
+                rowWriter.writeHeader(columns);
+                if (collectStatistics) {
+                    TableStatistics tableStatistics = new TableStatistics(table.getName(), columns);
+                    statistics.add(tableStatistics);
+                    return new StatisticsRowWriter(rowWriter, tableStatistics);
+                }
+                return rowWriter;
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writeStatistics(targetDir);
+            }
+        };
+    }
+
+    private void exportTable(Table table, Path targetDir) throws IOException {
+        metrics.startTable(table.getName(), table.getRowCount());
+        ResourceUsage start = ResourceUsage.snapshot();
+        try (BufferedWriter writer = openTableFile(table, targetDir)) {
+            writeTable(table, writer);
+        } finally {
+            metrics.finishTable();
+        }
+        metrics.phaseFinished(table.getName(), "export", ResourceUsage.since(start));
+    }
+
+    private BufferedWriter openTableFile(Table table, Path targetDir) throws IOException {
+        Path targetFile = targetDir.resolve(table.getName() + "." + ExportUtil.DEFAULT_FILE_EXT);
+        return new BufferedWriter(new OutputStreamWriter(
+                new CountingOutputStream(Files.newOutputStream(targetFile), metrics, throttle), Charset.defaultCharset()));
+    }
+
+    /**
+     * Writes the header and the rows of the table.
+     *
+     * @return the number of rows
+     */
+    private long writeTable(Table table, BufferedWriter writer) throws IOException {
+        List<? extends Column> columns = options.getColumns(table);
+        CSVRowWriter rowWriter = new CSVRowWriter(writer, columns.size());
+        rowWriter.writeHeader(columns);
+        TableStatistics tableStatistics = collectStatistics ? new TableStatistics(table.getName(), columns) : null;
+
+        long rowCount = 0;
+        Object[] values = new Object[columns.size()];
+        Iterator<Row> rows = new TableScan(table, options).rows();
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(columns.get(i).getName());
+            }
+            rowWriter.write(values);
+            if (tableStatistics != null) {
+                tableStatistics.add(values);
+            }
+            metrics.rowWritten(0);
+            throttle.acquireRow();
+            rowCount++;
+        }
+        if (tableStatistics != null) {
+            statistics.add(tableStatistics);
+        }
+        return rowCount;
+    }
+
+    private void writeStatistics(Path targetDir) throws IOException {
+        if (!collectStatistics) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(targetDir.resolve(TableStatistics.FILE_NAME), StandardCharsets.UTF_8)) {
+            TableStatistics.writeJson(statistics, writer);
+        }
+    }
+
+    /**
+     * Writes the value and quotes it, if it contains the delimiter, the quote character or a line break.
+     */
+    private static void writeValue(String value, BufferedWriter writer) throws IOException {
+        if (!NEEDS_QUOTE_PATTERN.matcher(value).find()) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) {
+                writer.write(QUOTE);
+            }
+            writer.write(c);
+        }
+        writer.write(QUOTE);
+    }
+
+    /**
+     * Writes binary values as hex digits, which never need quotes, without copying OLE objects of several megabytes
+     * into a string first.
+     */
+    private static void writeHex(byte[] bytes, BufferedWriter writer) throws IOException {
+        for (byte b : bytes) {
+            writer.write(HEX_DIGITS[(b >> 4) & 0xF]);
+            writer.write(HEX_DIGITS[b & 0xF]);
+        }
+    }
+
+    /**
+     * Returns the text of a non-null value in a CSV file.
+     */
+    static String toText(Object value) {
+        return value instanceof byte[] ? toHexString((byte[]) value) : String.valueOf(value);
+    }
+
+    private static String toHexString(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Writes rows as lines of a CSV file, closing the writer closes the file.
+     */
+    private static class CSVRowWriter implements RowWriter {
+
+        private final BufferedWriter writer;
+
+        private final int columnCount;
+
+        CSVRowWriter(BufferedWriter writer, int columnCount) {
+            this.writer = writer;
+            this.columnCount = columnCount;
+        }
+
+        void writeHeader(List<? extends Column> columns) throws IOException {
+            for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+                writeValue(iterator.next().getName(), writer);
+                if (iterator.hasNext()) {
+                    writer.write(DELIMITER);
+                }
+            }
+            writer.newLine();
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            for (int i = 0; i < columnCount; i++) {
+                Object value = values[i];
+                if (value instanceof byte[]) {
+                    writeHex((byte[]) value, writer);
+                } else if (value != null) {
+                    writeValue(String.valueOf(value), writer);
+                }
+                if (i < columnCount - 1) {
+                    writer.write(DELIMITER);
+                }
+            }
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+
     }
 
 }
@@ -4,13 +4,18 @@
 
 package net.kockert.access.export;
 
+import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.converters.IParameterSplitter;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class CommandLineParameters {
 
-    @Parameter(description = "<source> <target>")
+    @Parameter(description = "<source> [<target>]")
     private List<String> parameters = new ArrayList<>();
 
     @Parameter(names = {"-h", "--help"}, help = true, description = "display usage instructions")
@@ -19,9 +24,108 @@ public class CommandLineParameters {
     @Parameter(names = {"-t", "--tables"}, description = "tables to export, comma-separated")
     private List<String> tablesToExport = Collections.emptyList();
 
-    @Parameter(names = {"-f", "--format"}, description = "export format: 'sqlite' or 'csv'")
+    @Parameter(names = {"-f", "--format"}, description = "export format: 'sqlite', 'duckdb', 'csv' or 'jsonl', or several of 'sqlite', 'duckdb' and 'csv' comma-separated with a target each")
     private String format = "sqlite";
 
+    @Parameter(names = {"-u", "--target-url"},
+            description = "JDBC URL of the target database instead of a target SQLite file, the driver must be on the classpath")
+    private String targetUrl;
+
+    @Parameter(names = {"-w", "--where"}, splitter = NoSplitter.class,
+            description = "row filter for a table, e.g. 'Orders:OrderDate>=2015-01-01', may be repeated")
+    private List<String> rowFilters = new ArrayList<>();
+
+    @Parameter(names = {"-c", "--columns"}, splitter = NoSplitter.class,
+            description = "columns to export for a table, e.g. 'Orders:OrderId,OrderDate', may be repeated")
+    private List<String> columns = new ArrayList<>();
+
+    @Parameter(names = {"-s", "--sample"},
+            description = "export a sample of each table: 'first:<n>', 'every:<n>' or 'reservoir:<n>[:<seed>]'")
+    private String sampling;
+
+    @Parameter(names = "--zip", description = "CSV only: write the files into a ZIP archive with a manifest of row counts")
+    private boolean zip;
+
+    @Parameter(names = "--primary-key-order",
+            description = "read tables with a primary key in key order, so rows are appended to the key of the target")
+    private boolean primaryKeyOrder;
+
+    @Parameter(names = "--optimize-schema",
+            description = "SQLite only: rowid aliases for integer keys, WITHOUT ROWID tables for composite keys, ANALYZE after the load")
+    private boolean optimizeSchema;
+
+    @Parameter(names = "--guid-as-blob", description = "SQLite only: store GUIDs as 16-byte BLOBs instead of text")
+    private boolean guidsAsBlobs;
+
+    @Parameter(names = "--defer-foreign-keys",
+            description = "SQLite only: load without foreign key checks and check all foreign keys once at the end")
+    private boolean deferForeignKeys;
+
+    @Parameter(names = "--dedupe-blobs",
+            description = "SQLite only: store each distinct OLE or binary value once in a side table and reference it by id")
+    private boolean deduplicateBlobs;
+
+    @Parameter(names = "--dedupe-views",
+            description = "SQLite only: with --dedupe-blobs, create a view <table>_resolved that shows the values instead of their ids")
+    private boolean createBlobViews;
+
+    @Parameter(names = "--column-stats",
+            description = "SQLite and CSV only: collect statistics of every exported column while writing the rows")
+    private boolean collectColumnStatistics;
+
+    @Parameter(names = "--serve",
+            description = "serve the databases of the directory given as only parameter over HTTP on this port of localhost instead of exporting")
+    private Integer servePort;
+
+    @Parameter(names = "--max-open-databases", description = "with --serve: number of databases kept open for lookups")
+    private int maxOpenDatabases = 8;
+
+    @Parameter(names = "--row-cache", description = "with --serve: number of rows kept in the cache of lookups, 0 disables it")
+    private long maxCachedRows = 10000;
+
+    @Parameter(names = "--max-streams", description = "with --serve: number of tables that can be read at the same time")
+    private int maxStreams = 4;
+
+    @Parameter(names = "--parallel",
+            description = "SQLite files only: number of tables loaded at the same time into temporary files that are merged into the target")
+    private int parallelLoads = 1;
+
+    @Parameter(names = "--verify",
+            description = "compare row counts and column hashes of every exported table with the source (SQLite and CSV only)")
+    private boolean verify;
+
+    @Parameter(names = "--max-read-rate", converter = SizeConverter.class,
+            description = "maximum bytes read from the source per second, e.g. '10M'")
+    private long maxReadRate;
+
+    @Parameter(names = "--max-write-rate", converter = SizeConverter.class,
+            description = "maximum bytes written to the target per second, e.g. '5M'")
+    private long maxWriteRate;
+
+    @Parameter(names = "--max-rows-per-sec", converter = SizeConverter.class,
+            description = "maximum rows exported per second")
+    private long maxRowsPerSecond;
+
+    @Parameter(names = "--throttle-file",
+            description = "properties file with 'max-read-rate', 'max-write-rate' and 'max-rows-per-sec' that is applied whenever it changes")
+    private String throttleFile;
+
+    @Parameter(names = "--memory-budget", converter = SizeConverter.class,
+            description = "heap for rows buffered between reading and writing, with suffix K, M or G, defaults to a quarter of the maximum heap")
+    private long memoryBudget;
+
+    @Parameter(names = "--batch-size",
+            description = "number of insert statements per JDBC batch, defaults to a value that suits the target format")
+    private int batchSize;
+
+    @Parameter(names = "--auto-tune-batch-size",
+            description = "probe batch sizes while large tables are loaded and keep the one with the highest throughput")
+    private boolean autoTuneBatchSize;
+
+    @Parameter(names = "--metrics-file",
+            description = "file to which the progress is written in the Prometheus text format every few seconds")
+    private String metricsFile;
+
     public List<String> getParameters() {
         return parameters;
     }
@@ -38,16 +142,224 @@ public class CommandLineParameters {
         return !tablesToExport.isEmpty();
     }
 
-    public ExportFormat getFormat() {
-        try {
-            return ExportFormat.valueOf(format.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("'" + format + "' is not a valid export format", e);
+    public List<ExportFormat> getFormats() {
+        List<ExportFormat> formats = new ArrayList<>();
+        for (String name : format.split(",")) {
+            try {
+                formats.add(ExportFormat.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("'" + name + "' is not a valid export format", e);
+            }
         }
+        return formats;
+    }
+
+    public boolean hasTargetUrl() {
+        return targetUrl != null;
+    }
+
+    public String getTargetUrl() {
+        return targetUrl;
+    }
+
+    public boolean optimizeSchema() {
+        return optimizeSchema;
+    }
+
+    public boolean storeGuidsAsBlobs() {
+        return guidsAsBlobs;
+    }
+
+    public boolean deferForeignKeys() {
+        return deferForeignKeys;
+    }
+
+    public boolean deduplicateBlobs() {
+        return deduplicateBlobs;
+    }
+
+    public boolean createBlobViews() {
+        return createBlobViews;
+    }
+
+    public boolean collectColumnStatistics() {
+        return collectColumnStatistics;
+    }
+
+    public int getParallelLoads() {
+        return parallelLoads;
+    }
+
+    public boolean hasServePort() {
+        return servePort != null;
+    }
+
+    public int getServePort() {
+        return servePort;
+    }
+
+    public int getMaxOpenDatabases() {
+        return maxOpenDatabases;
+    }
+
+    public long getMaxCachedRows() {
+        return maxCachedRows;
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public boolean zip() {
+        return zip;
+    }
+
+    public boolean verify() {
+        return verify;
+    }
+
+    public long getMaxReadRate() {
+        return maxReadRate;
+    }
+
+    public long getMaxWriteRate() {
+        return maxWriteRate;
+    }
+
+    public long getMaxRowsPerSecond() {
+        return maxRowsPerSecond;
+    }
+
+    public boolean hasThrottleFile() {
+        return throttleFile != null;
+    }
+
+    public Path getThrottleFile() {
+        return Paths.get(throttleFile);
+    }
+
+    public boolean hasMemoryBudget() {
+        return memoryBudget > 0;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public boolean hasBatchSize() {
+        return batchSize > 0;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean autoTuneBatchSize() {
+        return autoTuneBatchSize;
+    }
+
+    public boolean hasMetricsFile() {
+        return metricsFile != null;
+    }
+
+    public Path getMetricsFile() {
+        return Paths.get(metricsFile);
     }
 
     public boolean insufficientParameters() {
-        return parameters.size() != 2;
+        if (hasServePort()) {
+            return parameters.size() != 1;
+        }
+        return parameters.size() != (hasTargetUrl() ? 1 : 1 + format.split(",").length);
+    }
+
+    public ExportOptions getExportOptions() {
+        ExportOptions.ExportOptionsBuilder builder = new ExportOptions.ExportOptionsBuilder();
+        for (String rowFilter : rowFilters) {
+            int separator = rowFilter.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("'" + rowFilter + "' is not a valid row filter, expected <table>:<condition>");
+            }
+            builder.where(rowFilter.substring(0, separator), RowFilter.parse(rowFilter.substring(separator + 1)));
+        }
+        for (String tableColumns : columns) {
+            int separator = tableColumns.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("'" + tableColumns + "' is not a valid column list, expected <table>:<column>[,<column>...]");
+            }
+            builder.columns(tableColumns.substring(0, separator),
+                    Arrays.asList(tableColumns.substring(separator + 1).trim().split("\\s*,\\s*")));
+        }
+        if (sampling != null) {
+            builder.sample(Sampling.parse(sampling));
+        }
+        builder.primaryKeyOrder(primaryKeyOrder);
+        return builder.build();
+    }
+
+    /**
+     * Parses a number with an optional binary suffix {@code K}, {@code M} or {@code G}, e.g. {@code 10M}.
+     *
+     * @param size the number
+     * @return the value of the number
+     * @throws IllegalArgumentException if the number is not valid
+     */
+    public static long parseSize(String size) {
+        long factor = 1;
+        String number = size;
+        switch (size.isEmpty() ? ' ' : Character.toUpperCase(size.charAt(size.length() - 1))) {
+            case 'K':
+                factor = 1L << 10;
+                break;
+            case 'M':
+                factor = 1L << 20;
+                break;
+            case 'G':
+                factor = 1L << 30;
+                break;
+            default:
+                break;
+        }
+        if (factor > 1) {
+            number = size.substring(0, size.length() - 1);
+        }
+        try {
+            long value = Long.parseLong(number.trim());
+            if (value < 0) {
+                throw new IllegalArgumentException("'" + size + "' must not be negative");
+            }
+            return Math.multiplyExact(value, factor);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("'" + size + "' is not a valid size", e);
+        }
+    }
+
+    /**
+     * Converts sizes like {@code 10M}, see {@link #parseSize(String)}.
+     */
+    public static class SizeConverter implements IStringConverter<Long> {
+
+        @Override
+        public Long convert(String value) {
+            try {
+                return parseSize(value);
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException(e.getMessage());
+            }
+        }
+
+    }
+
+    /**
+     * Keeps parameter values intact instead of splitting them at commas.
+     */
+    public static class NoSplitter implements IParameterSplitter {
+
+        @Override
+        public List<String> split(String value) {
+            return Collections.singletonList(value);
+        }
+
     }
 
 }
@@ -0,0 +1,41 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written to a file in the {@link ExportMetrics} and limits the write rate with an
+ * {@link ExportThrottle}.
+ */
+class CountingOutputStream extends FilterOutputStream {
+
+    private final ExportMetrics metrics;
+
+    private final ExportThrottle throttle;
+
+    CountingOutputStream(OutputStream out, ExportMetrics metrics, ExportThrottle throttle) {
+        super(out);
+        this.metrics = metrics;
+        this.throttle = throttle;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        throttle.acquireWrite(1);
+        out.write(b);
+        metrics.bytesWritten(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        throttle.acquireWrite(len);
+        out.write(b, off, len);
+        metrics.bytesWritten(len);
+    }
+
+}
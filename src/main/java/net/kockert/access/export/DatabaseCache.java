@@ -0,0 +1,178 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used Access databases open for reading, so a lookup does not pay for opening the file and
+ * reading its system tables. If more databases are used than are kept open, the least recently used one is closed.
+ * <p>
+ * Jackcess databases are not thread-safe, so every database is only used by one thread at a time. A database whose
+ * file was modified since it was opened is opened again. Databases are opened by the first thread that uses them,
+ * outside of the lock of the cache, so a slow open only delays the lookups on the same file.
+ */
+class DatabaseCache implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseCache.class);
+
+    private final int maxOpenDatabases;
+
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private boolean closed;
+
+    /**
+     * @param maxOpenDatabases the number of databases that are kept open
+     */
+    DatabaseCache(int maxOpenDatabases) {
+        if (maxOpenDatabases < 1) {
+            throw new IllegalArgumentException("Invalid number of open databases: " + maxOpenDatabases);
+        }
+        this.maxOpenDatabases = maxOpenDatabases;
+    }
+
+    /**
+     * Calls the function with the open database, while no other thread uses it.
+     *
+     * @param file     the database file
+     * @param function the function, which must not keep the database beyond the call
+     * @return the result of the function
+     * @throws IOException if the database could not be opened or the function failed
+     */
+    <T> T withDatabase(Path file, DatabaseFunction<T> function) throws IOException {
+        while (true) {
+            Entry entry = acquire(file);
+            synchronized (entry) {
+                // the entry may have been evicted between acquiring and locking it
+                if (entry.closed) {
+                    continue;
+                }
+                if (entry.database == null) {
+                    open(entry);
+                }
+                return function.apply(entry.database, entry.lastModified);
+            }
+        }
+    }
+
+    /**
+     * Opens the database of an entry that was just added, the caller holds the lock of the entry. If the database
+     * can not be opened, the entry is removed, so the next request tries again.
+     */
+    private void open(Entry entry) throws IOException {
+        LOGGER.debug("Opening database '{}'", entry.file);
+        try {
+            entry.database = new DatabaseBuilder(entry.file.toFile()).setReadOnly(true).open();
+        } catch (IOException | RuntimeException e) {
+            entry.closed = true;
+            synchronized (entries) {
+                entries.remove(entry.file, entry);
+            }
+            throw e;
+        }
+    }
+
+    private Entry acquire(Path file) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        List<Entry> evicted = new ArrayList<>();
+        Entry entry;
+        synchronized (entries) {
+            if (closed) {
+                throw new IOException("The database cache is closed");
+            }
+            entry = entries.get(file);
+            if (entry != null && entry.lastModified != lastModified) {
+                LOGGER.debug("Database '{}' was modified, opening it again", file);
+                entries.remove(file);
+                evicted.add(entry);
+                entry = null;
+            }
+            if (entry == null) {
+                // opened by withDatabase, so other databases can be used meanwhile
+                entry = new Entry(file, lastModified);
+                entries.put(file, entry);
+                for (Iterator<Entry> iterator = entries.values().iterator(); entries.size() > maxOpenDatabases; ) {
+                    evicted.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+        }
+        // closing waits for the threads still using the databases, so it is done outside of the lock
+        for (Entry evictedEntry : evicted) {
+            evictedEntry.close();
+        }
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        List<Entry> evicted;
+        synchronized (entries) {
+            closed = true;
+            evicted = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        for (Entry entry : evicted) {
+            entry.close();
+        }
+    }
+
+    interface DatabaseFunction<T> {
+
+        /**
+         * @param database     the open database
+         * @param lastModified the modification time of the file when it was opened, e.g. to version cached data
+         */
+        T apply(Database database, long lastModified) throws IOException;
+
+    }
+
+    private static class Entry {
+
+        private final Path file;
+
+        private final long lastModified;
+
+        /**
+         * The open database, {@code null} until the first thread that uses the entry opened it.
+         */
+        private Database database;
+
+        private boolean closed;
+
+        Entry(Path file, long lastModified) {
+            this.file = file;
+            this.lastModified = lastModified;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (database == null) {
+                return;
+            }
+            try {
+                database.close();
+            } catch (IOException e) {
+                LOGGER.warn("Could not close database '{}': {}", file, e.getMessage());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the values of OLE and BINARY columns by references into a {@link BlobStore} before the rows are passed to
+ * another writer, so every distinct value is written only once.
+ */
+class DeduplicatingRowWriter implements RowWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingRowWriter.class);
+
+    private final RowWriter rowWriter;
+
+    private final BlobStore blobStore;
+
+    private final PreparedStatement insertBlob;
+
+    private final int[] blobColumns;
+
+    private final Object[] values;
+
+    DeduplicatingRowWriter(RowWriter rowWriter, BlobStore blobStore, Connection jdbcConnection,
+                           List<? extends Column> columns) throws SQLException {
+        this.rowWriter = rowWriter;
+        this.blobStore = blobStore;
+        this.insertBlob = jdbcConnection.prepareStatement(BlobStore.insertBlob());
+        this.blobColumns = getBlobColumns(columns);
+        this.values = new Object[columns.size()];
+    }
+
+    private static int[] getBlobColumns(List<? extends Column> columns) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            if (isDeduplicated(columns.get(i))) {
+                indexes.add(i);
+            }
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static boolean isDeduplicated(Column column) {
+        return column.getType() == DataType.OLE || column.getType() == DataType.BINARY;
+    }
+
+    @Override
+    public void write(Object[] values) throws SQLException, IOException {
+        System.arraycopy(values, 0, this.values, 0, values.length);
+        for (int i : blobColumns) {
+            if (values[i] instanceof byte[]) {
+                this.values[i] = blobStore.store((byte[]) values[i], insertBlob);
+            }
+        }
+        rowWriter.write(this.values);
+    }
+
+    @Override
+    public void setMaxBufferedBytes(long bytes) {
+        rowWriter.setMaxBufferedBytes(bytes);
+    }
+
+    @Override
+    public void setBatchSize(int statements) {
+        rowWriter.setBatchSize(statements);
+    }
+
+    @Override
+    public void setAutoTuneBatchSize(boolean autoTune) {
+        rowWriter.setAutoTuneBatchSize(autoTune);
+    }
+
+    @Override
+    public void close() throws SQLException, IOException {
+        try {
+            rowWriter.close();
+        } finally {
+            insertBlob.close();
+        }
+        LOGGER.debug("{} distinct binary values stored, {} duplicates referenced", blobStore.getStoredCount(),
+                blobStore.getDuplicateCount());
+    }
+
+}
@@ -0,0 +1,27 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+
+/**
+ * Generates SQL for Apache Derby. Derby has no {@code VARBINARY} type and compiles every distinct statement to Java
+ * bytecode, so rows are inserted with batches of one prepared single-row statement.
+ *
+ * @see <a href="https://db.apache.org/derby/docs/10.14/ref/crefsqlj31068.html">Derby Data types</a>
+ */
+public class DerbySQLGenerator extends GenericSQLGenerator {
+
+    @Override
+    protected String mapDatatype(Column column) {
+        switch (column.getType()) {
+            case BINARY:
+                return "VARCHAR(" + column.getLength() + ") FOR BIT DATA";
+            default:
+                return super.mapDatatype(column);
+        }
+    }
+
+}
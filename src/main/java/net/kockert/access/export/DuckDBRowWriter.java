@@ -0,0 +1,91 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Table;
+import org.duckdb.DuckDBAppender;
+import org.duckdb.DuckDBConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+
+/**
+ * Loads rows through DuckDB's appender, which writes the values directly into column chunks of the table without
+ * parsing or planning any SQL.
+ *
+ * @see <a href="https://duckdb.org/docs/data/appender">DuckDB Appender</a>
+ */
+public class DuckDBRowWriter implements RowWriter {
+
+    private final DuckDBAppender appender;
+
+    private long maxBufferedBytes = Long.MAX_VALUE;
+
+    private long bufferedBytes;
+
+    public DuckDBRowWriter(Connection jdbcConnection, Table table) throws SQLException {
+        DuckDBConnection duckDBConnection = jdbcConnection.unwrap(DuckDBConnection.class);
+        this.appender = duckDBConnection.createAppender(DuckDBConnection.DEFAULT_SCHEMA, table.getName());
+    }
+
+    /**
+     * The appender buffers rows in native memory, it is flushed whenever the estimated size of the appended rows
+     * exceeds the limit.
+     */
+    @Override
+    public void setMaxBufferedBytes(long bytes) {
+        this.maxBufferedBytes = bytes;
+    }
+
+    @Override
+    public void write(Object[] values) throws SQLException {
+        appender.beginRow();
+        for (Object value : values) {
+            append(value);
+            bufferedBytes += ExportMetrics.estimateSize(value);
+        }
+        appender.endRow();
+        if (bufferedBytes >= maxBufferedBytes) {
+            appender.flush();
+            bufferedBytes = 0;
+        }
+    }
+
+    private void append(Object value) throws SQLException {
+        if (value == null) {
+            appender.appendNull();
+        } else if (value instanceof String) {
+            appender.append((String) value);
+        } else if (value instanceof Integer) {
+            appender.append((Integer) value);
+        } else if (value instanceof Short) {
+            appender.append((Short) value);
+        } else if (value instanceof Byte) {
+            appender.append((Byte) value);
+        } else if (value instanceof Boolean) {
+            appender.append((Boolean) value);
+        } else if (value instanceof Double) {
+            appender.append((Double) value);
+        } else if (value instanceof Float) {
+            appender.append((Float) value);
+        } else if (value instanceof BigDecimal) {
+            appender.append((BigDecimal) value);
+        } else if (value instanceof Date) {
+            appender.append((Date) value);
+        } else if (value instanceof byte[]) {
+            appender.append((byte[]) value);
+        } else {
+            throw new SQLException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        appender.close();
+    }
+
+}
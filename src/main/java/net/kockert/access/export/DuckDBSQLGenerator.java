@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Relationship;
+import com.healthmarketscience.jackcess.Table;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates SQL for DuckDB. Rows are not inserted with SQL statements at all but loaded through the
+ * {@link DuckDBRowWriter appender}.
+ * <p>
+ * Foreign keys are not recreated: DuckDB can not add them to existing tables and checking them would slow down
+ * every append.
+ *
+ * @see <a href="https://duckdb.org/docs/sql/data_types/overview">DuckDB Data Types</a>
+ */
+public class DuckDBSQLGenerator extends GenericSQLGenerator {
+
+    @Override
+    protected String mapDatatype(Column column) {
+        switch (column.getType()) {
+            case BINARY:
+            case OLE:
+                return "BLOB";
+            case BYTE:
+                return "TINYINT";
+            case DOUBLE:
+                return "DOUBLE";
+            case TEXT:
+            case MEMO:
+            case GUID:
+                return "VARCHAR";
+            default:
+                return super.mapDatatype(column);
+        }
+    }
+
+    @Override
+    public List<String> createForeignKeys(Table table, List<? extends Column> columns, List<Relationship> relationships) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public RowWriter openRowWriter(Connection jdbcConnection, Table table, List<? extends Column> columns) throws SQLException {
+        return new DuckDBRowWriter(jdbcConnection, table);
+    }
+
+}
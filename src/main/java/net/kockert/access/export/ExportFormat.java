@@ -11,9 +11,19 @@ public enum ExportFormat {
      */
     SQLITE,
 
+    /**
+     * DuckDB
+     */
+    DUCKDB,
+
     /**
      * Comma-separated values
      */
-    CSV
+    CSV,
+
+    /**
+     * JSON Lines, one JSON object per row
+     */
+    JSONL
 
 }
@@ -0,0 +1,279 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Collects the progress of an export, so long-running exports can be watched with JMX tools like JConsole or
+ * VisualVM, or through a {@link PrometheusTextFile}.
+ * <p>
+ * The counters are updated by the exporting threads and read by any other thread. Rows per second are computed
+ * from samples of the row count taken once per second while the export runs. Tables may be exported by several
+ * threads at once, then the current table is the one started last.
+ * <p>
+ * The heap allocated and the garbage collections during the phases of each table, e.g. loading and indexing, are
+ * logged at debug level when a phase finishes. When the export stops, a summary with the totals and the phases that
+ * allocated the most is logged.
+ */
+public class ExportMetrics implements ExportMetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportMetrics.class);
+
+    public static final String OBJECT_NAME = "net.kockert.access.export:type=Export";
+
+    static final int WINDOW_SECONDS = 10;
+
+    private static final IntSupplier NO_QUEUE = () -> 0;
+
+    /**
+     * The number of phases listed in the summary of the resource usage.
+     */
+    private static final int SUMMARY_PHASES = 5;
+
+    private final Map<String, AtomicLong> rowsDone = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Long> rowsTotal = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicLong totalRowsDone = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private final Map<String, ResourceUsage> phaseUsage = Collections.synchronizedMap(new LinkedHashMap<>());
+    private ResourceUsage exportStart = ResourceUsage.NONE;
+
+    private volatile String currentTable;
+    private final ThreadLocal<AtomicLong> currentRowsDone = ThreadLocal.withInitial(AtomicLong::new);
+    private volatile IntSupplier queueDepth = NO_QUEUE;
+    private volatile long lastProgressTime;
+
+    private final long[] sampleTimes = new long[WINDOW_SECONDS + 1];
+    private final long[] sampleRows = new long[WINDOW_SECONDS + 1];
+    private int sampleCount;
+
+    private ScheduledExecutorService sampler;
+    private ObjectName registeredName;
+
+    /**
+     * Registers the metrics with the platform MBean server and starts sampling the row count. If metrics of another
+     * export are registered already, these metrics are only sampled.
+     */
+    public synchronized void start() {
+        phaseUsage.clear();
+        exportStart = ResourceUsage.snapshot();
+        sampleCount = 0;
+        sample();
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-export-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.debug("Metrics of another export are registered already");
+        } catch (JMException e) {
+            LOGGER.warn("Could not register metrics: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stops sampling and unregisters the metrics. The values stay available.
+     */
+    public synchronized void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                LOGGER.warn("Could not unregister metrics: {}", e.getMessage());
+            }
+            registeredName = null;
+        }
+        currentTable = null;
+        queueDepth = NO_QUEUE;
+        logResourceSummary();
+    }
+
+    void startTable(String tableName, long rowCount) {
+        AtomicLong tableRowsDone = new AtomicLong();
+        currentRowsDone.set(tableRowsDone);
+        rowsDone.put(tableName, tableRowsDone);
+        rowsTotal.put(tableName, rowCount);
+        currentTable = tableName;
+    }
+
+    void finishTable() {
+        currentTable = null;
+        queueDepth = NO_QUEUE;
+    }
+
+    void rowWritten(long bytes) {
+        currentRowsDone.get().incrementAndGet();
+        totalRowsDone.incrementAndGet();
+        if (bytes > 0) {
+            bytesWritten.addAndGet(bytes);
+        }
+        lastProgressTime = System.currentTimeMillis();
+    }
+
+    void bytesWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    void committed() {
+        commitCount.incrementAndGet();
+    }
+
+    /**
+     * Records the resources used by a phase of a table. A phase that runs several times for a table, like creating
+     * its indexes, is summed up.
+     *
+     * @param tableName the name of the table
+     * @param phase     the name of the phase, e.g. {@code load}
+     * @param usage     the resources used by the phase
+     */
+    void phaseFinished(String tableName, String phase, ResourceUsage usage) {
+        LOGGER.debug("Finished {} of table {}: {}", phase, tableName, usage);
+        phaseUsage.merge(phase + " of table " + tableName, usage, ResourceUsage::plus);
+    }
+
+    Map<String, ResourceUsage> getPhaseUsage() {
+        synchronized (phaseUsage) {
+            return new LinkedHashMap<>(phaseUsage);
+        }
+    }
+
+    /**
+     * Logs the heap allocated by all phases, the garbage collections during the export and the phases that allocated
+     * the most.
+     */
+    private void logResourceSummary() {
+        Map<String, ResourceUsage> phases = getPhaseUsage();
+        if (phases.isEmpty()) {
+            return;
+        }
+        long allocatedBytes = phases.values().stream().mapToLong(ResourceUsage::getAllocatedBytes).sum();
+        ResourceUsage export = ResourceUsage.since(exportStart);
+        LOGGER.info("Export took {} ms, allocated {} bytes in {} phases, {} GCs took {} ms", export.getElapsedMillis(),
+                allocatedBytes, phases.size(), export.getGcCount(), export.getGcMillis());
+        phases.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().getAllocatedBytes(), a.getValue().getAllocatedBytes()))
+                .limit(SUMMARY_PHASES)
+                .forEach(phase -> LOGGER.info("  {}: {}", phase.getKey(), phase.getValue()));
+    }
+
+    void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Estimates how many bytes a value takes in the target: the length of strings and binary values, the width of
+     * numbers.
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof Byte || value instanceof Boolean) {
+            return 1;
+        } else if (value instanceof Short) {
+            return 2;
+        } else if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).unscaledValue().bitLength() / 8 + 1;
+        }
+        return 8;
+    }
+
+    private synchronized void sample() {
+        if (sampleCount == sampleTimes.length) {
+            System.arraycopy(sampleTimes, 1, sampleTimes, 0, sampleCount - 1);
+            System.arraycopy(sampleRows, 1, sampleRows, 0, sampleCount - 1);
+            sampleCount--;
+        }
+        sampleTimes[sampleCount] = System.nanoTime();
+        sampleRows[sampleCount] = totalRowsDone.get();
+        sampleCount++;
+    }
+
+    @Override
+    public String getCurrentTable() {
+        return currentTable;
+    }
+
+    @Override
+    public Map<String, Long> getRowsDone() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        rowsDone.forEach((tableName, rows) -> result.put(tableName, rows.get()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getRowsTotal() {
+        synchronized (rowsTotal) {
+            return new LinkedHashMap<>(rowsTotal);
+        }
+    }
+
+    @Override
+    public long getTotalRowsDone() {
+        return totalRowsDone.get();
+    }
+
+    @Override
+    public synchronized double getRowsPerSecond() {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long elapsedNanos = System.nanoTime() - sampleTimes[0];
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (totalRowsDone.get() - sampleRows[0]) * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    @Override
+    public long getLastProgressTime() {
+        return lastProgressTime;
+    }
+
+}
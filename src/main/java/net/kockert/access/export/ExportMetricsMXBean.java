@@ -0,0 +1,53 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.util.Map;
+
+/**
+ * Progress of a running export, registered as {@value ExportMetrics#OBJECT_NAME} while the export runs.
+ */
+public interface ExportMetricsMXBean {
+
+    /**
+     * @return the name of the table that is currently exported or {@code null}, if no table is exported
+     */
+    String getCurrentTable();
+
+    /**
+     * @return the rows exported so far, per table
+     */
+    Map<String, Long> getRowsDone();
+
+    /**
+     * @return the rows of each table that was started so far, as stored in the Access database
+     */
+    Map<String, Long> getRowsTotal();
+
+    long getTotalRowsDone();
+
+    /**
+     * @return the rows exported per second, averaged over the last {@value ExportMetrics#WINDOW_SECONDS} seconds
+     */
+    double getRowsPerSecond();
+
+    /**
+     * @return the bytes written to CSV files, respectively the estimated size of the values written to a database
+     */
+    long getBytesWritten();
+
+    /**
+     * @return the number of decoded rows waiting to be written
+     */
+    int getQueueDepth();
+
+    long getCommitCount();
+
+    /**
+     * @return the time of the last exported row in milliseconds since the epoch, {@code 0} if no row was exported yet
+     */
+    long getLastProgressTime();
+
+}
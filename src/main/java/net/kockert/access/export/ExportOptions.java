@@ -0,0 +1,151 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Table;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Options that control which rows and columns of a table are read from the source database.
+ */
+public class ExportOptions {
+
+    /**
+     * Exports all rows of all tables.
+     */
+    public static final ExportOptions DEFAULTS = new ExportOptionsBuilder().build();
+
+    private final Map<String, RowFilter> rowFilters;
+
+    private final Map<String, List<String>> columns;
+
+    private final Sampling sampling;
+
+    private final boolean primaryKeyOrder;
+
+    private ExportOptions(ExportOptionsBuilder builder) {
+        this.rowFilters = Collections.unmodifiableMap(new HashMap<>(builder.rowFilters));
+        this.columns = Collections.unmodifiableMap(new HashMap<>(builder.columns));
+        this.sampling = builder.sampling;
+        this.primaryKeyOrder = builder.primaryKeyOrder;
+    }
+
+    /**
+     * Returns the row filter for the given table.
+     *
+     * @param tableName the name of the table
+     * @return the row filter for the table or {@link RowFilter#NONE}, if no filter was specified
+     */
+    public RowFilter getRowFilter(String tableName) {
+        return rowFilters.getOrDefault(tableName, RowFilter.NONE);
+    }
+
+    /**
+     * Returns {@code true} if only some of the columns of the given table should be exported.
+     *
+     * @param tableName the name of the table
+     * @return {@code true} if columns were specified for the table, otherwise {@code false}
+     */
+    public boolean hasColumnProjection(String tableName) {
+        return columns.containsKey(tableName);
+    }
+
+    /**
+     * Returns the columns of the given table that should be exported, in the order of the table.
+     *
+     * @param table the table
+     * @return the specified columns of the table or all columns, if no columns were specified
+     * @throws IllegalArgumentException if a specified column does not exist
+     */
+    public List<? extends Column> getColumns(Table table) {
+        List<String> columnNames = columns.get(table.getName());
+        if (columnNames == null) {
+            return table.getColumns();
+        }
+
+        Set<String> remainingColumnNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        remainingColumnNames.addAll(columnNames);
+        List<Column> projectedColumns = table.getColumns().stream()
+                .filter(column -> remainingColumnNames.remove(column.getName()))
+                .collect(Collectors.toList());
+        if (!remainingColumnNames.isEmpty()) {
+            throw new IllegalArgumentException("Table '" + table.getName() + "' has no column(s) " + remainingColumnNames);
+        }
+        return projectedColumns;
+    }
+
+    /**
+     * Returns the sampling that is applied to the matching rows of every table.
+     *
+     * @return the sampling or {@link Sampling#NONE}, if all matching rows should be exported
+     */
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    /**
+     * Returns {@code true} if tables with a primary key should be read in key order instead of the order of their
+     * data pages, so the rows are appended to the primary key of the target in order.
+     *
+     * @return {@code true} if tables are read through their primary key index
+     */
+    public boolean isPrimaryKeyOrder() {
+        return primaryKeyOrder;
+    }
+
+    public static class ExportOptionsBuilder {
+
+        private final Map<String, RowFilter> rowFilters = new HashMap<>();
+
+        private final Map<String, List<String>> columns = new HashMap<>();
+
+        private Sampling sampling = Sampling.NONE;
+
+        private boolean primaryKeyOrder;
+
+        /**
+         * Adds a row filter for the given table. Multiple filters for the same table are combined.
+         *
+         * @param tableName the name of the table
+         * @param rowFilter the row filter
+         * @return this builder
+         */
+        public ExportOptionsBuilder where(String tableName, RowFilter rowFilter) {
+            rowFilters.merge(tableName, rowFilter, RowFilter::and);
+            return this;
+        }
+
+        /**
+         * Restricts the export of the given table to the given columns.
+         *
+         * @param tableName   the name of the table
+         * @param columnNames the names of the columns to export
+         * @return this builder
+         */
+        public ExportOptionsBuilder columns(String tableName, List<String> columnNames) {
+            columns.put(tableName, new ArrayList<>(columnNames));
+            return this;
+        }
+
+        public ExportOptionsBuilder sample(Sampling sampling) {
+            this.sampling = sampling;
+            return this;
+        }
+
+        public ExportOptionsBuilder primaryKeyOrder(boolean primaryKeyOrder) {
+            this.primaryKeyOrder = primaryKeyOrder;
+            return this;
+        }
+
+        public ExportOptions build() {
+            return new ExportOptions(this);
+        }
+
+    }
+
+}
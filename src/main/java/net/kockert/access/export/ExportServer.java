@@ -0,0 +1,480 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves the Access databases of a directory over HTTP, so applications can look up rows or read whole tables
+ * without exporting the database first:
+ * <pre>
+ * GET /                                     the database files, as JSON array
+ * GET /{database}                           the tables of a database, as JSON array
+ * GET /{database}/{table}?format=csv        all rows of a table as CSV, or as JSON Lines with format=jsonl (default),
+ *                                           optionally with columns=a,b and a row filter where=a&gt;=1
+ * GET /{database}/{table}/key/{value}/...   the row with the given primary key, as JSON Lines
+ * GET /{database}/{table}/lookup?a=1&amp;b=x    the rows with the given values of the columns of an index, as JSON Lines
+ * </pre>
+ * Lookups are served from the {@link DatabaseCache open databases} through index cursors, and their rows are kept in
+ * a {@link RowCache}. Tables are streamed with a database handle of their own, so a long download does not block the
+ * lookups on the same database, and at most a configured number of tables are streamed at the same time; further
+ * requests get status 503. The responses are chunked, rows are sent while they are read.
+ * <p>
+ * The server only binds to the loopback address by default and serves files below its directory only.
+ */
+public class ExportServer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportServer.class);
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private static final String JSON_LINES = "application/x-ndjson; charset=utf-8";
+
+    private static final String CSV = "text/csv; charset=utf-8";
+
+    /**
+     * The number of threads for requests besides table streams, i.e. lookups and listings.
+     */
+    private static final int LOOKUP_THREADS = 4;
+
+    private final Path rootDir;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final DatabaseCache databases;
+
+    private final RowCache rows;
+
+    private final Semaphore streams;
+
+    private ExportServer(ExportServerBuilder builder) throws IOException {
+        this.rootDir = builder.rootDir.toAbsolutePath().normalize();
+        if (!Files.isDirectory(rootDir)) {
+            throw new IOException("'" + rootDir + "' is not a directory");
+        }
+        this.databases = new DatabaseCache(builder.maxOpenDatabases);
+        this.rows = new RowCache(builder.maxCachedRows);
+        this.streams = new Semaphore(builder.maxStreams);
+        this.executor = Executors.newFixedThreadPool(builder.maxStreams + LOOKUP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "access-export-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(builder.address, builder.port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Serving '{}' on http://{}:{}/", rootDir, server.getAddress().getHostString(), getPort());
+    }
+
+    /**
+     * Returns the port the server listens on, e.g. the one chosen by the system if the port was 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for running requests and closes the open databases.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        databases.close();
+        LOGGER.debug("Row cache: {} hits, {} misses", rows.getHits(), rows.getMisses());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                throw new HttpException(405, "Only GET is supported");
+            }
+            List<String> path = parsePath(exchange.getRequestURI().getRawPath());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (path.isEmpty()) {
+                sendJson(exchange, listDatabases());
+            } else if (path.size() == 1) {
+                sendJson(exchange, listTables(resolveDatabase(path.get(0))));
+            } else if (path.size() == 2) {
+                streamTable(exchange, resolveDatabase(path.get(0)), path.get(1), query);
+            } else if (path.size() > 3 && "key".equals(path.get(2))) {
+                sendRows(exchange, lookup(resolveDatabase(path.get(0)), path.get(1), null, path.subList(3, path.size())));
+            } else if (path.size() == 3 && "lookup".equals(path.get(2)) && !query.isEmpty()) {
+                sendRows(exchange, lookup(resolveDatabase(path.get(0)), path.get(1), query, null));
+            } else {
+                throw new HttpException(404, "Unknown resource");
+            }
+        } catch (HttpException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Error serving '{}': {}", exchange.getRequestURI(), e.getMessage());
+            sendError(exchange, 500, "Error reading the database");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private List<String> listDatabases() throws IOException {
+        try (Stream<Path> files = Files.list(rootDir)) {
+            return files.filter(ExportServer::isDatabaseFile)
+                    .map(file -> file.getFileName().toString())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<String> listTables(Path file) throws IOException {
+        return databases.withDatabase(file, (database, lastModified) -> new ArrayList<>(new TreeSet<>(database.getTableNames())));
+    }
+
+    /**
+     * Returns the rows with the given values of an index, by primary key if the key values are given, otherwise by
+     * the index whose columns are exactly the given columns.
+     */
+    private Lookup lookup(Path file, String tableName, Map<String, String> columnValues, List<String> keyValues)
+            throws IOException {
+        return databases.withDatabase(file, (database, lastModified) -> {
+            Table table = getTable(database, tableName);
+            Index index = keyValues != null ? findPrimaryKey(table) : findIndex(table, columnValues.keySet());
+            List<? extends Index.Column> indexColumns = index.getColumns();
+            if (keyValues != null && keyValues.size() != indexColumns.size()) {
+                throw new HttpException(400, "The primary key of table '" + table.getName() + "' has "
+                        + indexColumns.size() + " column(s)");
+            }
+            Object[] entry = new Object[indexColumns.size()];
+            for (int i = 0; i < entry.length; i++) {
+                Column column = indexColumns.get(i).getColumn();
+                String value = keyValues != null ? keyValues.get(i) : getIgnoreCase(columnValues, column.getName());
+                entry[i] = RowFilter.convertValue(column, value);
+            }
+
+            List<Object> key = new ArrayList<>(Arrays.asList(file, lastModified, table.getName(), index.getName()));
+            key.addAll(Arrays.asList(entry));
+            List<Row> found = rows.get(key);
+            if (found == null) {
+                found = new ArrayList<>();
+                for (Row row : CursorBuilder.createCursor(index).newEntryIterable(entry)) {
+                    found.add(row);
+                }
+                rows.put(key, found);
+            }
+            return new Lookup(table.getColumns(), found);
+        });
+    }
+
+    private Index findPrimaryKey(Table table) throws HttpException {
+        for (Index index : table.getIndexes()) {
+            if (index.isPrimaryKey()) {
+                return index;
+            }
+        }
+        throw new HttpException(404, "Table '" + table.getName() + "' has no primary key");
+    }
+
+    /**
+     * Finds the index on exactly the given columns, preferring the primary key and unique indexes.
+     */
+    private Index findIndex(Table table, Set<String> columnNames) throws HttpException {
+        Index found = null;
+        for (Index index : table.getIndexes()) {
+            Set<String> indexColumnNames = new HashSet<>();
+            for (Index.Column column : index.getColumns()) {
+                indexColumnNames.add(column.getName().toLowerCase(Locale.ROOT));
+            }
+            Set<String> lookupColumnNames = columnNames.stream()
+                    .map(name -> name.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+            if (indexColumnNames.equals(lookupColumnNames)
+                    && (found == null || index.isPrimaryKey() || (index.isUnique() && !found.isPrimaryKey()))) {
+                found = index;
+            }
+        }
+        if (found == null) {
+            throw new HttpException(404, "Table '" + table.getName() + "' has no index on the columns " + columnNames);
+        }
+        return found;
+    }
+
+    private void streamTable(HttpExchange exchange, Path file, String tableName, Map<String, String> query)
+            throws IOException {
+        String format = query.getOrDefault("format", ExportFormat.JSONL.name()).toUpperCase(Locale.ROOT);
+        if (!format.equals(ExportFormat.CSV.name()) && !format.equals(ExportFormat.JSONL.name())) {
+            throw new HttpException(400, "Tables can be read as 'csv' or 'jsonl'");
+        }
+        if (!streams.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            throw new HttpException(503, "Too many tables are read at the same time");
+        }
+        try (Database database = new DatabaseBuilder(file.toFile()).setReadOnly(true).open()) {
+            Table table = getTable(database, tableName);
+            ExportOptions options = createOptions(table, query);
+
+            exchange.getResponseHeaders().set("Content-Type", format.equals(ExportFormat.CSV.name()) ? CSV : JSON_LINES);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                if (format.equals(ExportFormat.CSV.name())) {
+                    new CSVExporter(database, options).export(table.getName(), body);
+                } else {
+                    new JSONLExporter(database, options).export(table.getName(), body);
+                }
+            }
+        } finally {
+            streams.release();
+        }
+    }
+
+    /**
+     * Creates the options of a table stream and checks them before the response is started.
+     */
+    private ExportOptions createOptions(Table table, Map<String, String> query) {
+        ExportOptions.ExportOptionsBuilder builder = new ExportOptions.ExportOptionsBuilder();
+        if (query.containsKey("columns")) {
+            builder.columns(table.getName(), Arrays.asList(query.get("columns").trim().split("\\s*,\\s*")));
+        }
+        if (query.containsKey("where")) {
+            builder.where(table.getName(), RowFilter.parse(query.get("where")));
+        }
+        ExportOptions options = builder.build();
+        options.getColumns(table);
+        options.getRowFilter(table.getName()).bind(table);
+        return options;
+    }
+
+    private Table getTable(Database database, String tableName) throws IOException {
+        Table table = database.getTable(tableName);
+        if (table == null) {
+            throw new HttpException(404, "Table '" + tableName + "' does not exist");
+        }
+        return table;
+    }
+
+    /**
+     * Resolves a database file name below the root directory, other files are not found.
+     */
+    private Path resolveDatabase(String name) throws HttpException {
+        Path file = rootDir.resolve(name).normalize();
+        if (!file.startsWith(rootDir) || !isDatabaseFile(file)) {
+            throw new HttpException(404, "Database '" + name + "' does not exist");
+        }
+        return file;
+    }
+
+    private static boolean isDatabaseFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".mdb") || name.endsWith(".accdb")) && Files.isRegularFile(file);
+    }
+
+    private void sendRows(HttpExchange exchange, Lookup lookup) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_LINES);
+        exchange.sendResponseHeaders(200, 0);
+        try (JSONEncoder encoder = new JSONEncoder(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            encoder.setColumns(lookup.columns);
+            Object[] values = new Object[lookup.columns.size()];
+            for (Row row : lookup.rows) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row.get(lookup.columns.get(i).getName());
+                }
+                encoder.writeRow(values);
+            }
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, Object value) throws IOException {
+        byte[] body = JSONEncoder.toJson(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // the response has started already, the client sees the aborted body
+            return;
+        }
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        byte[] body = JSONEncoder.toJson(error).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static List<String> parsePath(String rawPath) throws UnsupportedEncodingException {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment.replace("+", "%2B"), "UTF-8"));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String getIgnoreCase(Map<String, String> values, String name) {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static class Lookup {
+
+        private final List<? extends Column> columns;
+
+        private final List<Row> rows;
+
+        Lookup(List<? extends Column> columns, List<Row> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+    }
+
+    private static class HttpException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+    }
+
+    public static class ExportServerBuilder {
+
+        private final Path rootDir;
+
+        private InetAddress address = InetAddress.getLoopbackAddress();
+
+        private int port;
+
+        private int maxOpenDatabases = 8;
+
+        private long maxCachedRows = 10000;
+
+        private int maxStreams = 4;
+
+        /**
+         * @param rootDir the directory with the databases to serve
+         */
+        public ExportServerBuilder(Path rootDir) {
+            this.rootDir = rootDir;
+        }
+
+        /**
+         * Sets the address to listen on, by default the loopback address.
+         */
+        public ExportServerBuilder address(InetAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * Sets the port to listen on, by default 0 for a port chosen by the system.
+         */
+        public ExportServerBuilder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the number of databases kept open for lookups, by default 8.
+         */
+        public ExportServerBuilder maxOpenDatabases(int maxOpenDatabases) {
+            this.maxOpenDatabases = maxOpenDatabases;
+            return this;
+        }
+
+        /**
+         * Sets the number of rows kept in the cache of lookups, by default 10000. 0 disables the cache.
+         */
+        public ExportServerBuilder maxCachedRows(long maxCachedRows) {
+            this.maxCachedRows = maxCachedRows;
+            return this;
+        }
+
+        /**
+         * Sets the number of tables that can be read at the same time, by default 4.
+         */
+        public ExportServerBuilder maxStreams(int maxStreams) {
+            this.maxStreams = maxStreams;
+            return this;
+        }
+
+        /**
+         * Creates the server and binds it to its address, requests are served after {@link ExportServer#start()}.
+         *
+         * @return the server
+         * @throws IOException if the directory does not exist or the address can not be bound
+         */
+        public ExportServer build() throws IOException {
+            if (maxStreams < 1) {
+                throw new IllegalArgumentException("Invalid number of streams: " + maxStreams);
+            }
+            return new ExportServer(this);
+        }
+
+    }
+
+}
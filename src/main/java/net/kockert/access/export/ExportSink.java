@@ -0,0 +1,55 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Table;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A target of an export that is fed with rows from outside, so that a single scan of the source database can be
+ * written to several targets by a {@link FanOutExporter}.
+ * <p>
+ * The methods are called in order: {@link #start(List)} once, then {@link #openTable(Table, List)} for every table,
+ * whose writer is closed before the next table is opened, and finally {@link #finish()}. All calls for a sink are
+ * made by the same thread.
+ *
+ * @see Exporter#sink(java.sql.Connection)
+ * @see CSVExporter#sink(java.nio.file.Path)
+ */
+public interface ExportSink {
+
+    /**
+     * Prepares the target for the tables, e.g. creates them in a target database.
+     *
+     * @param tables the tables that will be opened, in load order
+     * @throws IOException  if there was an error writing target files
+     * @throws SQLException if there was an error writing the target database
+     */
+    void start(List<Table> tables) throws IOException, SQLException;
+
+    /**
+     * Returns a writer for the rows of a table.
+     *
+     * @param table   the table
+     * @param columns the columns of the rows that will be written
+     * @return the writer, which is closed after the last row
+     * @throws IOException  if there was an error writing target files
+     * @throws SQLException if there was an error writing the target database
+     */
+    RowWriter openTable(Table table, List<? extends Column> columns) throws IOException, SQLException;
+
+    /**
+     * Completes the target after all tables were written, e.g. adds constraints and commits.
+     *
+     * @throws IOException  if there was an error writing target files
+     * @throws SQLException if there was an error writing the target database
+     */
+    void finish() throws IOException, SQLException;
+
+}
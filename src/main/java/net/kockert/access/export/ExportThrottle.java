@@ -0,0 +1,127 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Limits the read rate, the write rate and the row rate of an export with {@link TokenBucket}s, so an export can
+ * run next to interactive users of the same disk without starving them. The row rate also caps the CPU an export
+ * takes.
+ * <p>
+ * The read rate applies to the source database if it is opened through {@link #openChannel(File)}. The limits can
+ * be changed while the export runs, through JMX or a {@link ThrottleControlFile}. All limits are unlimited by
+ * default.
+ */
+public class ExportThrottle implements ExportThrottleMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportThrottle.class);
+
+    public static final String OBJECT_NAME = "net.kockert.access.export:type=Throttle";
+
+    private final TokenBucket readBytes = new TokenBucket(TokenBucket.UNLIMITED);
+
+    private final TokenBucket writtenBytes = new TokenBucket(TokenBucket.UNLIMITED);
+
+    private final TokenBucket rows = new TokenBucket(TokenBucket.UNLIMITED);
+
+    private ObjectName registeredName;
+
+    /**
+     * Registers the throttle with the platform MBean server, so the limits can be changed with JMX tools.
+     */
+    public synchronized void start() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (InstanceAlreadyExistsException e) {
+            LOGGER.debug("Throttle of another export is registered already");
+        } catch (JMException e) {
+            LOGGER.warn("Could not register throttle: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Unregisters the throttle, the limits stay in effect.
+     */
+    public synchronized void stop() {
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                LOGGER.warn("Could not unregister throttle: {}", e.getMessage());
+            }
+            registeredName = null;
+        }
+    }
+
+    /**
+     * Opens a file for reading, with the read rate limited by this throttle. The channel can be passed to
+     * {@link com.healthmarketscience.jackcess.DatabaseBuilder#setChannel}, it must be closed by the caller.
+     *
+     * @param file the file to open
+     * @return the throttled channel
+     * @throws IOException if the file could not be opened
+     */
+    public FileChannel openChannel(File file) throws IOException {
+        return new ThrottledFileChannel(FileChannel.open(file.toPath(), StandardOpenOption.READ), readBytes);
+    }
+
+    void acquireWrite(long bytes) throws InterruptedIOException {
+        if (bytes > 0) {
+            writtenBytes.acquire(bytes);
+        }
+    }
+
+    void acquireRow() throws InterruptedIOException {
+        rows.acquire(1);
+    }
+
+    @Override
+    public long getMaxReadRate() {
+        return readBytes.getRate();
+    }
+
+    @Override
+    public void setMaxReadRate(long bytesPerSecond) {
+        LOGGER.debug("Setting maximum read rate to {} bytes/s", bytesPerSecond);
+        readBytes.setRate(bytesPerSecond);
+    }
+
+    @Override
+    public long getMaxWriteRate() {
+        return writtenBytes.getRate();
+    }
+
+    @Override
+    public void setMaxWriteRate(long bytesPerSecond) {
+        LOGGER.debug("Setting maximum write rate to {} bytes/s", bytesPerSecond);
+        writtenBytes.setRate(bytesPerSecond);
+    }
+
+    @Override
+    public long getMaxRowsPerSecond() {
+        return rows.getRate();
+    }
+
+    @Override
+    public void setMaxRowsPerSecond(long rowsPerSecond) {
+        LOGGER.debug("Setting maximum row rate to {} rows/s", rowsPerSecond);
+        rows.setRate(rowsPerSecond);
+    }
+
+}
@@ -0,0 +1,35 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+/**
+ * Limits of a running export, registered as {@value ExportThrottle#OBJECT_NAME} while the export runs. A limit of
+ * {@code 0} means unlimited, changes take effect immediately.
+ */
+public interface ExportThrottleMXBean {
+
+    /**
+     * @return the maximum number of bytes read from the source database per second
+     */
+    long getMaxReadRate();
+
+    void setMaxReadRate(long bytesPerSecond);
+
+    /**
+     * @return the maximum number of bytes written to CSV or JSON Lines files, respectively the estimated size of the
+     * values written to a database, per second
+     */
+    long getMaxWriteRate();
+
+    void setMaxWriteRate(long bytesPerSecond);
+
+    /**
+     * @return the maximum number of rows exported per second
+     */
+    long getMaxRowsPerSecond();
+
+    void setMaxRowsPerSecond(long rowsPerSecond);
+
+}
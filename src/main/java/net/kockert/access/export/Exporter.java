@@ -7,61 +7,274 @@ package net.kockert.access.export;
 import com.healthmarketscience.jackcess.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class Exporter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Exporter.class);
 
+    /**
+     * The minimum number of rows of a table whose batch size is tuned, smaller tables are loaded before the
+     * measurements would settle.
+     */
+    private static final int AUTO_TUNE_MIN_ROWS = 100000;
+
     private final Database db;
 
     private final Set<String> tablesToExport;
 
+    private final ExportOptions options;
+
     private final SQLGenerator sqlGenerator;
 
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    private ExportThrottle throttle = new ExportThrottle();
+
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
+    private int batchSize;
+
+    private boolean autoTuneBatchSize;
+
+    private boolean collectStatistics;
+
+    private final Map<String, TableStatistics> statistics = Collections.synchronizedMap(new TreeMap<>());
+
+    private final Map<String, Integer> foreignKeyViolations = new TreeMap<>();
+
     public Exporter(final Database db) {
         this(db, Collections.emptySet());
     }
 
     public Exporter(Database db, Set<String> tablesToExport) {
+        this(db, tablesToExport, ExportOptions.DEFAULTS);
+    }
+
+    public Exporter(Database db, Set<String> tablesToExport, ExportOptions options) {
+        this(db, tablesToExport, options, new SQLiteSQLGenerator());
+    }
+
+    public Exporter(Database db, Set<String> tablesToExport, ExportOptions options, SQLGenerator sqlGenerator) {
         this.db = db;
         this.tablesToExport = tablesToExport;
-        this.sqlGenerator = new SQLiteSQLGenerator();
+        this.options = options;
+        this.sqlGenerator = sqlGenerator;
     }
 
     public void export(final Connection jdbcConnection) throws SQLException, IOException {
-        boolean autoCommit = jdbcConnection.getAutoCommit();
-        jdbcConnection.setAutoCommit(false);
+        List<Table> tables = new ArrayList<>();
+        for (String tableName : TableOrder.loadOrder(db, tablesToExport)) {
+            tables.add(db.getTable(tableName));
+        }
+        JDBCSink sink = new JDBCSink(jdbcConnection);
+
+        metrics.start();
+        try {
+            sink.start(tables);
+            for (Table table : tables) {
+                populateTable(table, jdbcConnection, memoryBudget, sink.blobStore);
+            }
+            sink.finish();
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Returns a sink that writes rows read elsewhere into the target database, like {@link #export(Connection)} but
+     * without reading the source itself. The tables are created with the columns of the {@link ExportOptions} of
+     * this exporter and loaded in a single transaction, which is committed when the sink is finished.
+     *
+     * @param jdbcConnection the connection to the target database
+     * @return the sink
+     */
+    public ExportSink sink(final Connection jdbcConnection) {
+        return new JDBCSink(jdbcConnection);
+    }
+
+    /**
+     * Exports into a new SQLite file, loading several tables at the same time. SQLite allows a single writer per
+     * file, so every table is loaded on its own thread into a temporary SQLite file next to the target, with its own
+     * connection and its own read-only handle on the source database. The temporary files are merged into the target
+     * in load order with {@code ATTACH} and {@code INSERT INTO ... SELECT}, which copies the records without decoding
+     * them, while the remaining tables are still loading. The indexes are created once all tables are merged.
+     *
+     * @param targetFile the SQLite file to create
+     * @param threads    the number of tables loaded at the same time
+     * @throws SQLException if there was an error writing the temporary files or the target
+     * @throws IOException  if there was an error reading the source database
+     */
+    public void exportParallel(final Path targetFile, final int threads) throws SQLException, IOException {
+        if (!(sqlGenerator instanceof SQLiteSQLGenerator)) {
+            throw new IllegalArgumentException("Parallel exports are only supported for SQLite");
+        }
+        if (db.getFile() == null) {
+            throw new IllegalArgumentException("Parallel exports need a source database file");
+        }
+        SQLiteSQLGenerator sqliteGenerator = (SQLiteSQLGenerator) sqlGenerator;
+        BlobStore blobStore = createBlobStore();
+        Path tempDir = targetFile.toAbsolutePath().getParent();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "access-export-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Path> tempFiles = new ArrayList<>();
+        statistics.clear();
+        metrics.start();
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + targetFile)) {
+            List<String> tableNames = TableOrder.loadOrder(db, tablesToExport);
+            List<Future<?>> loads = new ArrayList<>();
+            for (String tableName : tableNames) {
+                Path tempFile = Files.createTempFile(tempDir, "access-export-", ".sqlite");
+                tempFiles.add(tempFile);
+                loads.add(executor.submit(() -> {
+                    loadTable(tableName, tempFile, memoryBudget / threads, blobStore);
+                    return null;
+                }));
+            }
+
+            boolean foreignKeysEnforced = disableForeignKeys(jdbcConnection);
+            executeAll(sqlGenerator.beforeLoad(), jdbcConnection);
+            for (String tableName : tableNames) {
+                createTable(db.getTable(tableName), tableNames, jdbcConnection);
+            }
+            for (int i = 0; i < tableNames.size(); i++) {
+                awaitLoad(loads.get(i));
+                mergeTable(db.getTable(tableNames.get(i)), tempFiles.get(i), sqliteGenerator, blobStore != null,
+                        jdbcConnection);
+                Files.delete(tempFiles.get(i));
+            }
+
+            jdbcConnection.setAutoCommit(false);
+            for (String tableName : tableNames) {
+                createIndexes(db.getTable(tableName), jdbcConnection);
+            }
+            executeAll(sqlGenerator.afterLoad(), jdbcConnection);
+            checkForeignKeys(jdbcConnection);
+            writeStatistics(jdbcConnection);
+            jdbcConnection.commit();
+            metrics.committed();
+            jdbcConnection.setAutoCommit(true);
+
+            restoreForeignKeys(foreignKeysEnforced, jdbcConnection);
+        } finally {
+            shutdown(executor);
+            for (Path tempFile : tempFiles) {
+                Files.deleteIfExists(tempFile);
+            }
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Returns the number of rows per table that violated foreign key constraints in the last export, if the
+     * dialect checks foreign keys after the load.
+     *
+     * @return the number of violating rows by table name, empty if there were no violations
+     */
+    public Map<String, Integer> getForeignKeyViolations() {
+        return Collections.unmodifiableMap(foreignKeyViolations);
+    }
 
-        createTables(jdbcConnection);
-        populateTables(jdbcConnection);
+    /**
+     * Limits the rates of the export, by default the export runs at full speed.
+     *
+     * @param throttle the limits, which may be changed while the export runs
+     */
+    public void setThrottle(ExportThrottle throttle) {
+        this.throttle = throttle;
+    }
 
-        jdbcConnection.commit();
-        jdbcConnection.setAutoCommit(autoCommit);
+    /**
+     * Limits the heap taken by rows between reading and writing, by default a quarter of the maximum heap size. Half
+     * of the budget bounds the rows queued by the reader, the other half the rows buffered for batched inserts. In a
+     * parallel export the budget is shared by the tables loaded at the same time.
+     *
+     * @param bytes the estimated size of the rows in flight
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+    }
+
+    /**
+     * Sets the number of insert statements per JDBC batch, by default the {@link SQLGenerator#getBatchSize() batch
+     * size of the dialect} is used.
+     *
+     * @param statements the number of statements per batch
+     */
+    public void setBatchSize(int statements) {
+        this.batchSize = statements;
+    }
+
+    /**
+     * Tunes the batch size of large tables while they are loaded: a few batch sizes around the configured one are
+     * probed during the first seconds, the one with the highest throughput is kept and probed again if the
+     * throughput drifts. The chosen sizes are logged, so they can be set with {@link #setBatchSize(int)} later.
+     *
+     * @param autoTune whether to tune the batch size
+     */
+    public void setAutoTuneBatchSize(boolean autoTune) {
+        this.autoTuneBatchSize = autoTune;
+    }
+
+    /**
+     * Collects statistics of every exported column while the rows are written and stores them in the
+     * {@value TableStatistics#TABLE_NAME} table of the target: the number of nulls, minimum and maximum, the average
+     * length of text and binary values, the approximate number of distinct values and the most frequent values.
+     *
+     * @param collect whether to collect the statistics
+     * @throws IllegalArgumentException if the target is not SQLite
+     * @see TableStatistics
+     */
+    public void setCollectStatistics(boolean collect) {
+        if (collect && !(sqlGenerator instanceof SQLiteSQLGenerator)) {
+            throw new IllegalArgumentException("Column statistics are only supported for SQLite targets");
+        }
+        this.collectStatistics = collect;
     }
 
-    private void createTables(final Connection jdbcConnection) throws SQLException, IOException {
-        Set<String> tableNames = filterTableNames();
+    /**
+     * Returns the progress of the export, which is also registered as an MBean while the export runs.
+     *
+     * @return the metrics of this exporter
+     */
+    public ExportMetrics getMetrics() {
+        return metrics;
+    }
 
+    private void createTables(final List<String> tableNames, final Connection jdbcConnection) throws SQLException, IOException {
         for (String tableName : tableNames) {
             Table table = db.getTable(tableName);
-            createTable(table, jdbcConnection);
+            createTable(table, tableNames, jdbcConnection);
             createIndexes(table, jdbcConnection);
         }
     }
 
     private void createIndexes(final Table table, final Connection jdbcConnection) throws SQLException {
         Collection<Index> indexes = filterDuplicateIndexes(table);
+        List<? extends Column> columns = options.getColumns(table);
 
         for (Index index : indexes) {
-            createIndex(index, jdbcConnection);
+            if (AbstractSQLGenerator.containsAllColumns(columns, index.getColumns())) {
+                createIndex(index, jdbcConnection);
+            }
         }
     }
 
@@ -86,56 +299,332 @@ public class Exporter {
     private void createIndex(final Index index, final Connection jdbcConnection) throws SQLException {
         String sql = sqlGenerator.createIndex(index);
         LOGGER.debug("Executing SQL: {}", sql);
+        ResourceUsage start = ResourceUsage.snapshot();
         try (Statement statement = jdbcConnection.createStatement()) {
             statement.execute(sql);
         }
+        metrics.phaseFinished(index.getTable().getName(), "index", ResourceUsage.since(start));
     }
 
-    private void createTable(final Table table, final Connection jdbcConnection) throws SQLException, IOException {
-        String sql = sqlGenerator.createTable(table, db.getRelationships(table));
+    private void createTable(final Table table, final List<String> tableNames, final Connection jdbcConnection) throws SQLException, IOException {
+        List<? extends Column> columns = options.getColumns(table);
+        String sql = sqlGenerator.createTable(table, columns, exportedRelationships(table, tableNames));
         LOGGER.debug("Executing SQL: {}", sql);
         try (Statement statement = jdbcConnection.createStatement()) {
             statement.execute(sql);
         }
+        executeAll(sqlGenerator.createViews(table, columns), jdbcConnection);
     }
 
-    private Set<String> filterTableNames() throws IOException {
-        if (tablesToExport.isEmpty()) {
-            return db.getTableNames();
-        } else {
-            return db.getTableNames().stream().filter(tablesToExport::contains).collect(Collectors.toSet());
+    /**
+     * Returns the relationships of the table that can be recreated as foreign keys: the referenced table and columns
+     * are exported, and the referenced columns are its primary key or a unique index. Access also keeps
+     * relationships without referential integrity on columns that are not unique, which a foreign key cannot
+     * reference.
+     */
+    private List<Relationship> exportedRelationships(final Table table, final List<String> tableNames) throws IOException {
+        List<Relationship> relationships = new ArrayList<>();
+        for (Relationship relationship : db.getRelationships(table)) {
+            Table fromTable = relationship.getFromTable();
+            if (tableNames.contains(fromTable.getName())
+                    && options.getColumns(fromTable).containsAll(relationship.getFromColumns())
+                    && isUniqueKey(fromTable, relationship.getFromColumns())) {
+                relationships.add(relationship);
+            }
         }
+        return relationships;
     }
 
-    private void populateTables(final Connection jdbcConnection) throws SQLException, IOException {
-        Set<String> tableNames = filterTableNames();
+    private static boolean isUniqueKey(final Table table, final List<Column> columns) {
+        Set<Column> keyColumns = new HashSet<>(columns);
+        for (Index index : table.getIndexes()) {
+            if (index.isUnique() && index.getColumns().size() == keyColumns.size()
+                    && index.getColumns().stream().allMatch(column -> keyColumns.contains(column.getColumn()))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Adds the foreign key constraints for dialects that do not create them together with the tables. Only
+     * relationships between exported tables and columns are recreated. A constraint the target database rejects is
+     * logged and skipped, since the data has already been loaded at this point.
+     */
+    private void createForeignKeys(final List<String> tableNames, final Connection jdbcConnection) throws SQLException, IOException {
         for (String tableName : tableNames) {
             Table table = db.getTable(tableName);
-            populateTable(table, jdbcConnection);
+            List<Relationship> relationships = exportedRelationships(table, tableNames);
+
+            for (String sql : sqlGenerator.createForeignKeys(table, options.getColumns(table), relationships)) {
+                LOGGER.debug("Executing SQL: {}", sql);
+                try (Statement statement = jdbcConnection.createStatement()) {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    LOGGER.warn("Could not create foreign key on table '{}': {}", tableName, e.getMessage());
+                }
+            }
         }
+    }
 
+    /**
+     * Disables the enforcement of foreign keys during the load, if the dialect checks them after the load and the
+     * connection enforces them.
+     *
+     * @return {@code true} if foreign keys were enforced and must be enforced again after the commit
+     */
+    private boolean disableForeignKeys(final Connection jdbcConnection) throws SQLException {
+        String sql = sqlGenerator.queryForeignKeyEnforcement();
+        if (sql == null) {
+            return false;
+        }
+        boolean enforced;
+        try (Statement statement = jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            enforced = resultSet.next() && resultSet.getBoolean(1);
+        }
+        if (enforced) {
+            executeAll(Collections.singletonList(sqlGenerator.enforceForeignKeys(false)), jdbcConnection);
+        }
+        return enforced;
     }
 
-    private void populateTable(final Table table, final Connection jdbcConnection) throws SQLException {
-        String sql = sqlGenerator.insertIntoTable(table);
-        LOGGER.debug("Prepared SQL: {}", sql);
+    private void restoreForeignKeys(final boolean enforced, final Connection jdbcConnection) throws SQLException {
+        if (enforced) {
+            executeAll(Collections.singletonList(sqlGenerator.enforceForeignKeys(true)), jdbcConnection);
+        }
+    }
 
-        try (PreparedStatement preparedStatement = jdbcConnection.prepareStatement(sql)) {
-            List<? extends Column> columns = table.getColumns();
-            for (Row row : table) {
-                bindColumnValues(row, columns, preparedStatement);
-                preparedStatement.executeUpdate();
-                preparedStatement.clearParameters();
+    /**
+     * Checks all foreign keys at once after the load and logs the violations by table.
+     */
+    private void checkForeignKeys(final Connection jdbcConnection) throws SQLException {
+        foreignKeyViolations.clear();
+        String sql = sqlGenerator.checkForeignKeys();
+        if (sql == null) {
+            return;
+        }
+
+        LOGGER.debug("Executing SQL: {}", sql);
+        Map<String, Map<String, Integer>> violations = new TreeMap<>();
+        try (Statement statement = jdbcConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                violations.computeIfAbsent(resultSet.getString(1), tableName -> new TreeMap<>())
+                        .merge(resultSet.getString(3), 1, Integer::sum);
+            }
+        }
+
+        violations.forEach((tableName, referencedTables) -> referencedTables.forEach((referencedTable, rows) -> {
+            LOGGER.warn("Table '{}' has {} row(s) referencing missing rows of table '{}'", tableName, rows, referencedTable);
+            foreignKeyViolations.merge(tableName, rows, Integer::sum);
+        }));
+    }
+
+    private void executeAll(final List<String> statements, final Connection jdbcConnection) throws SQLException {
+        for (String sql : statements) {
+            LOGGER.debug("Executing SQL: {}", sql);
+            try (Statement statement = jdbcConnection.createStatement()) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private void populateTable(final Table table, final Connection jdbcConnection, final long tableMemoryBudget,
+                               final BlobStore blobStore) throws SQLException, IOException {
+        List<? extends Column> columns = options.getColumns(table);
+
+        metrics.startTable(table.getName(), table.getRowCount());
+        ResourceUsage start = ResourceUsage.snapshot();
+        MemoryBudget pipelineBudget = new MemoryBudget(tableMemoryBudget / 2);
+        RowPipeline pipeline = new RowPipeline(columns, RowPipeline.DEFAULT_CAPACITY, pipelineBudget);
+        try (RowWriter rowWriter = openRowWriter(table, jdbcConnection, columns, tableMemoryBudget / 2, blobStore)) {
+            Iterator<Row> rows = new TableScan(table, options).rows();
+            pipeline.run(rows, rowWriter, metrics, throttle);
+        } finally {
+            metrics.finishTable();
+        }
+        metrics.phaseFinished(table.getName(), "load",
+                ResourceUsage.since(start).plusAllocatedBytes(pipeline.getReaderAllocatedBytes()));
+    }
+
+    /**
+     * Returns a new store for the binary values of an export, {@code null} if the values are not deduplicated.
+     */
+    private BlobStore createBlobStore() {
+        if (sqlGenerator instanceof SQLiteSQLGenerator && ((SQLiteSQLGenerator) sqlGenerator).isDeduplicatingBlobs()) {
+            return new BlobStore();
+        }
+        return null;
+    }
+
+    /**
+     * Opens the writer for the rows of a table, which stores binary values in the given store if it is not
+     * {@code null}.
+     */
+    private RowWriter openRowWriter(final Table table, final Connection jdbcConnection,
+                                    final List<? extends Column> columns, final long maxBufferedBytes,
+                                    final BlobStore blobStore) throws SQLException {
+        RowWriter rowWriter = sqlGenerator.openRowWriter(jdbcConnection, table, columns);
+        if (blobStore != null) {
+            rowWriter = new DeduplicatingRowWriter(rowWriter, blobStore, jdbcConnection, columns);
+        }
+        rowWriter.setMaxBufferedBytes(maxBufferedBytes);
+        if (batchSize > 0) {
+            rowWriter.setBatchSize(batchSize);
+        }
+        rowWriter.setAutoTuneBatchSize(autoTuneBatchSize && table.getRowCount() >= AUTO_TUNE_MIN_ROWS);
+        if (collectStatistics) {
+            TableStatistics tableStatistics = new TableStatistics(table.getName(), columns);
+            statistics.put(table.getName(), tableStatistics);
+            return new StatisticsRowWriter(rowWriter, tableStatistics);
+        }
+        return rowWriter;
+    }
+
+    private void writeStatistics(final Connection jdbcConnection) throws SQLException, IOException {
+        if (!collectStatistics) {
+            return;
+        }
+        executeAll(Collections.singletonList(TableStatistics.createTable()), jdbcConnection);
+        try (PreparedStatement insert = jdbcConnection.prepareStatement(TableStatistics.insertColumn())) {
+            synchronized (statistics) {
+                for (TableStatistics tableStatistics : statistics.values()) {
+                    tableStatistics.addBatch(insert);
+                }
             }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Loads a table into a temporary SQLite file. The file is discarded if the export fails, so it is written
+     * without rollback journal and without syncs.
+     */
+    private void loadTable(final String tableName, final Path tempFile, final long tableMemoryBudget,
+                           final BlobStore blobStore) throws SQLException, IOException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.OFF);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.OFF);
+        try (FileChannel channel = throttle.openChannel(db.getFile());
+             Database sourceDb = new DatabaseBuilder(db.getFile()).setReadOnly(true).setChannel(channel).open();
+             Connection tempConnection = DriverManager.getConnection("jdbc:sqlite:" + tempFile, config.toProperties())) {
+            Table table = sourceDb.getTable(tableName);
+            String sql = sqlGenerator.createTable(table, options.getColumns(table), Collections.emptyList());
+            LOGGER.debug("Executing SQL: {}", sql);
+            try (Statement statement = tempConnection.createStatement()) {
+                statement.execute(sql);
+                if (blobStore != null) {
+                    statement.execute(BlobStore.createTable());
+                }
+            }
+
+            tempConnection.setAutoCommit(false);
+            populateTable(table, tempConnection, tableMemoryBudget, blobStore);
+            tempConnection.commit();
         }
     }
 
-    private void bindColumnValues(final Row row, List<? extends Column> columns, final PreparedStatement preparedStatement) throws SQLException {
-        for (int i = 0; i < columns.size(); i++) {
-            Column column = columns.get(i);
-            preparedStatement.setObject(i + 1, row.get(column.getName()));
+    private void mergeTable(final Table table, final Path tempFile, final SQLiteSQLGenerator sqliteGenerator,
+                            final boolean mergeBlobs, final Connection jdbcConnection) throws SQLException {
+        String schemaName = "part";
+        LOGGER.debug("Merging table '{}' from '{}'", table.getName(), tempFile);
+        try (PreparedStatement statement = jdbcConnection.prepareStatement(sqliteGenerator.attachDatabase(schemaName))) {
+            statement.setString(1, tempFile.toString());
+            statement.execute();
         }
+        try {
+            executeAll(Collections.singletonList(sqliteGenerator.copyFromDatabase(table, schemaName)), jdbcConnection);
+            if (mergeBlobs) {
+                executeAll(Collections.singletonList(sqliteGenerator.copyBlobsFromDatabase(schemaName)), jdbcConnection);
+            }
+        } finally {
+            executeAll(Collections.singletonList(sqliteGenerator.detachDatabase(schemaName)), jdbcConnection);
+        }
+    }
+
+    private void awaitLoad(final Future<?> load) throws SQLException, IOException {
+        try {
+            load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading tables");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error while loading table: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Stops the loads that are still running and waits for them, so their temporary files can be deleted.
+     */
+    private void shutdown(final ExecutorService executor) throws InterruptedIOException {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the loads");
+        }
+    }
+
+    private class JDBCSink implements ExportSink {
+
+        private final Connection jdbcConnection;
+
+        private final List<String> tableNames = new ArrayList<>();
+
+        /**
+         * The binary values written into the target connection, if they are deduplicated.
+         */
+        private BlobStore blobStore;
+
+        private boolean autoCommit;
+
+        private boolean foreignKeysEnforced;
+
+        JDBCSink(Connection jdbcConnection) {
+            this.jdbcConnection = jdbcConnection;
+        }
+
+        @Override
+        public void start(List<Table> tables) throws SQLException, IOException {
+            foreignKeysEnforced = disableForeignKeys(jdbcConnection);
+            executeAll(sqlGenerator.beforeLoad(), jdbcConnection);
+            autoCommit = jdbcConnection.getAutoCommit();
+            jdbcConnection.setAutoCommit(false);
+
+            for (Table table : tables) {
+                tableNames.add(table.getName());
+            }
+            statistics.clear();
+            blobStore = createBlobStore();
+            createTables(tableNames, jdbcConnection);
+        }
+
+        @Override
+        public RowWriter openTable(Table table, List<? extends Column> columns) throws SQLException {
+            return openRowWriter(table, jdbcConnection, columns, memoryBudget / 2, blobStore);
+        }
+
+        @Override
+        public void finish() throws SQLException, IOException {
+            createForeignKeys(tableNames, jdbcConnection);
+            executeAll(sqlGenerator.afterLoad(), jdbcConnection);
+            checkForeignKeys(jdbcConnection);
+            writeStatistics(jdbcConnection);
+
+            jdbcConnection.commit();
+            metrics.committed();
+            jdbcConnection.setAutoCommit(autoCommit);
+
+            restoreForeignKeys(foreignKeysEnforced, jdbcConnection);
+        }
+
     }
 
 }
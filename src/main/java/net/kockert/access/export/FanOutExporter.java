@@ -0,0 +1,367 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RuntimeIOException;
+import com.healthmarketscience.jackcess.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports an Access database to several targets at once, e.g. a SQLite file and CSV files. Every table is scanned
+ * once and its rows are broadcast to all {@link ExportSink sinks}, so decoding the source, usually the most
+ * expensive part of an export, is not repeated per target.
+ * <p>
+ * Every sink is written by its own thread from a bounded queue of row batches. The batches are shared between the
+ * sinks, each row is decoded into its own array. If a sink is slower than the scan, its queue fills up and the scan
+ * waits for it, so the slowest sink sets the pace. Besides the number of batches, the estimated size of the batches
+ * that are not written by all sinks yet is bounded by a {@link MemoryBudget}, and a batch is cut early once its rows
+ * take a {@value #QUEUE_CAPACITY}th of the budget, so wide MEMO or OLE rows do not pile up in the queues.
+ * <p>
+ * The sinks should be created with the same {@link ExportOptions} as this exporter, since the rows only contain the
+ * columns the options select.
+ */
+public class FanOutExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FanOutExporter.class);
+
+    /**
+     * The number of rows per batch, large enough that handing a batch over costs little per row.
+     */
+    static final int BATCH_SIZE = 256;
+
+    /**
+     * The number of batches a sink may lag behind the scan.
+     */
+    static final int QUEUE_CAPACITY = 4;
+
+    /**
+     * Marks the end of the rows of a table in the queue of a sink.
+     */
+    private static final Batch END = new Batch(new Object[0][], 0, null, 0);
+
+    private final Database db;
+
+    private final Set<String> tablesToExport;
+
+    private final ExportOptions options;
+
+    private final List<ExportSink> sinks;
+
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    private ExportThrottle throttle = new ExportThrottle();
+
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
+    public FanOutExporter(Database db, Set<String> tablesToExport, ExportOptions options, List<ExportSink> sinks) {
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("At least one sink is required");
+        }
+        this.db = db;
+        this.tablesToExport = tablesToExport;
+        this.options = options;
+        this.sinks = new ArrayList<>(sinks);
+    }
+
+    /**
+     * Exports the tables to all sinks. If a sink fails, the export stops and the sinks are not finished.
+     *
+     * @throws IOException  if there was an error reading the source database or writing to a sink
+     * @throws SQLException if there was an error writing to a sink
+     */
+    public void export() throws IOException, SQLException {
+        List<Table> tables = new ArrayList<>();
+        for (String tableName : TableOrder.loadOrder(db, tablesToExport)) {
+            tables.add(db.getTable(tableName));
+        }
+
+        List<SinkWorker> workers = new ArrayList<>();
+        metrics.start();
+        try {
+            for (ExportSink sink : sinks) {
+                SinkWorker worker = new SinkWorker(sink, workers.size());
+                workers.add(worker);
+                worker.submit(() -> sink.start(tables));
+            }
+            awaitAll(workers);
+
+            MemoryBudget budget = new MemoryBudget(memoryBudget / 2);
+            for (Table table : tables) {
+                LOGGER.debug("Exporting table '{}' to {} sinks", table.getName(), workers.size());
+                exportTable(table, workers, budget);
+            }
+
+            for (SinkWorker worker : workers) {
+                worker.submit(worker.sink::finish);
+            }
+            awaitAll(workers);
+            metrics.committed();
+        } finally {
+            for (SinkWorker worker : workers) {
+                worker.shutdown();
+            }
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Limits the rates of the export, by default the export runs at full speed.
+     *
+     * @param throttle the limits, which may be changed while the export runs
+     */
+    public void setThrottle(ExportThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Limits the heap taken by rows between reading and writing, by default a quarter of the maximum heap size. Half
+     * of the budget bounds the batches queued for the sinks, the other half is left to the rows the sinks buffer
+     * themselves, see {@link Exporter#setMemoryBudget(long)}.
+     *
+     * @param bytes the estimated size of the rows in flight
+     */
+    public void setMemoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+    }
+
+    /**
+     * Returns the progress of the export, which is also registered as an MBean while the export runs. Rows are
+     * counted when they were handed to all sinks.
+     *
+     * @return the metrics of this exporter
+     */
+    public ExportMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void exportTable(Table table, List<SinkWorker> workers, MemoryBudget budget) throws IOException, SQLException {
+        List<? extends Column> columns = options.getColumns(table);
+        metrics.startTable(table.getName(), table.getRowCount());
+        ResourceUsage start = ResourceUsage.snapshot();
+        try {
+            for (SinkWorker worker : workers) {
+                worker.openTable(table, columns);
+            }
+
+            long maxBatchBytes = budget.getLimit() / QUEUE_CAPACITY;
+            Object[][] batch = new Object[BATCH_SIZE][];
+            int size = 0;
+            long batchBytes = 0;
+            Iterator<Row> rows = new TableScan(table, options).rows();
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                Object[] values = new Object[columns.size()];
+                long bytes = 0;
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row.get(columns.get(i).getName());
+                    bytes += ExportMetrics.estimateSize(values[i]);
+                }
+                batch[size++] = values;
+                batchBytes += MemoryBudget.estimateRowSize(values, columns);
+                if (size == BATCH_SIZE || batchBytes >= maxBatchBytes) {
+                    broadcast(Arrays.copyOf(batch, size), batchBytes, workers, budget);
+                    size = 0;
+                    batchBytes = 0;
+                }
+                metrics.rowWritten(bytes);
+                throttle.acquireWrite(bytes);
+                throttle.acquireRow();
+            }
+            if (size > 0) {
+                broadcast(Arrays.copyOf(batch, size), batchBytes, workers, budget);
+            }
+            for (SinkWorker worker : workers) {
+                worker.put(END);
+            }
+            awaitAll(workers);
+        } catch (RuntimeIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } finally {
+            metrics.finishTable();
+        }
+        metrics.phaseFinished(table.getName(), "load", ResourceUsage.since(start));
+    }
+
+    /**
+     * Hands a batch to all sinks once the budget has room for it. The budget is released when the last sink wrote
+     * the batch.
+     */
+    private void broadcast(Object[][] rows, long bytes, List<SinkWorker> workers, MemoryBudget budget)
+            throws IOException, SQLException {
+        try {
+            while (!budget.tryAcquire(bytes, 100)) {
+                for (SinkWorker worker : workers) {
+                    worker.checkRunning();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for memory");
+        }
+        Batch batch = new Batch(rows, bytes, budget, workers.size());
+        for (SinkWorker worker : workers) {
+            worker.put(batch);
+        }
+    }
+
+    private void awaitAll(List<SinkWorker> workers) throws IOException, SQLException {
+        for (SinkWorker worker : workers) {
+            worker.await();
+        }
+    }
+
+    private interface SinkTask {
+
+        void run() throws IOException, SQLException;
+
+    }
+
+    /**
+     * Rows handed to all sinks, which keeps its size reserved in the budget until every sink wrote it.
+     */
+    private static class Batch {
+
+        private final Object[][] rows;
+
+        private final long bytes;
+
+        private final MemoryBudget budget;
+
+        private final AtomicInteger pendingSinks;
+
+        Batch(Object[][] rows, long bytes, MemoryBudget budget, int sinks) {
+            this.rows = rows;
+            this.bytes = bytes;
+            this.budget = budget;
+            this.pendingSinks = new AtomicInteger(sinks);
+        }
+
+        void written() {
+            if (pendingSinks.decrementAndGet() == 0) {
+                budget.release(bytes);
+            }
+        }
+
+    }
+
+    /**
+     * Runs all calls of a sink on one thread and feeds it the batches of the current table.
+     */
+    private static class SinkWorker {
+
+        private final ExportSink sink;
+
+        private final ExecutorService executor;
+
+        private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private Future<?> task;
+
+        SinkWorker(ExportSink sink, int number) {
+            this.sink = sink;
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "access-export-sink-" + number);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void submit(SinkTask sinkTask) {
+            task = executor.submit(() -> {
+                sinkTask.run();
+                return null;
+            });
+        }
+
+        void openTable(Table table, List<? extends Column> columns) {
+            submit(() -> {
+                try (RowWriter rowWriter = sink.openTable(table, columns)) {
+                    Batch batch;
+                    while ((batch = batches.take()) != END) {
+                        for (Object[] values : batch.rows) {
+                            rowWriter.write(values);
+                        }
+                        batch.written();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for rows");
+                }
+            });
+        }
+
+        /**
+         * Waits until the queue of the sink has room for the batch, fails if the sink failed in the meantime.
+         */
+        void put(Batch batch) throws IOException, SQLException {
+            try {
+                while (!batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    checkRunning();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a sink");
+            }
+        }
+
+        /**
+         * Fails if the sink stopped, e.g. because it failed, while the scan waits for it.
+         */
+        void checkRunning() throws IOException, SQLException {
+            if (task.isDone()) {
+                await();
+                throw new IOException("Sink stopped before the end of the table");
+            }
+        }
+
+        void await() throws IOException, SQLException {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a sink");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                } else if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeIOException && e.getCause().getCause() instanceof IOException) {
+                    throw (IOException) e.getCause().getCause();
+                }
+                throw new IOException("Error while writing to sink: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        /**
+         * Stops a sink that is still waiting for rows after another sink or the scan failed, and waits for it so that
+         * its target can be closed.
+         */
+        void shutdown() throws InterruptedIOException {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while stopping a sink");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Generates standard SQL for any JDBC target without a dedicated dialect. Identifiers are quoted with double quotes,
+ * foreign keys are added after the data was loaded and rows are inserted with batches of single-row statements.
+ */
+public class GenericSQLGenerator extends AbstractSQLGenerator {
+
+    @Override
+    protected boolean inlineForeignKeys() {
+        return false;
+    }
+
+    /**
+     * Maps the type of the given column to a standard SQL datatype.
+     *
+     * @param column the column
+     * @return a standard SQL datatype
+     */
+    @Override
+    protected String mapDatatype(Column column) {
+        switch (column.getType()) {
+            case BINARY:
+                return "VARBINARY(" + column.getLength() + ")";
+            case OLE:
+                return "BLOB";
+
+            case BOOLEAN:
+                return "BOOLEAN";
+            case BYTE:
+            case INT:
+                return "SMALLINT";
+            case LONG:
+                return "INTEGER";
+
+            case MONEY:
+                return "DECIMAL(19, 4)";
+            case NUMERIC:
+                return "DECIMAL(" + column.getPrecision() + ", " + column.getScale() + ")";
+            case FLOAT:
+                return "REAL";
+            case DOUBLE:
+                return "DOUBLE PRECISION";
+
+            case SHORT_DATE_TIME:
+                return "TIMESTAMP";
+
+            case TEXT:
+                return "VARCHAR(" + column.getLengthInUnits() + ")";
+            case MEMO:
+                return "CLOB";
+            /* Jackcess returns GUIDs in the form {xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx} */
+            case GUID:
+                return "CHAR(38)";
+
+            default:
+                throw new IllegalArgumentException("Unsupported data type: " + column.getType());
+        }
+    }
+
+    /**
+     * Quotes the identifier as a delimited identifier, e.g. {@code "Order Details"}.
+     */
+    @Override
+    protected String quoteIdentifier(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public Object toParameter(Column column, Object value) {
+        if (value instanceof Date && !(value instanceof Timestamp)) {
+            return new Timestamp(((Date) value).getTime());
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,32 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+
+/**
+ * Generates SQL for H2. Large JDBC batches of single-row statements are the fastest way to load an embedded H2
+ * database, because H2 executes a batch without any network round trips.
+ *
+ * @see <a href="http://www.h2database.com/html/performance.html">H2 Performance</a>
+ */
+public class H2SQLGenerator extends GenericSQLGenerator {
+
+    @Override
+    protected String mapDatatype(Column column) {
+        switch (column.getType()) {
+            case BYTE:
+                return "TINYINT";
+            default:
+                return super.mapDatatype(column);
+        }
+    }
+
+    @Override
+    public int getBatchSize() {
+        return 5000;
+    }
+
+}
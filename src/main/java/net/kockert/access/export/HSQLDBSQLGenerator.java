@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+
+/**
+ * Generates SQL for HyperSQL. MEMO and OLE values are stored in {@code LONGVARCHAR} and {@code LONGVARBINARY} columns
+ * instead of LOBs, which HyperSQL keeps in a separate store and writes much slower. Rows are inserted with
+ * multi-row {@code VALUES} clauses.
+ *
+ * @see <a href="http://hsqldb.org/doc/2.0/guide/sqlgeneral-chapt.html">HyperSQL Data Types</a>
+ */
+public class HSQLDBSQLGenerator extends GenericSQLGenerator {
+
+    @Override
+    protected String mapDatatype(Column column) {
+        switch (column.getType()) {
+            case BYTE:
+                return "TINYINT";
+            case MEMO:
+                return "LONGVARCHAR";
+            case OLE:
+                return "LONGVARBINARY";
+            default:
+                return super.mapDatatype(column);
+        }
+    }
+
+    @Override
+    public int getMaxRowsPerInsert() {
+        return 50;
+    }
+
+}
@@ -0,0 +1,139 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.util.*;
+
+/**
+ * Finds the most frequent values of a column with a fixed number of counters (Space-Saving). A value that is not
+ * counted yet replaces the value with the lowest count and inherits that count, so the counts are upper bounds: a
+ * count exceeds the true frequency by at most the count of the replaced value. Every value that occurs in more than
+ * 1 / capacity of the rows is guaranteed to be counted.
+ * <p>
+ * The counters are kept in buckets of equal count, ordered by count (Stream-Summary), so a value is counted and the
+ * value with the lowest count is found in constant time, even if nearly every row holds a new value.
+ *
+ * @see <a href="https://www.cs.ucsb.edu/sites/default/files/documents/2005-23.pdf">Efficient Computation of Frequent
+ * and Top-k Elements in Data Streams</a>
+ */
+class HeavyHitters {
+
+    private final int capacity;
+
+    private final Map<Object, Counter> counters;
+
+    /**
+     * The bucket with the lowest count, the head of the buckets in ascending order of their counts.
+     */
+    private Bucket minimum;
+
+    /**
+     * @param capacity the number of values that are counted
+     */
+    HeavyHitters(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    void add(Object value) {
+        Counter counter = counters.get(value);
+        if (counter != null) {
+            increment(counter);
+        } else if (counters.size() < capacity) {
+            counter = new Counter(value);
+            if (minimum == null || minimum.count != 1) {
+                Bucket bucket = new Bucket(1);
+                bucket.next = minimum;
+                if (minimum != null) {
+                    minimum.previous = bucket;
+                }
+                minimum = bucket;
+            }
+            counter.bucket = minimum;
+            minimum.counters.add(counter);
+            counters.put(value, counter);
+        } else {
+            counter = minimum.counters.iterator().next();
+            counters.remove(counter.value);
+            counter.value = value;
+            counters.put(value, counter);
+            increment(counter);
+        }
+    }
+
+    /**
+     * Moves the counter to the bucket with the next higher count.
+     */
+    private void increment(Counter counter) {
+        Bucket bucket = counter.bucket;
+        Bucket next = bucket.next;
+        if (next == null || next.count != bucket.count + 1) {
+            next = new Bucket(bucket.count + 1);
+            next.previous = bucket;
+            next.next = bucket.next;
+            if (bucket.next != null) {
+                bucket.next.previous = next;
+            }
+            bucket.next = next;
+        }
+        bucket.counters.remove(counter);
+        next.counters.add(counter);
+        counter.bucket = next;
+
+        if (bucket.counters.isEmpty()) {
+            if (bucket.previous != null) {
+                bucket.previous.next = bucket.next;
+            } else {
+                minimum = bucket.next;
+            }
+            bucket.next.previous = bucket.previous;
+        }
+    }
+
+    /**
+     * Returns the most frequent values with their counts, most frequent first.
+     *
+     * @param k the maximum number of values
+     * @return the counts by value
+     */
+    Map<Object, Long> top(int k) {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort((a, b) -> Long.compare(b.bucket.count, a.bucket.count));
+        Map<Object, Long> top = new LinkedHashMap<>();
+        for (Counter counter : sorted.subList(0, Math.min(k, sorted.size()))) {
+            top.put(counter.value, counter.bucket.count);
+        }
+        return top;
+    }
+
+    private static class Counter {
+
+        private Object value;
+
+        private Bucket bucket;
+
+        Counter(Object value) {
+            this.value = value;
+        }
+
+    }
+
+    private static class Bucket {
+
+        private final long count;
+
+        private final Set<Counter> counters = new HashSet<>();
+
+        private Bucket previous;
+
+        private Bucket next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+
+    }
+
+}
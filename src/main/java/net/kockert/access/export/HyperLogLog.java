@@ -0,0 +1,139 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Estimates the number of distinct values of a column in {@value #REGISTERS} bytes, no matter how many rows there
+ * are. The standard error of the estimate is about 1.04 / sqrt({@value #REGISTERS}), i.e. 2.3%. Up to
+ * {@value #EXACT_LIMIT} distinct values are counted exactly by their hashes, which takes another 4 KB; above that,
+ * small counts are estimated by linear counting.
+ *
+ * @see <a href="http://algo.inria.fr/flajolet/Publications/FlFuGaMe07.pdf">HyperLogLog: the analysis of a
+ * near-optimal cardinality estimation algorithm</a>
+ */
+class HyperLogLog {
+
+    private static final int INDEX_BITS = 11;
+
+    static final int REGISTERS = 1 << INDEX_BITS;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    static final int EXACT_LIMIT = 256;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    /**
+     * The distinct hashes while there are few, an open addressing table with 0 for free slots. Dropped once it holds
+     * {@value #EXACT_LIMIT} hashes.
+     */
+    private long[] exactHashes = new long[2 * EXACT_LIMIT];
+
+    private int exactCount;
+
+    void add(Object value) {
+        long hash = hash(value);
+        if (exactHashes != null) {
+            addExact(hash == 0 ? 1 : hash);
+        }
+        int index = (int) (hash >>> (64 - INDEX_BITS));
+        // the position of the first 1 bit in the remaining bits, the guard bit caps it
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << INDEX_BITS) | (1L << (INDEX_BITS - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    private void addExact(long hash) {
+        int slot = (int) (hash & (exactHashes.length - 1));
+        while (exactHashes[slot] != 0) {
+            if (exactHashes[slot] == hash) {
+                return;
+            }
+            slot = (slot + 1) & (exactHashes.length - 1);
+        }
+        if (exactCount == EXACT_LIMIT) {
+            exactHashes = null;
+            return;
+        }
+        exactHashes[slot] = hash;
+        exactCount++;
+    }
+
+    long estimate() {
+        if (exactHashes != null) {
+            return exactCount;
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Returns a well-mixed 64 bit hash of a value. Equal values hash equally regardless of how Jackcess decoded them,
+     * e.g. decimals with different scales.
+     */
+    static long hash(Object value) {
+        long hash;
+        if (value instanceof String) {
+            hash = fnv((String) value);
+        } else if (value instanceof byte[]) {
+            hash = fnv((byte[]) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            hash = Double.doubleToLongBits(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            hash = fnv(((BigDecimal) value).stripTrailingZeros().toPlainString());
+        } else if (value instanceof Number) {
+            hash = ((Number) value).longValue();
+        } else if (value instanceof Date) {
+            hash = ((Date) value).getTime();
+        } else {
+            hash = value.hashCode();
+        }
+        return mix(hash);
+    }
+
+    private static long fnv(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fnv(byte[] value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, spreads every input bit over all output bits.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
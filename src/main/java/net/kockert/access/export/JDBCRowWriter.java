@@ -0,0 +1,171 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Inserts rows with prepared statements using the bulk path of the dialect: rows are bound to multi-row statements
+ * if the dialect supports them, and the statements are sent to the database in JDBC batches.
+ * <p>
+ * The rows of a multi-row statement are copied into buffers that are allocated once per table. If the buffered rows
+ * and batched statements exceed the maximum buffered size, they are sent to the database early, so wide rows do not
+ * pile up in full batches.
+ * <p>
+ * The number of statements per batch is taken from the dialect, unless it is set explicitly or chosen by a
+ * {@link BatchSizeTuner} while the table is loaded.
+ */
+public class JDBCRowWriter implements RowWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JDBCRowWriter.class);
+
+    private final SQLGenerator sqlGenerator;
+    private final Connection jdbcConnection;
+    private final Table table;
+    private final List<? extends Column> columns;
+    private final Object[][] pendingRows;
+
+    private int batchSize;
+    private BatchSizeTuner batchSizeTuner;
+    private int pendingRowCount;
+    private PreparedStatement preparedStatement;
+    private int batchedStatements;
+    private long maxBufferedBytes = Long.MAX_VALUE;
+    private long bufferedBytes;
+
+    public JDBCRowWriter(SQLGenerator sqlGenerator, Connection jdbcConnection, Table table, List<? extends Column> columns) {
+        this.sqlGenerator = sqlGenerator;
+        this.jdbcConnection = jdbcConnection;
+        this.table = table;
+        this.columns = columns;
+        this.batchSize = sqlGenerator.getBatchSize();
+
+        int rowsPerInsert = Math.max(1, Math.min(sqlGenerator.getMaxRowsPerInsert(),
+                sqlGenerator.getMaxParameters() / Math.max(1, columns.size())));
+        this.pendingRows = new Object[rowsPerInsert][columns.size()];
+    }
+
+    @Override
+    public void setMaxBufferedBytes(long bytes) {
+        this.maxBufferedBytes = bytes;
+    }
+
+    @Override
+    public void setBatchSize(int statements) {
+        this.batchSize = statements;
+    }
+
+    @Override
+    public void setAutoTuneBatchSize(boolean autoTune) {
+        this.batchSizeTuner = autoTune ? new BatchSizeTuner(table.getName(), batchSize) : null;
+        if (batchSizeTuner != null) {
+            this.batchSize = batchSizeTuner.getBatchSize();
+        }
+    }
+
+    @Override
+    public void write(Object[] values) throws SQLException {
+        if (maxBufferedBytes < Long.MAX_VALUE) {
+            bufferedBytes += MemoryBudget.estimateRowSize(values, columns);
+        }
+        System.arraycopy(values, 0, pendingRows[pendingRowCount], 0, columns.size());
+        if (++pendingRowCount == pendingRows.length) {
+            if (preparedStatement == null) {
+                String sql = sqlGenerator.insertIntoTable(table, columns, pendingRows.length);
+                LOGGER.debug("Prepared SQL: {}", sql);
+                preparedStatement = jdbcConnection.prepareStatement(sql);
+            }
+            bindRows(preparedStatement);
+            preparedStatement.addBatch();
+            if (++batchedStatements >= batchSize) {
+                executeBatch();
+            }
+        }
+
+        if (bufferedBytes >= maxBufferedBytes) {
+            executeBatch();
+            insertPendingRows();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (preparedStatement != null) {
+            try {
+                executeBatch();
+            } finally {
+                preparedStatement.close();
+            }
+        }
+
+        // the last rows do not fill a whole multi-row statement
+        insertPendingRows();
+    }
+
+    /**
+     * Executes the batched statements. Only called when no rows are pending or right before they are inserted, so
+     * nothing is buffered afterwards.
+     */
+    private void executeBatch() throws SQLException {
+        if (batchedStatements > 0) {
+            preparedStatement.executeBatch();
+            if (batchSizeTuner != null) {
+                batchSizeTuner.rowsWritten((long) batchedStatements * pendingRows.length, true);
+                batchSize = batchSizeTuner.getBatchSize();
+            }
+            batchedStatements = 0;
+        }
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Inserts the rows that do not fill a whole multi-row statement.
+     */
+    private void insertPendingRows() throws SQLException {
+        if (pendingRowCount > 0) {
+            String sql = sqlGenerator.insertIntoTable(table, columns, pendingRowCount);
+            if (batchSizeTuner != null) {
+                batchSizeTuner.rowsWritten(pendingRowCount, false);
+            }
+            try (PreparedStatement remainderStatement = jdbcConnection.prepareStatement(sql)) {
+                bindRows(remainderStatement);
+                remainderStatement.executeUpdate();
+            }
+        }
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Binds the pending rows to the statement and clears them.
+     */
+    private void bindRows(final PreparedStatement preparedStatement) throws SQLException {
+        for (int i = 0; i < pendingRowCount; i++) {
+            bindColumnValues(pendingRows[i], preparedStatement, i * columns.size());
+        }
+        pendingRowCount = 0;
+    }
+
+    private void bindColumnValues(final Object[] values, final PreparedStatement preparedStatement, int offset) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            Object value = values[i];
+            values[i] = null;
+            if (value == null) {
+                preparedStatement.setNull(offset + i + 1, column.getSQLType());
+            } else {
+                preparedStatement.setObject(offset + i + 1, sqlGenerator.toParameter(column, value));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,299 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes rows as JSON objects, one per line. Values are encoded by the {@link DataType} of their column: numbers and
+ * booleans as JSON literals, dates as ISO-8601 local date-times, binary and OLE values as base64 strings and
+ * everything else as JSON strings.
+ * <p>
+ * The encoder has its own character buffer, which is reused for all rows and written to the underlying writer when
+ * it is full, so text is escaped without creating intermediate strings.
+ *
+ * @see <a href="https://jsonlines.org/">JSON Lines</a>
+ */
+class JSONEncoder implements Flushable, Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Valid in JSON, but escaped for consumers that parse JSON as JavaScript.
+     */
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Access stores dates without a time zone, so they are written as local date-time.
+     */
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+
+    private final Writer writer;
+
+    private final ZoneId zoneId = ZoneId.systemDefault();
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private byte[] base64Buffer = new byte[0];
+
+    private char[][] keys;
+
+    private DataType[] types;
+
+    JSONEncoder(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Prepares the encoder for the rows of a table, the keys of the objects are encoded only once.
+     *
+     * @param columns the columns that are written for every row
+     */
+    void setColumns(List<? extends Column> columns) throws IOException {
+        keys = new char[columns.size()][];
+        types = new DataType[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            StringWriter key = new StringWriter();
+            JSONEncoder keyEncoder = new JSONEncoder(key);
+            keyEncoder.writeString(columns.get(i).getName());
+            keyEncoder.write(':');
+            keyEncoder.flush();
+            keys[i] = key.toString().toCharArray();
+            types[i] = columns.get(i).getType();
+        }
+    }
+
+    /**
+     * Writes one row as JSON object followed by a line feed.
+     *
+     * @param values the values of the columns, in the order of the columns
+     */
+    void writeRow(Object[] values) throws IOException {
+        write('{');
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            write(keys[i], 0, keys[i].length);
+            writeValue(types[i], values[i]);
+        }
+        write('}');
+        write('\n');
+    }
+
+    /**
+     * Writes a JSON document of maps with string keys, lists, numbers, booleans, strings and nulls, e.g. metadata of
+     * the export.
+     *
+     * @param value the value
+     */
+    void writeJson(Object value) throws IOException {
+        if (value == null) {
+            writeRaw("null");
+        } else if (value instanceof Map) {
+            write('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeString(String.valueOf(entry.getKey()));
+                write(':');
+                writeJson(entry.getValue());
+            }
+            write('}');
+        } else if (value instanceof List) {
+            write('[');
+            boolean first = true;
+            for (Object element : (List<?>) value) {
+                if (!first) {
+                    write(',');
+                }
+                first = false;
+                writeJson(element);
+            }
+            write(']');
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writeRaw(String.valueOf(value));
+        } else {
+            writeString(String.valueOf(value));
+        }
+    }
+
+    /**
+     * Returns a value {@link #writeJson(Object) written as JSON}.
+     */
+    static String toJson(Object value) throws IOException {
+        StringWriter json = new StringWriter();
+        JSONEncoder encoder = new JSONEncoder(json);
+        encoder.writeJson(value);
+        encoder.flush();
+        return json.toString();
+    }
+
+    private void writeValue(DataType type, Object value) throws IOException {
+        if (value == null) {
+            writeRaw("null");
+            return;
+        }
+
+        switch (type) {
+            case BOOLEAN:
+                writeRaw((Boolean) value ? "true" : "false");
+                break;
+            case BYTE:
+            case INT:
+            case LONG:
+                writeRaw(value.toString());
+                break;
+            case FLOAT:
+            case DOUBLE:
+                double number = ((Number) value).doubleValue();
+                if (Double.isNaN(number) || Double.isInfinite(number)) {
+                    // not representable as JSON number
+                    writeString(value.toString());
+                } else {
+                    writeRaw(value.toString());
+                }
+                break;
+            case MONEY:
+            case NUMERIC:
+                writeRaw(((BigDecimal) value).toPlainString());
+                break;
+            case SHORT_DATE_TIME:
+                write('"');
+                writeRaw(DATE_TIME_FORMATTER.format(LocalDateTime.ofInstant(((Date) value).toInstant(), zoneId)));
+                write('"');
+                break;
+            case BINARY:
+            case OLE:
+                writeBase64((byte[]) value);
+                break;
+            default:
+                writeString(value.toString());
+                break;
+        }
+    }
+
+    private void writeBase64(byte[] bytes) throws IOException {
+        int length = 4 * ((bytes.length + 2) / 3);
+        if (base64Buffer.length < length) {
+            base64Buffer = new byte[Math.max(length, base64Buffer.length * 2)];
+        }
+        BASE64_ENCODER.encode(bytes, base64Buffer);
+
+        write('"');
+        for (int i = 0; i < length; i++) {
+            write((char) base64Buffer[i]);
+        }
+        write('"');
+    }
+
+    /**
+     * Writes a JSON string, escaping quotes, backslashes and control characters.
+     */
+    private void writeString(String value) throws IOException {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    write('\\');
+                    write('"');
+                    break;
+                case '\\':
+                    write('\\');
+                    write('\\');
+                    break;
+                case '\n':
+                    write('\\');
+                    write('n');
+                    break;
+                case '\r':
+                    write('\\');
+                    write('r');
+                    break;
+                case '\t':
+                    write('\\');
+                    write('t');
+                    break;
+                default:
+                    if (c < 0x20 || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                        write('\\');
+                        write('u');
+                        write(HEX_DIGITS[(c >> 12) & 0xF]);
+                        write(HEX_DIGITS[(c >> 8) & 0xF]);
+                        write(HEX_DIGITS[(c >> 4) & 0xF]);
+                        write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        write(c);
+                    }
+                    break;
+            }
+        }
+        write('"');
+    }
+
+    private void writeRaw(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+    }
+
+    private void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            write(chars[offset + i]);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        writer.close();
+    }
+
+}
@@ -0,0 +1,170 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Exports an Access database to JSON Lines files, one UTF-8 encoded file per table with one JSON object per row.
+ * A single table can also be written to a stream, e.g. to standard output. The rows are read through a
+ * {@link TableScan}, so the {@link ExportOptions} apply.
+ *
+ * @see JSONEncoder
+ */
+public class JSONLExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JSONLExporter.class);
+
+    public static final String FILE_EXTENSION = "jsonl";
+
+    private final Database db;
+
+    private final ExportOptions options;
+
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    private ExportThrottle throttle = new ExportThrottle();
+
+    public JSONLExporter(Database db) {
+        this(db, ExportOptions.DEFAULTS);
+    }
+
+    public JSONLExporter(Database db, ExportOptions options) {
+        this.db = db;
+        this.options = options;
+    }
+
+    /**
+     * Exports the specified tables to separate JSON Lines files.
+     *
+     * @param targetDir      the target directory for the files
+     * @param tablesToExport the tables to export
+     * @throws IOException if there was an error reading the source database or writing the target files
+     */
+    public void export(Path targetDir, Set<String> tablesToExport) throws IOException {
+        metrics.start();
+        try {
+            for (String tableName : tablesToExport) {
+                LOGGER.debug("Exporting table '" + tableName + "'");
+                exportTable(getTable(tableName), targetDir);
+            }
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Exports all tables to separate JSON Lines files.
+     *
+     * @param targetDir the target directory for the files
+     * @throws IOException if there was an error reading the source database or writing the target files
+     */
+    public void export(Path targetDir) throws IOException {
+        LOGGER.debug("Exporting all tables");
+        metrics.start();
+        try {
+            for (String tableName : db.getTableNames()) {
+                exportTable(db.getTable(tableName), targetDir);
+            }
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Exports a single table to the given stream. The stream is flushed, but not closed.
+     *
+     * @param tableName the table to export
+     * @param out       the stream to write to
+     * @throws IOException if there was an error reading the source database or writing to the stream
+     */
+    public void export(String tableName, OutputStream out) throws IOException {
+        metrics.start();
+        try {
+            Table table = getTable(tableName);
+            metrics.startTable(table.getName(), table.getRowCount());
+            try {
+                JSONEncoder encoder = new JSONEncoder(new OutputStreamWriter(
+                        new CountingOutputStream(out, metrics, throttle), StandardCharsets.UTF_8));
+                writeTable(table, encoder);
+                encoder.flush();
+            } finally {
+                metrics.finishTable();
+            }
+        } finally {
+            metrics.stop();
+        }
+    }
+
+    /**
+     * Limits the rates of the export, by default the export runs at full speed.
+     *
+     * @param throttle the limits, which may be changed while the export runs
+     */
+    public void setThrottle(ExportThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Returns the progress of the export, which is also registered as an MBean while the export runs.
+     *
+     * @return the metrics of this exporter
+     */
+    public ExportMetrics getMetrics() {
+        return metrics;
+    }
+
+    private Table getTable(String tableName) throws IOException {
+        Table table = db.getTable(tableName);
+        if (table == null) {
+            throw new IOException("Table '" + tableName + "' does not exist");
+        }
+        return table;
+    }
+
+    private void exportTable(Table table, Path targetDir) throws IOException {
+        Path targetFile = targetDir.resolve(table.getName() + "." + FILE_EXTENSION);
+        metrics.startTable(table.getName(), table.getRowCount());
+        try (JSONEncoder encoder = new JSONEncoder(new OutputStreamWriter(
+                new CountingOutputStream(Files.newOutputStream(targetFile), metrics, throttle), StandardCharsets.UTF_8))) {
+            writeTable(table, encoder);
+        } finally {
+            metrics.finishTable();
+        }
+    }
+
+    private void writeTable(Table table, JSONEncoder encoder) throws IOException {
+        List<? extends Column> columns = options.getColumns(table);
+        encoder.setColumns(columns);
+
+        Object[] values = new Object[columns.size()];
+        Iterator<Row> rows = new TableScan(table, options).rows();
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = row.get(columns.get(i).getName());
+            }
+            encoder.writeRow(values);
+            metrics.rowWritten(0);
+            throttle.acquireRow();
+        }
+    }
+
+}
@@ -8,14 +8,23 @@ import com.beust.jcommander.JCommander;
 import com.healthmarketscience.jackcess.Database;
 import com.healthmarketscience.jackcess.DatabaseBuilder;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 public class Main {
 
@@ -28,6 +37,10 @@ public class Main {
     private static final int EXIT_STATUS_TARGET_DIR_DOES_NOT_EXIST = 7;
     private static final int EXIT_STATUS_TARGET_DIR_IS_NO_DIRECTORY = 8;
     private static final int EXIT_STATUS_INVALID_EXPORT_FORMAT = 9;
+    private static final int EXIT_STATUS_VERIFICATION_FAILED = 10;
+    private static final int EXIT_STATUS_FOREIGN_KEY_VIOLATIONS = 11;
+
+    private static final String STANDARD_OUTPUT = "-";
 
     public static void main(String[] args) {
         Main main = new Main(systemExitException -> {
@@ -39,6 +52,8 @@ public class Main {
 
     private SystemExitHandler systemExitHandler;
 
+    private final ExportThrottle throttle = new ExportThrottle();
+
     public Main(SystemExitHandler systemExitHandler) {
         this.systemExitHandler = systemExitHandler;
     }
@@ -54,44 +69,355 @@ public class Main {
             systemExitHandler.handle(new SystemExitException(usage.toString(), EXIT_STATUS_INVALID_USAGE));
         }
 
+        throttle.setMaxReadRate(clp.getMaxReadRate());
+        throttle.setMaxWriteRate(clp.getMaxWriteRate());
+        throttle.setMaxRowsPerSecond(clp.getMaxRowsPerSecond());
+        throttle.start();
         try {
-            switch (clp.getFormat()) {
-                case SQLITE:
-                    jdbcExport(clp);
-                    break;
-                case CSV:
-                    csvExport(clp);
-                    break;
-            }
+            runWhileOpen(openThrottleFile(clp), () -> export(clp));
         } catch (IllegalArgumentException e) {
             systemExitHandler.handle(new SystemExitException("Invalid parameter value", e, EXIT_STATUS_INVALID_EXPORT_FORMAT));
         } catch (SystemExitException e) {
             systemExitHandler.handle(e);
         } catch (IOException | SQLException e) {
             systemExitHandler.handle(new SystemExitException("Error during export", e, EXIT_STATUS_ERROR_DURING_EXPORT));
+        } finally {
+            throttle.stop();
+        }
+    }
+
+    /**
+     * Runs the export selected by the formats, or the server.
+     */
+    private void export(CommandLineParameters clp) throws SystemExitException, IOException, SQLException {
+        List<ExportFormat> formats = clp.getFormats();
+        if (clp.hasServePort()) {
+            serve(clp);
+        } else if (formats.size() > 1) {
+            fanOutExport(clp, formats);
+        } else {
+            switch (formats.get(0)) {
+                case SQLITE:
+                    jdbcExport(clp, "jdbc:sqlite:");
+                    break;
+                case DUCKDB:
+                    jdbcExport(clp, "jdbc:duckdb:");
+                    break;
+                case CSV:
+                    csvExport(clp);
+                    break;
+                case JSONL:
+                    jsonlExport(clp);
+                    break;
+            }
         }
     }
 
-    private void csvExport(CommandLineParameters clp) throws SystemExitException, IOException {
+    private void csvExport(CommandLineParameters clp) throws SystemExitException, IOException, SQLException {
+        if (clp.hasTargetUrl()) {
+            throw new SystemExitException("A target URL can not be used for CSV exports", EXIT_STATUS_INVALID_USAGE);
+        }
         Path sourceFile = getSourceFile(clp);
-        Path targetDir = getTargetDir(clp);
-        try (Database database = openSourceDatabase(sourceFile.toFile())) {
-            CSVExporter exporter = new CSVExporter(database);
-            if (clp.hasTablesToExport()) {
-                exporter.export(targetDir, clp.getTablesToExport());
-            } else {
-                exporter.export(targetDir);
+        Path target = clp.zip() ? getTargetFile(clp) : getTargetDir(clp);
+        try (FileChannel sourceChannel = openSourceChannel(sourceFile.toFile());
+             Database database = openSourceDatabase(sourceFile.toFile(), sourceChannel)) {
+            CSVExporter exporter = new CSVExporter(database, clp.getExportOptions());
+            exporter.setThrottle(throttle);
+            exporter.setCollectStatistics(clp.collectColumnStatistics());
+            runWhileOpen(openMetricsFile(clp, exporter.getMetrics()), () -> {
+                if (clp.zip() && clp.hasTablesToExport()) {
+                    exporter.exportZip(target, clp.getTablesToExport());
+                } else if (clp.zip()) {
+                    exporter.exportZip(target);
+                } else if (clp.hasTablesToExport()) {
+                    exporter.export(target, clp.getTablesToExport());
+                } else {
+                    exporter.export(target);
+                }
+            });
+        }
+        if (clp.verify() && clp.zip()) {
+            try (FileSystem zipFileSystem = FileSystems.newFileSystem(target, (ClassLoader) null)) {
+                report(createVerifier(clp, sourceFile).verifyCsv(zipFileSystem.getPath("/"), clp.getTablesToExport()));
+            }
+        } else if (clp.verify()) {
+            report(createVerifier(clp, sourceFile).verifyCsv(target, clp.getTablesToExport()));
+        }
+    }
+
+    /**
+     * Exports to JSON Lines files or, if the target is {@code -}, a single table to standard output. Log output is
+     * redirected to standard error while writing to standard output.
+     */
+    private void jsonlExport(CommandLineParameters clp) throws SystemExitException, IOException, SQLException {
+        if (clp.hasTargetUrl()) {
+            throw new SystemExitException("A target URL can not be used for JSON Lines exports", EXIT_STATUS_INVALID_USAGE);
+        }
+        if (clp.verify()) {
+            throw new IllegalArgumentException("Verification is only supported for SQLite and CSV exports");
+        }
+        if (clp.collectColumnStatistics()) {
+            throw new IllegalArgumentException("Column statistics are only supported for SQLite and CSV exports");
+        }
+        Path sourceFile = getSourceFile(clp);
+
+        if (STANDARD_OUTPUT.equals(clp.getParameters().get(1))) {
+            if (clp.getTablesToExport().size() != 1) {
+                throw new SystemExitException("Exactly one table must be specified to export to standard output",
+                        EXIT_STATUS_INVALID_USAGE);
+            }
+            PrintStream standardOutput = System.out;
+            System.setOut(System.err);
+            try (FileChannel sourceChannel = openSourceChannel(sourceFile.toFile());
+                 Database database = openSourceDatabase(sourceFile.toFile(), sourceChannel)) {
+                JSONLExporter exporter = new JSONLExporter(database, clp.getExportOptions());
+                exporter.setThrottle(throttle);
+                runWhileOpen(openMetricsFile(clp, exporter.getMetrics()),
+                        () -> exporter.export(clp.getTablesToExport().iterator().next(), standardOutput));
+            } finally {
+                System.setOut(standardOutput);
             }
+            return;
+        }
+
+        Path targetDir = getTargetDir(clp);
+        try (FileChannel sourceChannel = openSourceChannel(sourceFile.toFile());
+             Database database = openSourceDatabase(sourceFile.toFile(), sourceChannel)) {
+            JSONLExporter exporter = new JSONLExporter(database, clp.getExportOptions());
+            exporter.setThrottle(throttle);
+            runWhileOpen(openMetricsFile(clp, exporter.getMetrics()), () -> {
+                if (clp.hasTablesToExport()) {
+                    exporter.export(targetDir, clp.getTablesToExport());
+                } else {
+                    exporter.export(targetDir);
+                }
+            });
         }
     }
 
-    private void jdbcExport(CommandLineParameters clp) throws SystemExitException, IOException, SQLException {
+    private void jdbcExport(CommandLineParameters clp, String jdbcUrlPrefix) throws SystemExitException, IOException, SQLException {
         Path sourceFile = getSourceFile(clp);
-        Path targetFile = getTargetFile(clp);
-        try (Database database = openSourceDatabase(sourceFile.toFile());
-             Connection jdbcConnection = openTargetDatabase(targetFile)) {
-            Exporter exporter = new Exporter(database, clp.getTablesToExport());
-            exporter.export(jdbcConnection);
+        Path targetFile = clp.hasTargetUrl() ? null : getTargetFile(clp);
+        String targetUrl = clp.hasTargetUrl() ? clp.getTargetUrl() : jdbcUrlPrefix + targetFile;
+        SQLGenerator sqlGenerator = createSQLGenerator(clp, targetUrl);
+        if (clp.verify() && !(sqlGenerator instanceof SQLiteSQLGenerator)) {
+            throw new IllegalArgumentException("Verification is only supported for SQLite and CSV exports");
+        }
+        if (clp.verify() && clp.deduplicateBlobs()) {
+            throw new IllegalArgumentException("Verification is not supported with deduplicated BLOBs");
+        }
+        boolean parallel = clp.getParallelLoads() > 1;
+        if (parallel && (targetFile == null || !(sqlGenerator instanceof SQLiteSQLGenerator))) {
+            throw new IllegalArgumentException("Parallel loads are only supported for SQLite target files");
+        }
+        Exporter exporter;
+        try (FileChannel sourceChannel = openSourceChannel(sourceFile.toFile());
+             Database database = openSourceDatabase(sourceFile.toFile(), sourceChannel)) {
+            exporter = createExporter(clp, database, sqlGenerator);
+            exporter.setThrottle(throttle);
+            runWhileOpen(openMetricsFile(clp, exporter.getMetrics()), () -> {
+                if (parallel) {
+                    exporter.exportParallel(targetFile, clp.getParallelLoads());
+                } else {
+                    try (Connection jdbcConnection = openTargetDatabase(targetUrl)) {
+                        exporter.export(jdbcConnection);
+                    }
+                }
+            });
+        }
+        if (clp.verify()) {
+            report(createVerifier(clp, sourceFile).verifyJdbc(targetUrl, sqlGenerator, clp.getTablesToExport()));
+        }
+        reportForeignKeyViolations(Collections.singletonList(exporter));
+    }
+
+    /**
+     * Exports to several targets with a single scan of the source, one target per format in the order of the formats.
+     * SQLite options only apply to SQLite targets.
+     */
+    private void fanOutExport(CommandLineParameters clp, List<ExportFormat> formats) throws SystemExitException, IOException, SQLException {
+        if (clp.hasTargetUrl()) {
+            throw new SystemExitException("A target URL can not be used for several formats", EXIT_STATUS_INVALID_USAGE);
+        }
+        if (formats.contains(ExportFormat.JSONL)) {
+            throw new IllegalArgumentException("JSON Lines exports can not be combined with other formats");
+        }
+        if (clp.zip() || clp.getParallelLoads() > 1) {
+            throw new IllegalArgumentException("ZIP archives and parallel loads are not supported for several formats");
+        }
+        if (clp.verify() && formats.contains(ExportFormat.DUCKDB)) {
+            throw new IllegalArgumentException("Verification is only supported for SQLite and CSV exports");
+        }
+        if (clp.verify() && clp.deduplicateBlobs()) {
+            throw new IllegalArgumentException("Verification is not supported with deduplicated BLOBs");
+        }
+        Path sourceFile = getSourceFile(clp);
+        List<Path> targets = new ArrayList<>();
+        for (int i = 0; i < formats.size(); i++) {
+            targets.add(formats.get(i) == ExportFormat.CSV ? getTargetDir(clp, i + 1) : getTargetFile(clp, i + 1));
+        }
+
+        List<String> targetUrls = new ArrayList<>();
+        List<SQLGenerator> sqlGenerators = new ArrayList<>();
+        List<Connection> connections = new ArrayList<>();
+        List<Exporter> jdbcExporters = new ArrayList<>();
+        try (FileChannel sourceChannel = openSourceChannel(sourceFile.toFile());
+             Database database = openSourceDatabase(sourceFile.toFile(), sourceChannel)) {
+            List<ExportSink> sinks = new ArrayList<>();
+            for (int i = 0; i < formats.size(); i++) {
+                if (formats.get(i) == ExportFormat.CSV) {
+                    CSVExporter csvExporter = new CSVExporter(database, clp.getExportOptions());
+                    csvExporter.setCollectStatistics(clp.collectColumnStatistics());
+                    sinks.add(csvExporter.sink(targets.get(i)));
+                    targetUrls.add(null);
+                    sqlGenerators.add(null);
+                    continue;
+                }
+                String targetUrl = (formats.get(i) == ExportFormat.SQLITE ? "jdbc:sqlite:" : "jdbc:duckdb:") + targets.get(i);
+                SQLGenerator sqlGenerator = formats.get(i) == ExportFormat.SQLITE
+                        ? createSQLGenerator(clp, targetUrl) : SQLDialects.forUrl(targetUrl);
+                Connection jdbcConnection = openTargetDatabase(targetUrl);
+                connections.add(jdbcConnection);
+                Exporter jdbcExporter = createExporter(clp, database, sqlGenerator);
+                jdbcExporters.add(jdbcExporter);
+                sinks.add(jdbcExporter.sink(jdbcConnection));
+                targetUrls.add(targetUrl);
+                sqlGenerators.add(sqlGenerator);
+            }
+
+            FanOutExporter exporter = new FanOutExporter(database, clp.getTablesToExport(), clp.getExportOptions(), sinks);
+            exporter.setThrottle(throttle);
+            if (clp.hasMemoryBudget()) {
+                exporter.setMemoryBudget(clp.getMemoryBudget());
+            }
+            runWhileOpen(openMetricsFile(clp, exporter.getMetrics()), exporter::export);
+        } finally {
+            for (Connection jdbcConnection : connections) {
+                jdbcConnection.close();
+            }
+        }
+
+        if (clp.verify()) {
+            Verifier verifier = createVerifier(clp, sourceFile);
+            List<Verifier.TableVerification> verifications = new ArrayList<>();
+            for (int i = 0; i < formats.size(); i++) {
+                if (formats.get(i) == ExportFormat.CSV) {
+                    verifications.addAll(verifier.verifyCsv(targets.get(i), clp.getTablesToExport()));
+                } else {
+                    verifications.addAll(verifier.verifyJdbc(targetUrls.get(i), sqlGenerators.get(i), clp.getTablesToExport()));
+                }
+            }
+            report(verifications);
+        }
+        reportForeignKeyViolations(jdbcExporters);
+    }
+
+    /**
+     * Serves the databases of a directory until the process is terminated.
+     */
+    private void serve(CommandLineParameters clp) throws SystemExitException, IOException {
+        Path rootDir = Paths.get(clp.getParameters().get(0));
+        if (!Files.isDirectory(rootDir)) {
+            throw new SystemExitException("'" + rootDir + "' is not a directory", EXIT_STATUS_TARGET_DIR_IS_NO_DIRECTORY);
+        }
+        ExportServer server = new ExportServer.ExportServerBuilder(rootDir)
+                .port(clp.getServePort())
+                .maxOpenDatabases(clp.getMaxOpenDatabases())
+                .maxCachedRows(clp.getMaxCachedRows())
+                .maxStreams(clp.getMaxStreams())
+                .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "access-export-server-shutdown"));
+        server.start();
+        System.out.println("Serving '" + rootDir + "' on http://localhost:" + server.getPort() + "/");
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+    }
+
+    private Exporter createExporter(CommandLineParameters clp, Database database, SQLGenerator sqlGenerator) {
+        Exporter exporter = new Exporter(database, clp.getTablesToExport(), clp.getExportOptions(), sqlGenerator);
+        if (clp.hasMemoryBudget()) {
+            exporter.setMemoryBudget(clp.getMemoryBudget());
+        }
+        if (clp.hasBatchSize()) {
+            exporter.setBatchSize(clp.getBatchSize());
+        }
+        exporter.setAutoTuneBatchSize(clp.autoTuneBatchSize());
+        exporter.setCollectStatistics(clp.collectColumnStatistics());
+        return exporter;
+    }
+
+    private Verifier createVerifier(CommandLineParameters clp, Path sourceFile) {
+        return new Verifier(sourceFile.toFile(), clp.getExportOptions(), Runtime.getRuntime().availableProcessors());
+    }
+
+    private void report(List<Verifier.TableVerification> verifications) throws SystemExitException {
+        int failed = 0;
+        for (Verifier.TableVerification verification : verifications) {
+            System.out.println(verification);
+            if (!verification.isPassed()) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            throw new SystemExitException(failed + " table(s) failed verification", EXIT_STATUS_VERIFICATION_FAILED);
+        }
+    }
+
+    /**
+     * Fails the export if the deferred foreign key check found rows referencing missing rows. The violations have
+     * already been logged per table.
+     */
+    private void reportForeignKeyViolations(List<Exporter> exporters) throws SystemExitException {
+        int tables = 0;
+        for (Exporter exporter : exporters) {
+            tables += exporter.getForeignKeyViolations().size();
+        }
+        if (tables > 0) {
+            throw new SystemExitException(tables + " table(s) with foreign key violations",
+                    EXIT_STATUS_FOREIGN_KEY_VIOLATIONS);
+        }
+    }
+
+    private SQLGenerator createSQLGenerator(CommandLineParameters clp, String targetUrl) {
+        SQLGenerator sqlGenerator = SQLDialects.forUrl(targetUrl);
+        if (!clp.optimizeSchema() && !clp.storeGuidsAsBlobs() && !clp.deferForeignKeys() && !clp.deduplicateBlobs()) {
+            return sqlGenerator;
+        }
+        if (!(sqlGenerator instanceof SQLiteSQLGenerator)) {
+            throw new IllegalArgumentException("SQLite options are only supported for SQLite targets");
+        }
+        return new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .optimizeSchema(clp.optimizeSchema())
+                .storeGuidsAsBlobs(clp.storeGuidsAsBlobs())
+                .deferForeignKeys(clp.deferForeignKeys())
+                .deduplicateBlobs(clp.deduplicateBlobs())
+                .createBlobViews(clp.createBlobViews())
+                .build();
+    }
+
+    private ThrottleControlFile openThrottleFile(CommandLineParameters clp) {
+        return clp.hasThrottleFile() ? new ThrottleControlFile(throttle, clp.getThrottleFile()) : null;
+    }
+
+    private PrometheusTextFile openMetricsFile(CommandLineParameters clp, ExportMetrics metrics) {
+        return clp.hasMetricsFile() ? new PrometheusTextFile(metrics, clp.getMetricsFile()) : null;
+    }
+
+    /**
+     * Runs an export while a resource that works alongside it is open, e.g. the metrics or the throttle control file. The resource is closed
+     * afterwards, even if the export failed.
+     *
+     * @param resource the resource or {@code null}
+     * @param export   the export
+     */
+    @SuppressWarnings("try")
+    private static void runWhileOpen(Closeable resource, ExportTask export) throws SystemExitException, IOException, SQLException {
+        try (Closeable openResource = resource) {
+            export.run();
         }
     }
 
@@ -104,7 +430,11 @@ public class Main {
     }
 
     private Path getTargetFile(CommandLineParameters clp) throws SystemExitException {
-        Path targetFile = Paths.get(clp.getParameters().get(1));
+        return getTargetFile(clp, 1);
+    }
+
+    private Path getTargetFile(CommandLineParameters clp, int parameter) throws SystemExitException {
+        Path targetFile = Paths.get(clp.getParameters().get(parameter));
         if (Files.exists(targetFile)) {
             throw new SystemExitException("'" + targetFile + "' does already exist", EXIT_STATUS_TARGET_DOES_ALREADY_EXIST);
         }
@@ -112,7 +442,11 @@ public class Main {
     }
 
     private Path getTargetDir(CommandLineParameters clp) throws SystemExitException {
-        Path targetDir = Paths.get(clp.getParameters().get(1));
+        return getTargetDir(clp, 1);
+    }
+
+    private Path getTargetDir(CommandLineParameters clp, int parameter) throws SystemExitException {
+        Path targetDir = Paths.get(clp.getParameters().get(parameter));
         if (Files.notExists(targetDir)) {
             throw new SystemExitException("'" + targetDir + "' does not exist", EXIT_STATUS_TARGET_DIR_DOES_NOT_EXIST);
         }
@@ -122,26 +456,50 @@ public class Main {
         return targetDir;
     }
 
-    private Database openSourceDatabase(File databaseFile) throws SystemExitException {
+    /**
+     * Opens the source database file with the read rate limited by the throttle. Jackcess does not close channels it
+     * did not open itself, so the channel must be closed after the database.
+     */
+    private FileChannel openSourceChannel(File databaseFile) throws SystemExitException {
+        try {
+            return throttle.openChannel(databaseFile);
+        } catch (IOException e) {
+            throw new SystemExitException("Error opening the source database", e, EXIT_STATUS_ERROR_OPENING_SOURCE);
+        }
+    }
+
+    private Database openSourceDatabase(File databaseFile, FileChannel channel) throws SystemExitException {
         Database database;
         try {
-            database = new DatabaseBuilder(databaseFile).setReadOnly(true).open();
+            database = new DatabaseBuilder(databaseFile).setReadOnly(true).setChannel(channel).open();
         } catch (IOException e) {
             throw new SystemExitException("Error opening the source database", e, EXIT_STATUS_ERROR_OPENING_SOURCE);
         }
         return database;
     }
 
-    private Connection openTargetDatabase(Path databaseFile) throws SystemExitException {
+    private Connection openTargetDatabase(String jdbcUrl) throws SystemExitException {
+        try {
+            DriverManager.getDriver(jdbcUrl);
+        } catch (SQLException e) {
+            throw new SystemExitException("No JDBC driver for '" + jdbcUrl + "' on the classpath", e,
+                    EXIT_STATUS_ERROR_OPENING_TARGET);
+        }
         Connection jdbcConnection;
         try {
-            jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+            jdbcConnection = DriverManager.getConnection(jdbcUrl);
         } catch (SQLException e) {
             throw new SystemExitException("Error opening the target database", e, EXIT_STATUS_ERROR_OPENING_TARGET);
         }
         return jdbcConnection;
     }
 
+    private interface ExportTask {
+
+        void run() throws SystemExitException, IOException, SQLException;
+
+    }
+
     /**
      * Handles {@link SystemExitException}s
      */
@@ -0,0 +1,99 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the heap taken by rows that are buffered between reading and writing. Row widths range from a few bytes to
+ * megabytes of MEMO and OLE values, so buffers are bounded by the estimated size of their rows instead of by their
+ * number of rows.
+ * <p>
+ * A row larger than the whole budget is still admitted when no other row is in flight, so a single wide row never
+ * blocks an export.
+ */
+class MemoryBudget {
+
+    /**
+     * Header of an object plus the reference to it in the row.
+     */
+    private static final long OBJECT_OVERHEAD = 16 + 8;
+
+    /**
+     * Header and fields of a string or array object.
+     */
+    private static final long ARRAY_OVERHEAD = 40;
+
+    private final long limit;
+
+    private long inFlight;
+
+    MemoryBudget(long limit) {
+        this.limit = limit;
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Reserves memory for a row, waits at most the given time if the budget is exhausted.
+     *
+     * @param bytes  the estimated size of the row
+     * @param millis the maximum time to wait
+     * @return {@code true} if the memory was reserved, {@code false} if the time elapsed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    synchronized boolean tryAcquire(long bytes, long millis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (inFlight > 0 && inFlight + bytes > limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight += bytes;
+        return true;
+    }
+
+    synchronized void release(long bytes) {
+        inFlight -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Estimates the heap taken by the values of a row: the actual length of strings, which Java stores with two
+     * bytes per character, and of binary values, otherwise the length of the column in the Access database.
+     *
+     * @param values  the values of the row
+     * @param columns the columns of the values
+     * @return the estimated size of the row in bytes
+     */
+    static long estimateRowSize(Object[] values, List<? extends Column> columns) {
+        long size = ARRAY_OVERHEAD + 8L * values.length;
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof String) {
+                size += ARRAY_OVERHEAD + 2L * ((String) value).length();
+            } else if (value instanceof byte[]) {
+                size += ARRAY_OVERHEAD + ((byte[]) value).length;
+            } else if (value instanceof BigDecimal) {
+                size += OBJECT_OVERHEAD + ARRAY_OVERHEAD + ((BigDecimal) value).unscaledValue().bitLength() / 8;
+            } else {
+                size += OBJECT_OVERHEAD + columns.get(i).getLength();
+            }
+        }
+        return size;
+    }
+
+}
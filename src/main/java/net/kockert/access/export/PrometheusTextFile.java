@@ -0,0 +1,141 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes {@link ExportMetrics} to a file in the Prometheus text exposition format, e.g. for the
+ * textfile collector of the node exporter. The file is replaced atomically, so the collector never reads a partially
+ * written file.
+ * <p>
+ * A stalled export can be detected with {@code access_export_last_progress_timestamp_seconds}.
+ *
+ * @see <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus exposition formats</a>
+ */
+public class PrometheusTextFile implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrometheusTextFile.class);
+
+    private static final long INTERVAL_SECONDS = 5;
+
+    private final ExportMetrics metrics;
+
+    private final Path file;
+
+    private final ScheduledExecutorService scheduler;
+
+    public PrometheusTextFile(ExportMetrics metrics, Path file) {
+        this.metrics = metrics;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-export-prometheus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, 0, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException e) {
+            LOGGER.warn("Could not write metrics to '{}': {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the current metrics.
+     *
+     * @throws IOException if the file could not be written
+     */
+    public synchronized void write() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                writeMetrics(writer);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    void writeMetrics(Writer writer) throws IOException {
+        writeHeader(writer, "access_export_rows_done", "Rows exported so far", "gauge");
+        for (Map.Entry<String, Long> entry : metrics.getRowsDone().entrySet()) {
+            writeSample(writer, "access_export_rows_done", entry.getKey(), entry.getValue());
+        }
+        writeHeader(writer, "access_export_rows_total", "Rows of the table in the Access database", "gauge");
+        for (Map.Entry<String, Long> entry : metrics.getRowsTotal().entrySet()) {
+            writeSample(writer, "access_export_rows_total", entry.getKey(), entry.getValue());
+        }
+        String currentTable = metrics.getCurrentTable();
+        if (currentTable != null) {
+            writeHeader(writer, "access_export_current_table", "Table that is currently exported", "gauge");
+            writeSample(writer, "access_export_current_table", currentTable, 1);
+        }
+        writeHeader(writer, "access_export_rows_per_second", "Rows exported per second over a sliding window", "gauge");
+        writeSample(writer, "access_export_rows_per_second", null, metrics.getRowsPerSecond());
+        writeHeader(writer, "access_export_bytes_written", "Bytes written to the target", "counter");
+        writeSample(writer, "access_export_bytes_written", null, metrics.getBytesWritten());
+        writeHeader(writer, "access_export_queue_depth", "Decoded rows waiting to be written", "gauge");
+        writeSample(writer, "access_export_queue_depth", null, metrics.getQueueDepth());
+        writeHeader(writer, "access_export_commits", "Transactions committed", "counter");
+        writeSample(writer, "access_export_commits", null, metrics.getCommitCount());
+        writeHeader(writer, "access_export_last_progress_timestamp_seconds", "Time of the last exported row", "gauge");
+        writeSample(writer, "access_export_last_progress_timestamp_seconds", null, metrics.getLastProgressTime() / 1000.0);
+    }
+
+    private void writeHeader(Writer writer, String name, String help, String type) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private void writeSample(Writer writer, String name, String table, double value) throws IOException {
+        writer.write(name);
+        if (table != null) {
+            writer.write("{table=\"" + escapeLabelValue(table) + "\"}");
+        }
+        writer.write(" ");
+        writer.write(value == Math.rint(value) && !Double.isInfinite(value)
+                ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.3f", value));
+        writer.write("\n");
+    }
+
+    private String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Stops the periodic writes and writes the final metrics.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(INTERVAL_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+
+}
@@ -0,0 +1,117 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The heap allocated by a thread and the garbage collections of the JVM during a phase of an export, e.g. loading
+ * or indexing a table.
+ * <p>
+ * Allocated bytes are counted per thread, so they are exact for the phase even while other tables are exported at
+ * the same time. Collections are counted for the whole JVM, so phases that overlap share them. On JVMs that do not
+ * count allocated bytes per thread, the allocated bytes are 0.
+ */
+class ResourceUsage {
+
+    static final ResourceUsage NONE = new ResourceUsage(0, 0, 0, 0);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean ALLOCATION_COUNTED = isAllocationCounted();
+
+    private final long elapsedNanos;
+
+    private final long allocatedBytes;
+
+    private final long gcCount;
+
+    private final long gcMillis;
+
+    private ResourceUsage(long elapsedNanos, long allocatedBytes, long gcCount, long gcMillis) {
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    private static boolean isAllocationCounted() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * Returns the usage of the current thread and the JVM since they were started, to be subtracted from a later
+     * snapshot.
+     */
+    static ResourceUsage snapshot() {
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+        return new ResourceUsage(System.nanoTime(), threadAllocatedBytes(), gcCount, gcMillis);
+    }
+
+    /**
+     * Returns the bytes the current thread has allocated since it was started.
+     */
+    static long threadAllocatedBytes() {
+        if (!ALLOCATION_COUNTED) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the usage between an earlier snapshot and now.
+     */
+    static ResourceUsage since(ResourceUsage start) {
+        ResourceUsage now = snapshot();
+        return new ResourceUsage(now.elapsedNanos - start.elapsedNanos, now.allocatedBytes - start.allocatedBytes,
+                now.gcCount - start.gcCount, now.gcMillis - start.gcMillis);
+    }
+
+    /**
+     * Adds the bytes allocated by another thread that worked for the same phase.
+     */
+    ResourceUsage plusAllocatedBytes(long bytes) {
+        return new ResourceUsage(elapsedNanos, allocatedBytes + bytes, gcCount, gcMillis);
+    }
+
+    ResourceUsage plus(ResourceUsage other) {
+        return new ResourceUsage(elapsedNanos + other.elapsedNanos, allocatedBytes + other.allocatedBytes,
+                gcCount + other.gcCount, gcMillis + other.gcMillis);
+    }
+
+    long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    long getGcCount() {
+        return gcCount;
+    }
+
+    long getGcMillis() {
+        return gcMillis;
+    }
+
+    @Override
+    public String toString() {
+        return getElapsedMillis() + " ms, " + allocatedBytes + " bytes allocated, " + gcCount + " GCs taking "
+                + gcMillis + " ms";
+    }
+
+}
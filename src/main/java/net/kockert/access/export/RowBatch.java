@@ -0,0 +1,85 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of consecutive rows of a table, as read by a {@link RowStream}. The values have the Java types Jackcess
+ * decodes for the {@link #getType(int) type of their column}, e.g. {@link Integer} for {@link DataType#LONG},
+ * {@link String} for {@link DataType#MEMO} or {@code byte[]} for {@link DataType#OLE}, or are {@code null}.
+ * <p>
+ * Every batch has its own values, so it stays valid after the next batch was read.
+ */
+public class RowBatch {
+
+    private final List<? extends Column> columns;
+
+    private final Object[][] rows;
+
+    private final int size;
+
+    RowBatch(List<? extends Column> columns, Object[][] rows, int size) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = rows;
+        this.size = size;
+    }
+
+    /**
+     * Returns the columns of the rows, in the order of their values.
+     */
+    public List<? extends Column> getColumns() {
+        return columns;
+    }
+
+    public DataType getType(int column) {
+        return columns.get(column).getType();
+    }
+
+    /**
+     * Returns the number of rows in this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    public Object getValue(int row, int column) {
+        checkRow(row);
+        return rows[row][column];
+    }
+
+    /**
+     * Returns a value cast to the given type.
+     *
+     * @param row    the index of the row in this batch
+     * @param column the index of the column
+     * @param type   the type of the value
+     * @return the value or {@code null}
+     * @throws ClassCastException if the value is not of the given type
+     */
+    public <T> T getValue(int row, int column, Class<T> type) {
+        return type.cast(getValue(row, column));
+    }
+
+    /**
+     * Returns the values of a row in the order of the {@link #getColumns() columns}.
+     */
+    public List<Object> getRow(int row) {
+        checkRow(row);
+        return Collections.unmodifiableList(Arrays.asList(rows[row]));
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of a batch of " + size + " rows");
+        }
+    }
+
+}
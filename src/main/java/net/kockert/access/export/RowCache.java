@@ -0,0 +1,81 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Row;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the rows found by index lookups, least recently used lookups are dropped first. The cache is bounded by
+ * the total number of rows, not by the number of lookups, and a lookup that found more rows than fit is not cached.
+ * A lookup that found no rows counts as one row.
+ * <p>
+ * The key of a lookup identifies the database file with its modification time, the index and the looked up values,
+ * so the rows of a modified file are never returned and age out of the cache.
+ */
+class RowCache {
+
+    private final long maxRows;
+
+    private final Map<List<Object>, List<Row>> lookups = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long rows;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * @param maxRows the maximum number of cached rows, 0 disables the cache
+     */
+    RowCache(long maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Returns the cached rows of a lookup.
+     *
+     * @param key the key of the lookup
+     * @return the rows or {@code null} if the lookup is not cached
+     */
+    synchronized List<Row> get(List<Object> key) {
+        List<Row> cached = lookups.get(key);
+        if (cached == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return cached;
+    }
+
+    synchronized void put(List<Object> key, List<Row> found) {
+        if (weight(found) > maxRows) {
+            return;
+        }
+        List<Row> previous = lookups.put(key, found);
+        rows += weight(found) - (previous == null ? 0 : weight(previous));
+        for (Iterator<List<Row>> iterator = lookups.values().iterator(); rows > maxRows; ) {
+            rows -= weight(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long weight(List<Row> found) {
+        return Math.max(1, found.size());
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+}
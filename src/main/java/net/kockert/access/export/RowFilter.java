@@ -0,0 +1,323 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filters the rows of a table by simple comparisons of column values with constants, e.g.
+ * <pre>
+ * OrderDate &gt;= 2015-01-01
+ * </pre>
+ * All conditions of a filter must match for a row to be exported.
+ */
+public class RowFilter {
+
+    /**
+     * A filter without any conditions which matches every row.
+     */
+    public static final RowFilter NONE = new RowFilter(Collections.emptyList());
+
+    private static final String[] DATE_PATTERNS = {"yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd"};
+
+    private final List<Condition> conditions;
+
+    private RowFilter(List<Condition> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Parses a single condition of the form {@code <column><operator><value>}, e.g. {@code Amount>100}.
+     *
+     * @param expression the condition to parse
+     * @return a filter with the parsed condition
+     * @throws IllegalArgumentException if the expression is not a valid condition
+     */
+    public static RowFilter parse(String expression) {
+        return NONE.and(Condition.parse(expression));
+    }
+
+    /**
+     * Returns a new filter that additionally requires the given condition to match.
+     *
+     * @param condition the additional condition
+     * @return a new filter
+     */
+    public RowFilter and(Condition condition) {
+        List<Condition> newConditions = new ArrayList<>(conditions);
+        newConditions.add(condition);
+        return new RowFilter(Collections.unmodifiableList(newConditions));
+    }
+
+    /**
+     * Returns a new filter that requires the conditions of this and the given filter to match.
+     *
+     * @param other the other filter
+     * @return a new filter
+     */
+    public RowFilter and(RowFilter other) {
+        RowFilter result = this;
+        for (Condition condition : other.conditions) {
+            result = result.and(condition);
+        }
+        return result;
+    }
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    /**
+     * Resolves the conditions against the columns of the given table and converts the constants to the Java types
+     * Jackcess uses for the values of those columns.
+     *
+     * @param table the table the filter will be applied to
+     * @return the conditions bound to the table
+     * @throws IllegalArgumentException if a column does not exist or a constant does not match its column type
+     */
+    List<BoundCondition> bind(Table table) {
+        List<BoundCondition> boundConditions = new ArrayList<>();
+        for (Condition condition : conditions) {
+            Column column = findColumn(table, condition.getColumnName());
+            boundConditions.add(new BoundCondition(column, condition.getOperator(), convertValue(column, condition.getValue())));
+        }
+        return boundConditions;
+    }
+
+    private Column findColumn(Table table, String columnName) {
+        for (Column column : table.getColumns()) {
+            if (column.getName().equalsIgnoreCase(columnName)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Table '" + table.getName() + "' has no column '" + columnName + "'");
+    }
+
+    /**
+     * Converts the given constant to the Java type Jackcess returns for values of the given column.
+     *
+     * @param column the column
+     * @param value  the constant
+     * @return the converted constant
+     */
+    static Comparable<?> convertValue(Column column, String value) {
+        try {
+            switch (column.getType()) {
+                case BOOLEAN:
+                    return Boolean.valueOf(value);
+                case BYTE:
+                    return Byte.valueOf(value);
+                case INT:
+                    return Short.valueOf(value);
+                case LONG:
+                    return Integer.valueOf(value);
+                case FLOAT:
+                    return Float.valueOf(value);
+                case DOUBLE:
+                    return Double.valueOf(value);
+                case MONEY:
+                case NUMERIC:
+                    return new BigDecimal(value);
+                case SHORT_DATE_TIME:
+                    return parseDate(value);
+                case TEXT:
+                case MEMO:
+                case GUID:
+                    return value;
+                default:
+                    throw new IllegalArgumentException("Unsupported data type for filter on column '"
+                            + column.getName() + "': " + column.getType());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + value + "' is not a valid value for column '"
+                    + column.getName() + "'", e);
+        }
+    }
+
+    private static Date parseDate(String value) {
+        for (String pattern : DATE_PATTERNS) {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+            dateFormat.setLenient(false);
+            ParsePosition position = new ParsePosition(0);
+            Date date = dateFormat.parse(value, position);
+            if (date != null && position.getIndex() == value.length()) {
+                return date;
+            }
+        }
+        throw new IllegalArgumentException("'" + value + "' is not a valid date, expected yyyy-MM-dd[THH:mm:ss]");
+    }
+
+    @Override
+    public String toString() {
+        return conditions.toString();
+    }
+
+    /**
+     * Comparison operators supported by conditions. Longer symbols come first so that parsing finds {@code <=}
+     * before {@code <}.
+     */
+    public enum Operator {
+
+        LESS_THAN_OR_EQUAL("<="),
+        GREATER_THAN_OR_EQUAL(">="),
+        NOT_EQUAL("<>"),
+        LESS_THAN("<"),
+        GREATER_THAN(">"),
+        EQUAL("=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        boolean test(int comparison) {
+            switch (this) {
+                case LESS_THAN_OR_EQUAL:
+                    return comparison <= 0;
+                case GREATER_THAN_OR_EQUAL:
+                    return comparison >= 0;
+                case NOT_EQUAL:
+                    return comparison != 0;
+                case LESS_THAN:
+                    return comparison < 0;
+                case GREATER_THAN:
+                    return comparison > 0;
+                default:
+                    return comparison == 0;
+            }
+        }
+
+    }
+
+    /**
+     * A comparison of a column with a constant.
+     */
+    public static class Condition {
+
+        private final String columnName;
+        private final Operator operator;
+        private final String value;
+
+        public Condition(String columnName, Operator operator, String value) {
+            this.columnName = columnName;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        static Condition parse(String expression) {
+            int operatorPosition = -1;
+            Operator operator = null;
+            for (Operator candidate : Operator.values()) {
+                int position = expression.indexOf(candidate.getSymbol());
+                if (position > 0 && (operatorPosition < 0 || position < operatorPosition)) {
+                    operatorPosition = position;
+                    operator = candidate;
+                }
+            }
+            if (operator == null) {
+                throw new IllegalArgumentException("'" + expression + "' is not a valid condition");
+            }
+
+            String columnName = expression.substring(0, operatorPosition).trim();
+            String value = expression.substring(operatorPosition + operator.getSymbol().length()).trim();
+            if (columnName.isEmpty() || value.isEmpty()) {
+                throw new IllegalArgumentException("'" + expression + "' is not a valid condition");
+            }
+            return new Condition(columnName, operator, value);
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return columnName + operator.getSymbol() + value;
+        }
+
+    }
+
+    /**
+     * A condition resolved against a table column with its constant converted to the column's Java type.
+     */
+    static class BoundCondition {
+
+        private final Column column;
+        private final Operator operator;
+        private final Comparable<?> value;
+
+        BoundCondition(Column column, Operator operator, Comparable<?> value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        Column getColumn() {
+            return column;
+        }
+
+        Operator getOperator() {
+            return operator;
+        }
+
+        Comparable<?> getValue() {
+            return value;
+        }
+
+        /**
+         * Returns {@code true} if the row matches the condition. Like in SQL a {@code null} value never matches.
+         *
+         * @param row the row
+         * @return {@code true} if the row matches, otherwise {@code false}
+         */
+        boolean matches(Row row) {
+            Object rowValue = row.get(column.getName());
+            if (rowValue == null) {
+                return false;
+            }
+            return operator.test(compare(rowValue, value));
+        }
+
+        /**
+         * Compares two values of the same column. Text is compared case-insensitively like Access does.
+         */
+        @SuppressWarnings("unchecked")
+        static int compare(Object left, Object right) {
+            if (left instanceof String) {
+                return String.CASE_INSENSITIVE_ORDER.compare((String) left, (String) right);
+            }
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies rows from the source to a {@link RowWriter} with two threads, so decoding the rows of the Access database
+ * overlaps with writing them to the target.
+ * <p>
+ * A reader thread decodes the rows into the slots of a bounded ring buffer, the calling thread writes them. The slots
+ * are {@code Object[]} arrays allocated once per pipeline: they cycle from a queue of free slots to the reader, from
+ * the reader to a queue of filled slots and from the writer back to the free slots. If the writer is slower than the
+ * reader, the reader blocks as soon as all slots are filled, and vice versa.
+ * <p>
+ * With a {@link MemoryBudget} the reader also blocks while the rows in the filled slots exceed the budget, so a
+ * table with wide rows does not fill all slots with megabytes of MEMO and OLE values.
+ */
+class RowPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowPipeline.class);
+
+    /**
+     * Default number of slots, large enough to smooth out the page-wise decoding of Jackcess and the batch-wise
+     * writing of the target.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Marks the end of the rows in the queue of filled slots.
+     */
+    private static final Object[] END = new Object[0];
+
+    private final List<? extends Column> columns;
+
+    private final BlockingQueue<Object[]> freeSlots;
+
+    private final BlockingQueue<Object[]> filledSlots;
+
+    private final MemoryBudget budget;
+
+    private volatile Throwable readerFailure;
+
+    private volatile boolean cancelled;
+
+    private volatile long readerAllocatedBytes;
+
+    RowPipeline(List<? extends Column> columns, int capacity) {
+        this(columns, capacity, null);
+    }
+
+    /**
+     * @param columns  the columns that are copied
+     * @param capacity the maximum number of rows in the pipeline
+     * @param budget   the maximum estimated size of the rows in the pipeline, {@code null} for no limit
+     */
+    RowPipeline(List<? extends Column> columns, int capacity, MemoryBudget budget) {
+        this.columns = columns;
+        this.budget = budget;
+        this.freeSlots = new ArrayBlockingQueue<>(capacity);
+        this.filledSlots = new ArrayBlockingQueue<>(capacity + 1);
+        for (int i = 0; i < capacity; i++) {
+            freeSlots.add(new Object[columns.size()]);
+        }
+    }
+
+    /**
+     * Writes all rows and returns after the last row was passed to the writer. The writer is not closed.
+     *
+     * @param rows      the rows to read, only ever accessed by the reader thread
+     * @param rowWriter the writer, only ever accessed by the calling thread
+     * @param metrics   the metrics that are updated for every written row
+     * @param throttle  the limits for the written rows and bytes
+     * @return the number of rows written
+     * @throws IOException  if the rows could not be read
+     * @throws SQLException if the rows could not be written
+     */
+    long run(Iterator<Row> rows, RowWriter rowWriter, ExportMetrics metrics, ExportThrottle throttle) throws IOException, SQLException {
+        metrics.setQueueDepth(filledSlots::size);
+        Thread reader = new Thread(() -> read(rows), "access-export-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long rowCount = 0;
+        boolean completed = false;
+        try {
+            Object[] slot;
+            while ((slot = filledSlots.take()) != END) {
+                long bytes = 0;
+                for (Object value : slot) {
+                    bytes += ExportMetrics.estimateSize(value);
+                }
+                long heapSize = budget == null ? 0 : MemoryBudget.estimateRowSize(slot, columns);
+                rowWriter.write(slot);
+                if (budget != null) {
+                    budget.release(heapSize);
+                }
+                freeSlots.put(slot);
+                metrics.rowWritten(bytes);
+                throttle.acquireWrite(bytes);
+                throttle.acquireRow();
+                rowCount++;
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rows");
+        } finally {
+            if (!completed) {
+                // the reader is not interrupted, that would close the file channel of the database
+                cancelled = true;
+            }
+            join(reader);
+        }
+
+        rethrowReaderFailure();
+        LOGGER.debug("Wrote {} rows through the pipeline", rowCount);
+        return rowCount;
+    }
+
+    private void read(Iterator<Row> rows) {
+        long allocatedAtStart = ResourceUsage.threadAllocatedBytes();
+        try {
+            while (!cancelled && rows.hasNext()) {
+                Row row = rows.next();
+                Object[] slot = takeFreeSlot();
+                if (slot == null) {
+                    return;
+                }
+                for (int i = 0; i < slot.length; i++) {
+                    slot[i] = row.get(columns.get(i).getName());
+                }
+                if (budget != null && !reserve(MemoryBudget.estimateRowSize(slot, columns))) {
+                    return;
+                }
+                // never blocks, the queue has room for all slots and the end marker
+                filledSlots.add(slot);
+            }
+        } catch (RuntimeException | Error e) {
+            readerFailure = e;
+        }
+        readerAllocatedBytes = ResourceUsage.threadAllocatedBytes() - allocatedAtStart;
+        filledSlots.add(END);
+    }
+
+    /**
+     * Returns the bytes the reader thread allocated while decoding the rows, after {@link #run} returned.
+     */
+    long getReaderAllocatedBytes() {
+        return readerAllocatedBytes;
+    }
+
+    /**
+     * Waits for a free slot, returns {@code null} if the writer failed in the meantime.
+     */
+    private Object[] takeFreeSlot() {
+        try {
+            Object[] slot = null;
+            while (slot == null && !cancelled) {
+                slot = freeSlots.poll(100, TimeUnit.MILLISECONDS);
+            }
+            return slot;
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Waits until the budget admits the row, returns {@code false} if the writer failed in the meantime.
+     */
+    private boolean reserve(long heapSize) {
+        try {
+            while (!cancelled) {
+                if (budget.tryAcquire(heapSize, 100)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void join(Thread reader) throws InterruptedIOException {
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader thread");
+        }
+    }
+
+    private void rethrowReaderFailure() throws IOException {
+        Throwable failure = readerFailure;
+        if (failure instanceof RuntimeIOException && failure.getCause() instanceof IOException) {
+            throw (IOException) failure.getCause();
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of an Access database into memory, for applications that embed the export and consume the rows
+ * directly instead of through a target database or files. The {@link ExportOptions} apply as for the exporters, so
+ * rows can be filtered, sampled and projected to some columns.
+ * <p>
+ * The rows of a table are pulled in {@link RowBatch batches}: each call to {@link Iterator#next()} decodes the next
+ * rows on the calling thread, nothing is read ahead. So a consumer that processes the rows slowly simply reads them
+ * slowly, and at most one batch is held in memory by the stream.
+ * <pre>
+ * RowStream stream = new RowStream(database, options);
+ * for (Iterator&lt;RowBatch&gt; batches = stream.batches("Orders"); batches.hasNext(); ) {
+ *     RowBatch batch = batches.next();
+ *     for (int row = 0; row &lt; batch.size(); row++) {
+ *         Integer orderId = batch.getValue(row, 0, Integer.class);
+ *     }
+ * }
+ * </pre>
+ */
+public class RowStream {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Database db;
+
+    private final ExportOptions options;
+
+    public RowStream(Database db) {
+        this(db, ExportOptions.DEFAULTS);
+    }
+
+    public RowStream(Database db, ExportOptions options) {
+        this.db = db;
+        this.options = options;
+    }
+
+    /**
+     * Returns the rows of a table in batches of {@value #DEFAULT_BATCH_SIZE} rows.
+     *
+     * @param tableName the name of the table
+     * @return the batches of rows
+     * @throws IOException if the table does not exist or could not be read
+     */
+    public Iterator<RowBatch> batches(String tableName) throws IOException {
+        return batches(tableName, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Returns the rows of a table in batches. Only the last batch may contain fewer rows. Failures while reading the
+     * rows are thrown as {@link com.healthmarketscience.jackcess.RuntimeIOException}.
+     *
+     * @param tableName the name of the table
+     * @param batchSize the maximum number of rows per batch
+     * @return the batches of rows
+     * @throws IOException if the table does not exist or could not be read
+     */
+    public Iterator<RowBatch> batches(String tableName, int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        Table table = db.getTable(tableName);
+        if (table == null) {
+            throw new IOException("Table '" + tableName + "' does not exist");
+        }
+        return new BatchIterator(options.getColumns(table), new TableScan(table, options).rows(), batchSize);
+    }
+
+    private static class BatchIterator implements Iterator<RowBatch> {
+
+        private final List<? extends Column> columns;
+
+        private final Iterator<Row> rows;
+
+        private final int batchSize;
+
+        BatchIterator(List<? extends Column> columns, Iterator<Row> rows, int batchSize) {
+            this.columns = columns;
+            this.rows = rows;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public RowBatch next() {
+            if (!rows.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[][] values = new Object[batchSize][];
+            int size = 0;
+            while (size < batchSize && rows.hasNext()) {
+                Row row = rows.next();
+                Object[] rowValues = new Object[columns.size()];
+                for (int i = 0; i < rowValues.length; i++) {
+                    rowValues[i] = row.get(columns.get(i).getName());
+                }
+                values[size++] = rowValues;
+            }
+            return new RowBatch(columns, values, size);
+        }
+
+    }
+
+}
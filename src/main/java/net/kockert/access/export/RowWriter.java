@@ -0,0 +1,56 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Writes the rows of one table into the target database or file. Implementations may buffer rows, all rows are
+ * written when the writer is closed.
+ * <p>
+ * Rows are passed as the values of the columns the writer was opened for, in the same order. The caller reuses the
+ * array for the next row, so implementations that keep values beyond the call have to copy them.
+ *
+ * @see SQLGenerator#openRowWriter(java.sql.Connection, com.healthmarketscience.jackcess.Table, java.util.List)
+ * @see ExportSink#openTable(com.healthmarketscience.jackcess.Table, java.util.List)
+ */
+public interface RowWriter extends AutoCloseable {
+
+    void write(Object[] values) throws SQLException, IOException;
+
+    /**
+     * Limits the estimated heap size of the rows the writer buffers, the writer sends its buffer to the target
+     * before the limit is exceeded. Writers that do not buffer rows on the heap ignore the limit.
+     *
+     * @param bytes the maximum size of the buffered rows
+     * @see MemoryBudget#estimateRowSize(Object[], java.util.List)
+     */
+    default void setMaxBufferedBytes(long bytes) {
+    }
+
+    /**
+     * Sets the number of insert statements per batch instead of the {@link SQLGenerator#getBatchSize() default of
+     * the dialect}. Writers that do not send batches ignore it.
+     *
+     * @param statements the number of statements per batch
+     */
+    default void setBatchSize(int statements) {
+    }
+
+    /**
+     * Chooses the number of insert statements per batch by the measured throughput while the rows are written,
+     * starting from the current batch size. Writers that do not send batches ignore it.
+     *
+     * @param autoTune whether to tune the batch size
+     * @see BatchSizeTuner
+     */
+    default void setAutoTuneBatchSize(boolean autoTune) {
+    }
+
+    @Override
+    void close() throws SQLException, IOException;
+
+}
@@ -0,0 +1,57 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the {@link SQLGenerator}s for the supported target databases, selected by the prefix of the JDBC URL.
+ * Targets without a registered dialect are served by the {@link GenericSQLGenerator}.
+ */
+public final class SQLDialects {
+
+    private static final Map<String, Supplier<SQLGenerator>> DIALECTS = new LinkedHashMap<>();
+
+    static {
+        register("jdbc:sqlite:", SQLiteSQLGenerator::new);
+        register("jdbc:h2:", H2SQLGenerator::new);
+        register("jdbc:hsqldb:", HSQLDBSQLGenerator::new);
+        register("jdbc:derby:", DerbySQLGenerator::new);
+        register("jdbc:duckdb:", DuckDBSQLGenerator::new);
+    }
+
+    private SQLDialects() {
+    }
+
+    /**
+     * Registers a dialect for all JDBC URLs starting with the given prefix, replacing any dialect registered for the
+     * same prefix.
+     *
+     * @param urlPrefix the prefix of the JDBC URLs, e.g. {@code jdbc:sqlite:}
+     * @param dialect   creates the SQL generator for the dialect
+     */
+    public static synchronized void register(String urlPrefix, Supplier<SQLGenerator> dialect) {
+        DIALECTS.put(urlPrefix.toLowerCase(), dialect);
+    }
+
+    /**
+     * Returns the SQL generator for the given JDBC URL.
+     *
+     * @param jdbcUrl the JDBC URL of the target database
+     * @return the SQL generator of the registered dialect or a {@link GenericSQLGenerator}
+     */
+    public static synchronized SQLGenerator forUrl(String jdbcUrl) {
+        String url = jdbcUrl.toLowerCase();
+        for (Map.Entry<String, Supplier<SQLGenerator>> dialect : DIALECTS.entrySet()) {
+            if (url.startsWith(dialect.getKey())) {
+                return dialect.getValue().get();
+            }
+        }
+        return new GenericSQLGenerator();
+    }
+
+}
@@ -4,18 +4,150 @@
 
 package net.kockert.access.export;
 
+import com.healthmarketscience.jackcess.Column;
 import com.healthmarketscience.jackcess.Index;
 import com.healthmarketscience.jackcess.Relationship;
 import com.healthmarketscience.jackcess.Table;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Generates the SQL statements for a target database and describes how to load data into it most efficiently.
+ *
+ * @see SQLDialects
+ */
 public interface SQLGenerator {
 
-    String createTable(Table table, List<Relationship> relationships);
+    default String createTable(Table table, List<Relationship> relationships) {
+        return createTable(table, table.getColumns(), relationships);
+    }
+
+    /**
+     * Creates a table with only the given columns. Key constraints are only created if all of their columns are
+     * part of the given columns.
+     */
+    String createTable(Table table, List<? extends Column> columns, List<Relationship> relationships);
+
+    /**
+     * Creates the foreign key constraints that have to be added after the data was loaded, because the dialect
+     * does not create them together with the table.
+     */
+    List<String> createForeignKeys(Table table, List<? extends Column> columns, List<Relationship> relationships);
 
     String createIndex(Index index);
 
-    String insertIntoTable(Table table);
+    /**
+     * Creates the views on a table, which are created right after the table.
+     */
+    default List<String> createViews(Table table, List<? extends Column> columns) {
+        return Collections.emptyList();
+    }
+
+    default String insertIntoTable(Table table) {
+        return insertIntoTable(table, table.getColumns());
+    }
+
+    /**
+     * Creates an insert statement with parameters for the given columns in the given order.
+     */
+    default String insertIntoTable(Table table, List<? extends Column> columns) {
+        return insertIntoTable(table, columns, 1);
+    }
+
+    /**
+     * Creates an insert statement with parameters for the given number of rows.
+     */
+    String insertIntoTable(Table table, List<? extends Column> columns, int rowCount);
+
+    /**
+     * Creates a query for the given columns of all rows of a table.
+     */
+    String selectFromTable(Table table, List<? extends Column> columns);
+
+    /**
+     * Returns the maximum number of rows to insert with a single statement. If it is greater than one, rows are
+     * inserted with multi-row {@code VALUES} clauses.
+     */
+    default int getMaxRowsPerInsert() {
+        return 1;
+    }
+
+    /**
+     * Returns the maximum number of parameters of a single statement.
+     */
+    default int getMaxParameters() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of insert statements that are sent to the database in one JDBC batch.
+     */
+    default int getBatchSize() {
+        return 1000;
+    }
+
+    /**
+     * Opens a writer for the rows of the given table, which uses the fastest way to load data into the target.
+     */
+    default RowWriter openRowWriter(Connection jdbcConnection, Table table, List<? extends Column> columns) throws SQLException {
+        return new JDBCRowWriter(this, jdbcConnection, table, columns);
+    }
+
+    /**
+     * Returns the statements that are executed before the tables are created, outside of the transaction of the
+     * export, e.g. to create side tables.
+     */
+    default List<String> beforeLoad() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the statements that are executed after all data was loaded, e.g. to collect statistics for the query
+     * planner.
+     */
+    default List<String> afterLoad() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns a query for the rows that violate foreign key constraints, with the name of the table in the first
+     * column and the name of the referenced table in the third column, or {@code null} if the dialect does not check
+     * them after the load.
+     */
+    default String checkForeignKeys() {
+        return null;
+    }
+
+    /**
+     * Returns a query for whether the connection enforces foreign keys, a single row with a boolean in the first
+     * column, or {@code null} if the dialect does not disable them during the load. If they are enforced, they are
+     * disabled before the tables are created and enabled again after the commit, otherwise the setting of the
+     * connection is left alone.
+     *
+     * @see #enforceForeignKeys(boolean)
+     */
+    default String queryForeignKeyEnforcement() {
+        return null;
+    }
+
+    /**
+     * Returns the statement that enables or disables the enforcement of foreign keys on the connection, outside of
+     * the transaction of the export.
+     *
+     * @see #queryForeignKeyEnforcement()
+     */
+    default String enforceForeignKeys(boolean enforce) {
+        throw new UnsupportedOperationException("Foreign keys are not disabled during the load");
+    }
+
+    /**
+     * Converts a value read by Jackcess to a value the JDBC driver accepts for the column.
+     */
+    default Object toParameter(Column column, Object value) {
+        return value;
+    }
 
 }
@@ -5,61 +5,101 @@
 package net.kockert.access.export;
 
 import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
 import com.healthmarketscience.jackcess.Index;
-import com.healthmarketscience.jackcess.Relationship;
 import com.healthmarketscience.jackcess.Table;
 
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+
+/**
+ * Generates SQL for SQLite. Identifiers are quoted as string constants and rows are inserted with multi-row
+ * {@code VALUES} clauses, which saves most of the round trips through the native driver.
+ * <p>
+ * With an optimized schema the tables are laid out for fast lookups: a primary key on a single integer column becomes
+ * an alias of the rowid, so the table is stored in key order without a separate index, other single-column keys are
+ * declared {@code NUMERIC} so they can hold fractional values, tables with composite keys are created
+ * {@code WITHOUT ROWID} unless they contain MEMO or OLE columns, which would make the rows too large for it, and
+ * statistics for the query planner are collected after the data was loaded. Optionally, GUIDs are stored as 16-byte
+ * BLOBs instead of 38 characters of text.
+ * <p>
+ * With deferred foreign keys, foreign key checks are disabled while the data is loaded, so the inserts do not look up
+ * the referenced rows one by one. All constraints are checked at once with {@code PRAGMA foreign_key_check} at the
+ * end of the load, and a connection that enforced foreign keys before the export enforces them again afterwards.
+ * <p>
+ * With deduplicated BLOBs, OLE and BINARY columns hold the id of their value in the table
+ * {@value BlobStore#TABLE_NAME}, which stores each distinct value once with its SHA-256 hash. Databases that repeat
+ * the same images or documents in many rows shrink accordingly. Optionally a view {@code <table>_resolved} per table
+ * joins the values back into the original shape of the table.
+ *
+ * @see <a href="https://www.sqlite.org/lang_createtable.html#rowid">ROWIDs and the INTEGER PRIMARY KEY</a>
+ * @see <a href="https://www.sqlite.org/withoutrowid.html">Clustered Indexes and the WITHOUT ROWID Optimization</a>
+ */
+public class SQLiteSQLGenerator extends AbstractSQLGenerator {
 
-public class SQLiteSQLGenerator implements SQLGenerator {
-
-    @Override
-    public String createTable(Table table, List<Relationship> relationships) {
-        final StringBuilder stmtBuilder = new StringBuilder();
+    /**
+     * The default maximum number of host parameters of an SQLite statement.
+     *
+     * @see <a href="https://www.sqlite.org/limits.html">Limits In SQLite</a>
+     */
+    private static final int MAX_VARIABLE_NUMBER = 999;
 
-        List<? extends Index.Column> primaryKeyColumns = getPrimaryKeyColumns(table);
+    private final boolean optimizeSchema;
 
-        String tableName = table.getName();
-        stmtBuilder.append("CREATE TABLE ");
-        stmtBuilder.append(createStringConstant(tableName));
-        stmtBuilder.append(" (");
+    private final boolean storeGuidsAsBlobs;
 
-        List<? extends Column> columns = table.getColumns();
-        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
-            Column column = iterator.next();
+    private final boolean deferForeignKeys;
 
-            stmtBuilder.append(createStringConstant(column.getName()));
-            stmtBuilder.append(" ");
-            stmtBuilder.append(mapDatatype(column));
+    private final boolean deduplicateBlobs;
 
-            if (isPrimaryKeyColumn(primaryKeyColumns, column)) {
-                stmtBuilder.append(" PRIMARY KEY");
-            }
+    private final boolean createBlobViews;
 
-            if (iterator.hasNext()) {
-                stmtBuilder.append(", ");
-            }
-        }
+    public SQLiteSQLGenerator() {
+        this(new SQLiteSQLGeneratorBuilder());
+    }
 
-        if (hasMultiplePrimaryKeyColumns(primaryKeyColumns)) {
-            stmtBuilder.append(", ");
-            stmtBuilder.append(createPrimaryKeyTableConstraint(primaryKeyColumns));
-        }
+    private SQLiteSQLGenerator(SQLiteSQLGeneratorBuilder builder) {
+        this.optimizeSchema = builder.optimizeSchema;
+        this.storeGuidsAsBlobs = builder.storeGuidsAsBlobs;
+        this.deferForeignKeys = builder.deferForeignKeys;
+        this.deduplicateBlobs = builder.deduplicateBlobs;
+        this.createBlobViews = builder.createBlobViews;
+    }
 
-        for (Relationship relationship : relationships) {
-            if (!relationship.getToTable().equals(table)) {
-                continue;
-            }
+    @Override
+    protected boolean inlineForeignKeys() {
+        return true;
+    }
 
-            stmtBuilder.append(", ");
-            stmtBuilder.append(createForeignKeyTableConstraint(relationship));
+    /**
+     * In an optimized schema only primary keys on integer columns are declared as {@code INTEGER PRIMARY KEY}, which
+     * makes them an alias of the rowid. Keys on currency, dates or booleans are declared {@code NUMERIC}: SQLite
+     * makes every column declared exactly {@code INTEGER} that is the only primary key column a rowid alias, which
+     * rejects fractional values like {@code 3.21} with a datatype mismatch.
+     */
+    @Override
+    protected String mapPrimaryKeyDatatype(Column column) {
+        String datatype = mapDatatype(column);
+        if (optimizeSchema && datatype.equals("INTEGER") && !isInteger(column.getType())) {
+            return "NUMERIC";
         }
+        return datatype;
+    }
 
-        stmtBuilder.append(")");
+    private boolean isInteger(DataType type) {
+        return type == DataType.BYTE || type == DataType.INT || type == DataType.LONG;
+    }
 
-        return stmtBuilder.toString();
+    @Override
+    protected String createTableOptions(List<? extends Column> columns, List<? extends Index.Column> primaryKeyColumns) {
+        if (!optimizeSchema || primaryKeyColumns.size() < 2) {
+            return "";
+        }
+        for (Column column : columns) {
+            if (column.getType() == DataType.MEMO || column.getType() == DataType.OLE) {
+                return "";
+            }
+        }
+        return " WITHOUT ROWID";
     }
 
     /**
@@ -69,12 +109,16 @@ public class SQLiteSQLGenerator implements SQLGenerator {
      * @return an SQLite datatype
      * @see <a href="https://www.sqlite.org/datatype3.html">Datatypes in SQLite</a>
      */
-    private String mapDatatype(Column column) {
+    @Override
+    protected String mapDatatype(Column column) {
         switch (column.getType()) {
             /* Blob */
             case BINARY:
             case OLE:
-                return "BLOB";
+                return deduplicateBlobs ? "INTEGER" : "BLOB";
+
+            case GUID:
+                return storeGuidsAsBlobs ? "BLOB" : "TEXT";
 
             /* Integers */
             case BOOLEAN:
@@ -95,7 +139,6 @@ public class SQLiteSQLGenerator implements SQLGenerator {
 
             /* Strings */
             case TEXT:
-            case GUID:
             case MEMO:
                 return "TEXT";
 
@@ -105,177 +148,248 @@ public class SQLiteSQLGenerator implements SQLGenerator {
     }
 
     /**
-     * Returns {@code true} if the primary key consists solely of the given column.
+     * Creates a string constant for SQLite.
      *
-     * @param primaryKeyColumns the columns of the primary key
-     * @param column the column
-     * @return {@code true} if the column is the only column of the primary key, otherwise {@code false}
+     * @param string the string to create a constant from
+     * @return the string as a SQLite string constant
+     * @see <a href="http://www.sqlite.org/lang_expr.html">SQL As Understood By SQLite</a>
      */
-    private boolean isPrimaryKeyColumn(List<? extends Index.Column> primaryKeyColumns, Column column) {
-        return primaryKeyColumns.size() == 1 && primaryKeyColumns.get(0).getColumn().equals(column);
+    private String createStringConstant(String string) {
+        return "'" + string.replace("'", "''") + "'";
     }
 
-    /**
-     * Returns {@code true} if the primary key consists of more than one column.
-     *
-     * @param primaryKeyColumns the columns of the primary key
-     * @return {@code true} if the primary key consists of more than one column, otherwise {@code false}
-     */
-    private boolean hasMultiplePrimaryKeyColumns(List<? extends Index.Column> primaryKeyColumns) {
-        return primaryKeyColumns.size() > 1;
+    @Override
+    protected String quoteIdentifier(String identifier) {
+        return createStringConstant(identifier);
     }
 
     /**
-     * Creates a primary key table constraint for multiple columns, e.g.
-     * <pre>
-     * PRIMARY KEY('column1', 'column2')
-     * </pre>
-     *
-     * @param primaryKeyColumns the columns of the primary key
-     * @return a primary key table contraint
-     * @see <a href="https://www.sqlite.org/syntax/table-constraint.html">SQLite table-contraint</a>
+     * Creates a query with identifiers in double quotes, since string constants in a result column would be
+     * selected as values.
      */
-    private String createPrimaryKeyTableConstraint(List<? extends Index.Column> primaryKeyColumns) {
+    @Override
+    public String selectFromTable(Table table, List<? extends Column> columns) {
         final StringBuilder stmtBuilder = new StringBuilder();
 
-        stmtBuilder.append("PRIMARY KEY(");
-        for (Iterator<? extends Index.Column> iterator = primaryKeyColumns.iterator(); iterator.hasNext(); ) {
-            stmtBuilder.append(createStringConstant(iterator.next().getName()));
+        stmtBuilder.append("SELECT ");
+        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
+            stmtBuilder.append(quoteName(iterator.next().getName()));
             if (iterator.hasNext()) {
                 stmtBuilder.append(", ");
             }
         }
-        stmtBuilder.append(")");
+        stmtBuilder.append(" FROM ");
+        stmtBuilder.append(quoteName(table.getName()));
 
         return stmtBuilder.toString();
     }
 
     /**
-     * Creates a foreign key table constraint, e.g.
-     * <pre>
-     * FOREIGN KEY('otherTableId') REFERENCES otherTable('id')
-     * </pre>
+     * Creates the statement that attaches another database file under the given schema name. The file name is
+     * bound as the only parameter.
      *
-     * @param relationship the relationship from the Access database
-     * @return a foreign key constraint
-     * @see <a href="https://www.sqlite.org/syntax/table-constraint.html">SQLite table-contraint</a>
-     * @see <a href="https://www.sqlite.org/syntax/foreign-key-clause.html">SQLite foreign-key-clause</a>
+     * @param schemaName the name of the attached database
+     * @return the {@code ATTACH} statement
      */
-    private String createForeignKeyTableConstraint(Relationship relationship) {
-        final StringBuilder stmtBuilder = new StringBuilder();
+    String attachDatabase(String schemaName) {
+        return "ATTACH DATABASE ? AS " + quoteName(schemaName);
+    }
 
-        stmtBuilder.append("FOREIGN KEY(");
-        for (Iterator<Column> iterator = relationship.getToColumns().iterator(); iterator.hasNext(); ) {
-            Column foreignKeyColumn = iterator.next();
-            stmtBuilder.append(createStringConstant(foreignKeyColumn.getName()));
-            if (iterator.hasNext()) {
-                stmtBuilder.append(", ");
-            }
-        }
-        stmtBuilder.append(") REFERENCES ");
-        stmtBuilder.append(createStringConstant(relationship.getFromTable().getName()));
-        stmtBuilder.append("(");
-        for (Iterator<Column> iterator = relationship.getFromColumns().iterator(); iterator.hasNext(); ) {
-            Column referencedColumn = iterator.next();
-            stmtBuilder.append(createStringConstant(referencedColumn.getName()));
-            if (iterator.hasNext()) {
-                stmtBuilder.append(", ");
-            }
-        }
-        stmtBuilder.append(")");
+    String detachDatabase(String schemaName) {
+        return "DETACH DATABASE " + quoteName(schemaName);
+    }
 
-        return stmtBuilder.toString();
+    /**
+     * Creates the statement that copies all rows of a table from an attached database into the table of the same
+     * name in the main database. Both tables must have been created with the same definition, then SQLite copies
+     * the records without decoding them.
+     *
+     * @param table      the table to copy
+     * @param schemaName the name of the attached database
+     * @return the {@code INSERT INTO ... SELECT} statement
+     * @see <a href="https://www.sqlite.org/lang_insert.html">INSERT</a>
+     */
+    String copyFromDatabase(Table table, String schemaName) {
+        String tableName = quoteName(table.getName());
+        return "INSERT INTO main." + tableName + " SELECT * FROM " + quoteName(schemaName) + "." + tableName;
     }
 
     /**
-     * Searches for a primary key index on the given table and returns the columns that were used for the index key.
-     * If the table does not have a primary key index the returned list will be empty.
+     * Creates the statement that copies the deduplicated values from an attached database into the main database.
+     * The ids of the values must not overlap, i.e. they must have been assigned by the same {@link BlobStore}.
      *
-     * @param table the table on which to search for a primary key index
-     * @return the list of columns used for the index key or an empty list, if no primary key index exists
+     * @param schemaName the name of the attached database
+     * @return the {@code INSERT INTO ... SELECT} statement
+     */
+    String copyBlobsFromDatabase(String schemaName) {
+        String tableName = quoteName(BlobStore.TABLE_NAME);
+        return "INSERT INTO main." + tableName + " SELECT * FROM " + quoteName(schemaName) + "." + tableName;
+    }
+
+    /**
+     * Returns {@code true} if the values of OLE and BINARY columns are stored in a {@link BlobStore}, whose rows the
+     * exporter writes with a {@link DeduplicatingRowWriter}.
+     */
+    boolean isDeduplicatingBlobs() {
+        return deduplicateBlobs;
+    }
+
+    /**
+     * Creates a view that selects the deduplicated values instead of their ids, if views are requested and the
+     * table has binary columns.
      */
-    private List<? extends Index.Column> getPrimaryKeyColumns(Table table) {
-        for (Index index : table.getIndexes()) {
-            if (index.isPrimaryKey()) {
-                return index.getColumns();
+    @Override
+    public List<String> createViews(Table table, List<? extends Column> columns) {
+        if (!deduplicateBlobs || !createBlobViews || columns.stream().noneMatch(DeduplicatingRowWriter::isDeduplicated)) {
+            return Collections.emptyList();
+        }
+        String tableName = quoteName(table.getName());
+        String blobTableName = quoteName(BlobStore.TABLE_NAME);
+        StringJoiner select = new StringJoiner(", ");
+        for (Column column : columns) {
+            String columnName = quoteName(column.getName());
+            if (DeduplicatingRowWriter.isDeduplicated(column)) {
+                select.add("(SELECT " + blobTableName + ".\"data\" FROM " + blobTableName + " WHERE " + blobTableName
+                        + ".\"id\" = " + tableName + "." + columnName + ") AS " + columnName);
+            } else {
+                select.add(tableName + "." + columnName);
             }
         }
+        return Collections.singletonList("CREATE VIEW " + quoteName(table.getName() + "_resolved")
+                + " AS SELECT " + select + " FROM " + tableName);
+    }
+
+    private String quoteName(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public int getMaxRowsPerInsert() {
+        return 100;
+    }
 
-        return Collections.emptyList();
+    @Override
+    public int getMaxParameters() {
+        return MAX_VARIABLE_NUMBER;
     }
 
     /**
-     * Creates a string constant for SQLite.
-     *
-     * @param string the string to create a constant from
-     * @return the string as a SQLite string constant
-     * @see <a href="http://www.sqlite.org/lang_expr.html">SQL As Understood By SQLite</a>
+     * Runs {@code ANALYZE} for an optimized schema, so the query planner knows the selectivity of the indexes.
+     * {@code PRAGMA optimize} is executed as well, it is ignored by SQLite versions that do not know it.
      */
-    private String createStringConstant(String string) {
-        return "'" + string.replace("'", "''") + "'";
+    @Override
+    public List<String> afterLoad() {
+        if (!optimizeSchema) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList("ANALYZE", "PRAGMA optimize");
     }
 
     @Override
-    public String createIndex(Index index) {
-        List<? extends Index.Column> columns = index.getColumns();
+    public List<String> beforeLoad() {
+        List<String> statements = new ArrayList<>();
+        if (deduplicateBlobs) {
+            statements.add(BlobStore.createTable());
+        }
+        return statements;
+    }
 
-        final StringBuilder stmtBuilder = new StringBuilder();
+    @Override
+    public String checkForeignKeys() {
+        return deferForeignKeys ? "PRAGMA foreign_key_check" : null;
+    }
 
-        final String tableName = index.getTable().getName();
-        final String indexName = tableName + "_" + index.getName();
+    @Override
+    public String queryForeignKeyEnforcement() {
+        return deferForeignKeys ? "PRAGMA foreign_keys" : null;
+    }
 
-        stmtBuilder.append("CREATE ");
-        if (index.isUnique()) {
-            stmtBuilder.append("UNIQUE ");
-        }
-        stmtBuilder.append("INDEX ");
-        stmtBuilder.append(createStringConstant(indexName));
-        stmtBuilder.append(" ON ");
-        stmtBuilder.append(createStringConstant(tableName));
-        stmtBuilder.append("(");
-
-        for (Iterator<? extends Index.Column> iterator = columns.iterator(); iterator.hasNext(); ) {
-            Index.Column column = iterator.next();
-            stmtBuilder.append(createStringConstant(column.getName()));
-            if (iterator.hasNext())
-                stmtBuilder.append(", ");
+    @Override
+    public String enforceForeignKeys(boolean enforce) {
+        return "PRAGMA foreign_keys = " + (enforce ? "ON" : "OFF");
+    }
+
+    @Override
+    public Object toParameter(Column column, Object value) {
+        if (storeGuidsAsBlobs && column.getType() == DataType.GUID) {
+            return toBytes((String) value);
         }
-        stmtBuilder.append(")");
+        return value;
+    }
 
-        return stmtBuilder.toString();
+    /**
+     * Converts a GUID like {@code {6B29FC40-CA47-1067-B31D-00DD010662DA}} to 16 bytes in the order of its string
+     * representation.
+     */
+    static byte[] toBytes(String guid) {
+        String hex = guid.replaceAll("[{}-]", "");
+        if (hex.length() != 32) {
+            throw new IllegalArgumentException("Invalid GUID: " + guid);
+        }
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
     }
 
-    @Override
-    public String insertIntoTable(Table table) {
-        final StringBuilder stmtBuilder = new StringBuilder();
+    public static class SQLiteSQLGeneratorBuilder {
 
-        stmtBuilder.append("INSERT INTO ");
-        stmtBuilder.append(createStringConstant(table.getName()));
-        stmtBuilder.append(" (");
+        private boolean optimizeSchema;
 
-        final List<? extends Column> columns = table.getColumns();
+        private boolean storeGuidsAsBlobs;
 
-        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
-            Column column = iterator.next();
-            stmtBuilder.append(createStringConstant(column.getName()));
-            if (iterator.hasNext()) {
-                stmtBuilder.append(", ");
-            }
+        private boolean deferForeignKeys;
+
+        private boolean deduplicateBlobs;
+
+        private boolean createBlobViews;
+
+        /**
+         * Creates rowid aliases and {@code WITHOUT ROWID} tables for primary keys and collects statistics after the
+         * data was loaded.
+         */
+        public SQLiteSQLGeneratorBuilder optimizeSchema(boolean optimizeSchema) {
+            this.optimizeSchema = optimizeSchema;
+            return this;
         }
 
-        stmtBuilder.append(") VALUES (");
+        /**
+         * Stores GUIDs as 16-byte BLOBs instead of text.
+         */
+        public SQLiteSQLGeneratorBuilder storeGuidsAsBlobs(boolean storeGuidsAsBlobs) {
+            this.storeGuidsAsBlobs = storeGuidsAsBlobs;
+            return this;
+        }
 
-        for (Iterator<? extends Column> iterator = columns.iterator(); iterator.hasNext(); ) {
-            iterator.next();
-            stmtBuilder.append("?");
-            if (iterator.hasNext()) {
-                stmtBuilder.append(", ");
-            }
+        /**
+         * Disables foreign key checks during the load and checks all foreign keys once at the end.
+         */
+        public SQLiteSQLGeneratorBuilder deferForeignKeys(boolean deferForeignKeys) {
+            this.deferForeignKeys = deferForeignKeys;
+            return this;
         }
 
-        stmtBuilder.append(")");
+        /**
+         * Stores each distinct value of OLE and BINARY columns once in a side table and only its id in the rows.
+         */
+        public SQLiteSQLGeneratorBuilder deduplicateBlobs(boolean deduplicateBlobs) {
+            this.deduplicateBlobs = deduplicateBlobs;
+            return this;
+        }
+
+        /**
+         * Creates a view per table with deduplicated values, which shows the values instead of their ids.
+         */
+        public SQLiteSQLGeneratorBuilder createBlobViews(boolean createBlobViews) {
+            this.createBlobViews = createBlobViews;
+            return this;
+        }
+
+        public SQLiteSQLGenerator build() {
+            return new SQLiteSQLGenerator(this);
+        }
 
-        return stmtBuilder.toString();
     }
 
 }
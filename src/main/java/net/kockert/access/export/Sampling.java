@@ -0,0 +1,259 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RuntimeIOException;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Selects a sample of the rows of a table while the table is scanned, e.g. for previews or test fixtures.
+ * <p>
+ * Rows that are skipped by the sampling are not decoded if the underlying {@link Rows} can skip rows cheaply, and
+ * the scan stops as soon as no more rows can be selected.
+ */
+public class Sampling {
+
+    /**
+     * Selects all rows.
+     */
+    public static final Sampling NONE = new Sampling(Mode.ALL, 0, 0);
+
+    private enum Mode {
+        ALL, FIRST, EVERY, RESERVOIR
+    }
+
+    private final Mode mode;
+    private final int size;
+    private final long seed;
+
+    private Sampling(Mode mode, int size, long seed) {
+        this.mode = mode;
+        this.size = size;
+        this.seed = seed;
+    }
+
+    /**
+     * Selects the first {@code n} rows of each table.
+     *
+     * @param n the number of rows
+     * @return the sampling
+     */
+    public static Sampling first(int n) {
+        return new Sampling(Mode.FIRST, requirePositive(n), 0);
+    }
+
+    /**
+     * Selects every {@code n}-th row of each table, starting with the first.
+     *
+     * @param n the distance between selected rows
+     * @return the sampling
+     */
+    public static Sampling every(int n) {
+        return new Sampling(Mode.EVERY, requirePositive(n), 0);
+    }
+
+    /**
+     * Selects {@code n} uniformly distributed random rows of each table. The same seed selects the same rows from
+     * the same table. The selected rows keep their original order.
+     *
+     * @param n    the number of rows
+     * @param seed the seed for the random number generator
+     * @return the sampling
+     */
+    public static Sampling reservoir(int n, long seed) {
+        return new Sampling(Mode.RESERVOIR, requirePositive(n), seed);
+    }
+
+    /**
+     * Parses a sampling of the form {@code first:<n>}, {@code every:<n>} or {@code reservoir:<n>[:<seed>]}.
+     *
+     * @param specification the sampling to parse
+     * @return the sampling
+     * @throws IllegalArgumentException if the specification is not valid
+     */
+    public static Sampling parse(String specification) {
+        String[] parts = specification.split(":");
+        try {
+            if (parts.length == 2 && parts[0].equalsIgnoreCase("first")) {
+                return first(Integer.parseInt(parts[1]));
+            } else if (parts.length == 2 && parts[0].equalsIgnoreCase("every")) {
+                return every(Integer.parseInt(parts[1]));
+            } else if (parts.length == 2 && parts[0].equalsIgnoreCase("reservoir")) {
+                return reservoir(Integer.parseInt(parts[1]), 0);
+            } else if (parts.length == 3 && parts[0].equalsIgnoreCase("reservoir")) {
+                return reservoir(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + specification + "' is not a valid sampling", e);
+        }
+        throw new IllegalArgumentException("'" + specification + "' is not a valid sampling, expected "
+                + "'first:<n>', 'every:<n>' or 'reservoir:<n>[:<seed>]'");
+    }
+
+    private static int requirePositive(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Sample size must be positive: " + n);
+        }
+        return n;
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.ALL;
+    }
+
+    /**
+     * Returns the sampled rows.
+     *
+     * @param rows the rows of the table
+     * @return the sampled rows
+     * @throws IOException if the rows could not be read
+     */
+    Iterator<Row> sample(Rows rows) throws IOException {
+        switch (mode) {
+            case FIRST:
+                return new SamplingIterator(rows, 0, size);
+            case EVERY:
+                return new SamplingIterator(rows, size - 1, Long.MAX_VALUE);
+            case RESERVOIR:
+                return reservoirSample(rows).iterator();
+            default:
+                return new SamplingIterator(rows, 0, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Reservoir sampling with Li's "Algorithm L", which computes how many rows to skip until the next replacement
+     * instead of drawing a random number for every row.
+     *
+     * @see <a href="https://dl.acm.org/doi/10.1145/198429.198435">Li, K.-H.: Reservoir-sampling algorithms of time
+     * complexity O(n(1 + log(N/n)))</a>
+     */
+    private List<Row> reservoirSample(Rows rows) throws IOException {
+        Random random = new Random(seed);
+        List<Row> reservoir = new ArrayList<>(size);
+        List<Long> positions = new ArrayList<>(size);
+
+        long position = 0;
+        Row row;
+        while (reservoir.size() < size && (row = rows.next()) != null) {
+            reservoir.add(row);
+            positions.add(position++);
+        }
+
+        if (reservoir.size() == size) {
+            double w = Math.exp(Math.log(random.nextDouble()) / size);
+            while (true) {
+                long skip = (long) Math.floor(Math.log(random.nextDouble()) / Math.log(1 - w));
+                long skipped = rows.skip(skip);
+                position += skipped;
+                if (skipped < skip || (row = rows.next()) == null) {
+                    break;
+                }
+                int slot = random.nextInt(size);
+                reservoir.set(slot, row);
+                positions.set(slot, position++);
+                w *= Math.exp(Math.log(random.nextDouble()) / size);
+            }
+        }
+
+        // restore the original order of the rows
+        Integer[] order = new Integer[reservoir.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(positions::get));
+        List<Row> sample = new ArrayList<>(order.length);
+        for (Integer index : order) {
+            sample.add(reservoir.get(index));
+        }
+        return sample;
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case FIRST:
+                return "first:" + size;
+            case EVERY:
+                return "every:" + size;
+            case RESERVOIR:
+                return "reservoir:" + size + ":" + seed;
+            default:
+                return "all";
+        }
+    }
+
+    /**
+     * Source of the rows to sample from.
+     */
+    interface Rows {
+
+        /**
+         * Returns the next row or {@code null}, if there are no more rows.
+         */
+        Row next() throws IOException;
+
+        /**
+         * Skips up to the given number of rows, preferably without decoding them.
+         *
+         * @return the number of rows actually skipped
+         */
+        long skip(long n) throws IOException;
+
+    }
+
+    /**
+     * Returns a row, then skips a fixed number of rows, until a limit is reached.
+     */
+    private static class SamplingIterator implements Iterator<Row> {
+
+        private final Rows rows;
+        private final int gap;
+        private long remaining;
+        private Row next;
+        private boolean first = true;
+
+        SamplingIterator(Rows rows, int gap, long limit) {
+            this.rows = rows;
+            this.gap = gap;
+            this.remaining = limit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && remaining > 0) {
+                try {
+                    if (first || rows.skip(gap) == gap) {
+                        next = rows.next();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                }
+                first = false;
+                if (next == null) {
+                    remaining = 0;
+                } else {
+                    remaining--;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            return row;
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Adds the rows to the {@link TableStatistics} of their table before they are passed to another writer.
+ */
+class StatisticsRowWriter implements RowWriter {
+
+    private final RowWriter rowWriter;
+
+    private final TableStatistics statistics;
+
+    StatisticsRowWriter(RowWriter rowWriter, TableStatistics statistics) {
+        this.rowWriter = rowWriter;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void write(Object[] values) throws SQLException, IOException {
+        statistics.add(values);
+        rowWriter.write(values);
+    }
+
+    @Override
+    public void setMaxBufferedBytes(long bytes) {
+        rowWriter.setMaxBufferedBytes(bytes);
+    }
+
+    @Override
+    public void setBatchSize(int statements) {
+        rowWriter.setBatchSize(statements);
+    }
+
+    @Override
+    public void setAutoTuneBatchSize(boolean autoTune) {
+        rowWriter.setAutoTuneBatchSize(autoTune);
+    }
+
+    @Override
+    public void close() throws SQLException, IOException {
+        rowWriter.close();
+    }
+
+}
@@ -0,0 +1,71 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.util.Arrays;
+
+/**
+ * Order-independent fingerprint of the rows of a table: the number of rows and, per column, the sum of 64-bit hashes
+ * of all values. Two tables with the same rows in any order have equal digests.
+ * <p>
+ * Values are passed in a canonical string form, so values read from different sources can be compared, e.g. the
+ * Jackcess value of a row and the text of the corresponding CSV field.
+ */
+class TableDigest {
+
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+    private final long[] columnHashes;
+
+    private long rowCount;
+
+    TableDigest(int columnCount) {
+        this.columnHashes = new long[columnCount];
+    }
+
+    /**
+     * Adds a row.
+     *
+     * @param values the canonical values of the row, {@code null} for null values
+     */
+    void add(String[] values) {
+        for (int i = 0; i < columnHashes.length; i++) {
+            columnHashes[i] += hash(values[i]);
+        }
+        rowCount++;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    boolean columnEquals(TableDigest other, int column) {
+        return columnHashes[column] == other.columnHashes[column];
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with the mixing function of SplitMix64, so that the sum of the
+     * hashes does not cancel out for similar values.
+     */
+    static long hash(String value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "TableDigest{rowCount=" + rowCount + ", columnHashes=" + Arrays.toString(columnHashes) + "}";
+    }
+
+}
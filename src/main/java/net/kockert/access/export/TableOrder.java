@@ -0,0 +1,101 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.Relationship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Orders tables so that every table comes after the tables it references, i.e. rows are loaded before the rows
+ * that refer to them.
+ */
+class TableOrder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableOrder.class);
+
+    private TableOrder() {
+    }
+
+    /**
+     * Returns the tables of a database to export in load order, referenced tables before the tables referencing them.
+     *
+     * @param db             the source database
+     * @param tablesToExport the names of the tables to export, all tables if empty
+     * @return the names of the existing tables in load order
+     * @throws IOException if the relationships could not be read
+     */
+    static List<String> loadOrder(Database db, Set<String> tablesToExport) throws IOException {
+        Set<String> tableNames = tablesToExport.isEmpty() ? db.getTableNames()
+                : db.getTableNames().stream().filter(tablesToExport::contains).collect(Collectors.toSet());
+        Map<String, Set<String>> referencedTables = new HashMap<>();
+        for (String tableName : tableNames) {
+            Set<String> references = new HashSet<>();
+            for (Relationship relationship : db.getRelationships(db.getTable(tableName))) {
+                if (relationship.getToTable().getName().equals(tableName)) {
+                    references.add(relationship.getFromTable().getName());
+                }
+            }
+            referencedTables.put(tableName, references);
+        }
+        return sort(referencedTables);
+    }
+
+    /**
+     * Sorts the tables topologically. Tables without dependencies between them are sorted by name, tables that are
+     * part of a reference cycle are appended by name, references to themselves are ignored.
+     *
+     * @param referencedTables the names of the tables each table references, tables that are not keys of the map
+     *                         are ignored
+     * @return the names of all tables in load order
+     */
+    static List<String> sort(Map<String, Set<String>> referencedTables) {
+        Map<String, Set<String>> remainingReferences = new TreeMap<>();
+        Map<String, Set<String>> referencingTables = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : referencedTables.entrySet()) {
+            Set<String> references = new HashSet<>();
+            for (String referencedTable : entry.getValue()) {
+                if (!referencedTable.equals(entry.getKey()) && referencedTables.containsKey(referencedTable)) {
+                    references.add(referencedTable);
+                    referencingTables.computeIfAbsent(referencedTable, name -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+            remainingReferences.put(entry.getKey(), references);
+        }
+
+        List<String> order = new ArrayList<>(referencedTables.size());
+        SortedSet<String> ready = new TreeSet<>();
+        remainingReferences.forEach((tableName, references) -> {
+            if (references.isEmpty()) {
+                ready.add(tableName);
+            }
+        });
+        while (!ready.isEmpty()) {
+            String tableName = ready.first();
+            ready.remove(tableName);
+            remainingReferences.remove(tableName);
+            order.add(tableName);
+            for (String referencingTable : referencingTables.getOrDefault(tableName, Collections.emptySet())) {
+                Set<String> references = remainingReferences.get(referencingTable);
+                if (references != null && references.remove(tableName) && references.isEmpty()) {
+                    ready.add(referencingTable);
+                }
+            }
+        }
+
+        if (!remainingReferences.isEmpty()) {
+            LOGGER.debug("Tables {} reference each other, they are loaded in the order of their names",
+                    remainingReferences.keySet());
+            order.addAll(remainingReferences.keySet());
+        }
+        return order;
+    }
+
+}
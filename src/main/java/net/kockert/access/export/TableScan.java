@@ -0,0 +1,295 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the rows of a table that match the {@link ExportOptions} for that table.
+ * <p>
+ * If only some columns of the table are exported, the rows are read with just these columns (plus the columns the
+ * row filter needs), so Jackcess never decodes the values of the other columns, most notably large MEMO and OLE
+ * values.
+ * <p>
+ * If a single-column index covers a column of the row filter, the comparisons on that column are turned into an
+ * index range, so only the matching part of the table is read. All conditions are checked row by row in any case,
+ * which also serves as the fallback if no suitable index exists.
+ * <p>
+ * Without such an index, the rows are read in the order of the data pages, or, if requested, through the primary key
+ * index in key order. Then every row lands at the end of the primary key of the target instead of a random position.
+ */
+class TableScan {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableScan.class);
+
+    private final Table table;
+
+    private final List<RowFilter.BoundCondition> conditions;
+
+    private final Set<String> columnNames;
+
+    private final Sampling sampling;
+
+    private final boolean primaryKeyOrder;
+
+    TableScan(Table table, ExportOptions options) {
+        this.table = table;
+        this.conditions = options.getRowFilter(table.getName()).bind(table);
+        this.columnNames = options.hasColumnProjection(table.getName()) ? getColumnNames(options) : null;
+        this.sampling = options.getSampling();
+        this.primaryKeyOrder = options.isPrimaryKeyOrder();
+    }
+
+    private Set<String> getColumnNames(ExportOptions options) {
+        Set<String> names = new HashSet<>();
+        for (Column column : options.getColumns(table)) {
+            names.add(column.getName());
+        }
+        for (RowFilter.BoundCondition condition : conditions) {
+            names.add(condition.getColumn().getName());
+        }
+        return names;
+    }
+
+    /**
+     * Returns the matching rows of the table.
+     *
+     * @return the matching rows
+     * @throws IOException if the cursor could not be created
+     */
+    Iterator<Row> rows() throws IOException {
+        Cursor cursor = createCursor();
+        if (!sampling.isEnabled()) {
+            Iterable<Row> rows = cursor.newIterable().setColumnNames(columnNames);
+            if (conditions.isEmpty()) {
+                return rows.iterator();
+            }
+            return StreamSupport.stream(rows.spliterator(), false).filter(this::matches).iterator();
+        }
+
+        if (conditions.isEmpty()) {
+            return sampling.sample(new CursorRows(cursor));
+        }
+        return sampling.sample(new FilteredRows(cursor));
+    }
+
+    private boolean matches(Row row) {
+        for (RowFilter.BoundCondition condition : conditions) {
+            if (!condition.matches(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Cursor createCursor() throws IOException {
+        IndexRange bestRange = null;
+        for (Index index : table.getIndexes()) {
+            IndexRange range = IndexRange.forIndex(index, conditions);
+            if (range != null && (bestRange == null || range.selectivity() > bestRange.selectivity())) {
+                bestRange = range;
+            }
+        }
+
+        if (bestRange == null) {
+            Index primaryKeyIndex = primaryKeyOrder ? getPrimaryKeyIndex() : null;
+            if (primaryKeyIndex == null) {
+                return CursorBuilder.createCursor(table);
+            }
+            LOGGER.debug("Reading table '{}' in primary key order", table.getName());
+            return CursorBuilder.createCursor(primaryKeyIndex);
+        }
+
+        LOGGER.debug("Reading table '{}' using index '{}'", table.getName(), bestRange.index.getName());
+        return bestRange.toCursor();
+    }
+
+    private Index getPrimaryKeyIndex() {
+        for (Index index : table.getIndexes()) {
+            if (index.isPrimaryKey()) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rows read directly from the cursor, skipped rows are not decoded.
+     */
+    private class CursorRows implements Sampling.Rows {
+
+        private final Cursor cursor;
+
+        CursorRows(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            return cursor.getNextRow(columnNames);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                int moved = cursor.moveNextRows((int) Math.min(n - skipped, Integer.MAX_VALUE));
+                if (moved == 0) {
+                    break;
+                }
+                skipped += moved;
+            }
+            return skipped;
+        }
+
+    }
+
+    /**
+     * Rows of the cursor that match the row filter, every row has to be decoded to evaluate the filter.
+     */
+    private class FilteredRows implements Sampling.Rows {
+
+        private final Cursor cursor;
+
+        FilteredRows(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            Row row;
+            do {
+                row = cursor.getNextRow(columnNames);
+            } while (row != null && !matches(row));
+            return row;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && next() != null) {
+                skipped++;
+            }
+            return skipped;
+        }
+
+    }
+
+    /**
+     * A range on a single-column index built from the conditions on the indexed column.
+     */
+    private static class IndexRange {
+
+        private final Index index;
+        private Object lower;
+        private boolean lowerInclusive;
+        private Object upper;
+        private boolean upperInclusive;
+        private boolean equality;
+
+        private IndexRange(Index index) {
+            this.index = index;
+        }
+
+        /**
+         * Creates a range for the given index or returns {@code null}, if the index can not be used for the
+         * conditions.
+         */
+        static IndexRange forIndex(Index index, List<RowFilter.BoundCondition> conditions) {
+            List<? extends Index.Column> indexColumns = index.getColumns();
+            if (indexColumns.size() != 1 || !indexColumns.get(0).isAscending()) {
+                return null;
+            }
+
+            String columnName = indexColumns.get(0).getName();
+            List<RowFilter.BoundCondition> columnConditions = new ArrayList<>();
+            for (RowFilter.BoundCondition condition : conditions) {
+                if (condition.getColumn().getName().equalsIgnoreCase(columnName)
+                        && condition.getOperator() != RowFilter.Operator.NOT_EQUAL) {
+                    columnConditions.add(condition);
+                }
+            }
+            if (columnConditions.isEmpty()) {
+                return null;
+            }
+
+            IndexRange range = new IndexRange(index);
+            for (RowFilter.BoundCondition condition : columnConditions) {
+                range.restrict(condition);
+            }
+            return range;
+        }
+
+        private void restrict(RowFilter.BoundCondition condition) {
+            Object value = condition.getValue();
+            switch (condition.getOperator()) {
+                case EQUAL:
+                    equality = true;
+                    restrictLower(value, true);
+                    restrictUpper(value, true);
+                    break;
+                case GREATER_THAN:
+                    restrictLower(value, false);
+                    break;
+                case GREATER_THAN_OR_EQUAL:
+                    restrictLower(value, true);
+                    break;
+                case LESS_THAN:
+                    restrictUpper(value, false);
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    restrictUpper(value, true);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void restrictLower(Object value, boolean inclusive) {
+            int comparison = lower == null ? 1 : RowFilter.BoundCondition.compare(value, lower);
+            if (comparison > 0 || (comparison == 0 && !inclusive)) {
+                lower = value;
+                lowerInclusive = inclusive;
+            }
+        }
+
+        private void restrictUpper(Object value, boolean inclusive) {
+            int comparison = upper == null ? -1 : RowFilter.BoundCondition.compare(value, upper);
+            if (comparison < 0 || (comparison == 0 && !inclusive)) {
+                upper = value;
+                upperInclusive = inclusive;
+            }
+        }
+
+        /**
+         * Estimates how narrow the range is: equality beats a closed range, which beats an open range.
+         */
+        int selectivity() {
+            if (equality) {
+                return 3;
+            }
+            return (lower != null ? 1 : 0) + (upper != null ? 1 : 0);
+        }
+
+        Cursor toCursor() throws IOException {
+            CursorBuilder cursorBuilder = new CursorBuilder(index.getTable()).setIndex(index);
+            if (lower != null) {
+                cursorBuilder.setStartEntry(lower).setStartRowInclusive(lowerInclusive);
+            }
+            if (upper != null) {
+                cursorBuilder.setEndEntry(upper).setEndRowInclusive(upperInclusive);
+            }
+            return cursorBuilder.toCursor();
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.DataType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Statistics of the exported columns of a table, collected while the rows are written, so consumers of the export
+ * do not need another scan to learn them: the number of nulls, the minimum and maximum, the average length of text
+ * and binary values, the approximate number of distinct values and the most frequent values.
+ * <p>
+ * Every column takes a fixed amount of memory, about 6 KB plus the minimum, the maximum and
+ * {@value #COUNTED_VALUES} counted values. MEMO, OLE and binary columns have no minimum, maximum and frequent values,
+ * so no large values are kept.
+ * <p>
+ * The statistics are stored in the {@value #TABLE_NAME} table of SQLite targets and in {@value #FILE_NAME} next to
+ * CSV files, with the same fields.
+ */
+class TableStatistics {
+
+    static final String TABLE_NAME = "access_export_column_stats";
+
+    static final String FILE_NAME = "column-statistics.json";
+
+    static final int TOP_VALUES = 10;
+
+    /**
+     * The number of values the heavy hitters are counted for, more than reported to make the counts more accurate.
+     */
+    private static final int COUNTED_VALUES = 4 * TOP_VALUES;
+
+    private final String tableName;
+
+    private final ColumnStatistics[] columns;
+
+    private long rowCount;
+
+    TableStatistics(String tableName, List<? extends Column> columns) {
+        this.tableName = tableName;
+        this.columns = new ColumnStatistics[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            this.columns[i] = new ColumnStatistics(columns.get(i).getName(), columns.get(i).getType());
+        }
+    }
+
+    /**
+     * Adds the values of a row.
+     *
+     * @param values the values of the columns, in the order of the columns
+     */
+    void add(Object[] values) {
+        rowCount++;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(values[i]);
+        }
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    List<ColumnStatistics> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    static String createTable() {
+        return "CREATE TABLE \"" + TABLE_NAME + "\" (\"table_name\" TEXT NOT NULL, \"column_name\" TEXT NOT NULL, "
+                + "\"row_count\" INTEGER NOT NULL, \"null_count\" INTEGER NOT NULL, \"min_value\" TEXT, "
+                + "\"max_value\" TEXT, \"avg_length\" REAL, \"distinct_count\" INTEGER NOT NULL, \"top_values\" TEXT, "
+                + "PRIMARY KEY (\"table_name\", \"column_name\"))";
+    }
+
+    static String insertColumn() {
+        return "INSERT INTO \"" + TABLE_NAME + "\" (\"table_name\", \"column_name\", \"row_count\", \"null_count\", "
+                + "\"min_value\", \"max_value\", \"avg_length\", \"distinct_count\", \"top_values\") "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Adds a row per column to the batch of the {@link #insertColumn() insert statement}. The most frequent values
+     * are stored as JSON array.
+     */
+    void addBatch(PreparedStatement insert) throws SQLException, IOException {
+        for (ColumnStatistics column : columns) {
+            insert.setString(1, tableName);
+            insert.setString(2, column.getName());
+            insert.setLong(3, rowCount);
+            insert.setLong(4, column.getNullCount());
+            insert.setString(5, column.getMin());
+            insert.setString(6, column.getMax());
+            if (column.getAverageLength() == null) {
+                insert.setNull(7, Types.DOUBLE);
+            } else {
+                insert.setDouble(7, column.getAverageLength());
+            }
+            insert.setLong(8, column.getDistinctCount());
+            insert.setString(9, column.hasTopValues() ? JSONEncoder.toJson(column.getTopValuesAsList()) : null);
+            insert.addBatch();
+        }
+    }
+
+    /**
+     * Writes the statistics of the tables as JSON array with an object per column.
+     */
+    static void writeJson(List<TableStatistics> tables, Writer writer) throws IOException {
+        List<Object> columns = new ArrayList<>();
+        for (TableStatistics table : tables) {
+            for (ColumnStatistics column : table.columns) {
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("table_name", table.tableName);
+                fields.put("column_name", column.getName());
+                fields.put("row_count", table.rowCount);
+                fields.put("null_count", column.getNullCount());
+                fields.put("min_value", column.getMin());
+                fields.put("max_value", column.getMax());
+                fields.put("avg_length", column.getAverageLength());
+                fields.put("distinct_count", column.getDistinctCount());
+                fields.put("top_values", column.hasTopValues() ? column.getTopValuesAsList() : null);
+                columns.add(fields);
+            }
+        }
+        JSONEncoder encoder = new JSONEncoder(writer);
+        encoder.writeJson(columns);
+        encoder.flush();
+    }
+
+    static class ColumnStatistics {
+
+        private final String name;
+
+        private final boolean ordered;
+
+        private final HyperLogLog distinctValues = new HyperLogLog();
+
+        private final HeavyHitters topValues;
+
+        private long nullCount;
+
+        private Comparable<Object> min;
+
+        private Comparable<Object> max;
+
+        private long lengthSum;
+
+        private long lengthCount;
+
+        ColumnStatistics(String name, DataType type) {
+            this.name = name;
+            this.ordered = type != DataType.MEMO && type != DataType.OLE && type != DataType.BINARY;
+            this.topValues = ordered ? new HeavyHitters(COUNTED_VALUES) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(Object value) {
+            if (value == null) {
+                nullCount++;
+                return;
+            }
+            distinctValues.add(value);
+            if (value instanceof String) {
+                lengthSum += ((String) value).length();
+                lengthCount++;
+            } else if (value instanceof byte[]) {
+                lengthSum += ((byte[]) value).length;
+                lengthCount++;
+            }
+            if (ordered && value instanceof Comparable) {
+                Comparable<Object> comparable = (Comparable<Object>) value;
+                if (min == null || comparable.compareTo(min) < 0) {
+                    min = comparable;
+                }
+                if (max == null || comparable.compareTo(max) > 0) {
+                    max = comparable;
+                }
+                topValues.add(value);
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getNullCount() {
+            return nullCount;
+        }
+
+        /**
+         * Returns the text of the smallest value as in a CSV file, {@code null} if there are no values or they have
+         * no order.
+         */
+        String getMin() {
+            return min == null ? null : CSVExporter.toText(min);
+        }
+
+        String getMax() {
+            return max == null ? null : CSVExporter.toText(max);
+        }
+
+        /**
+         * Returns the average number of characters of text or bytes of binary values, {@code null} for other types.
+         */
+        Double getAverageLength() {
+            return lengthCount == 0 ? null : (double) lengthSum / lengthCount;
+        }
+
+        long getDistinctCount() {
+            return distinctValues.estimate();
+        }
+
+        boolean hasTopValues() {
+            return topValues != null;
+        }
+
+        /**
+         * Returns up to {@value #TOP_VALUES} of the most frequent values with their counts, most frequent first.
+         */
+        Map<String, Long> getTopValues() {
+            Map<String, Long> top = new LinkedHashMap<>();
+            topValues.top(TOP_VALUES).forEach((value, count) -> top.put(CSVExporter.toText(value), count));
+            return top;
+        }
+
+        private List<Object> getTopValuesAsList() {
+            List<Object> values = new ArrayList<>();
+            getTopValues().forEach((value, count) -> {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("value", value);
+                entry.put("count", count);
+                values.add(entry);
+            });
+            return values;
+        }
+
+    }
+
+}
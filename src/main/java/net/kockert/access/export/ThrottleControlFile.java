@@ -0,0 +1,111 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Watches a properties file and applies the limits in it to an {@link ExportThrottle}, so the limits of a running
+ * export can be changed without JMX, e.g. by a cron job at the end of business hours:
+ * <pre>
+ * max-read-rate=10M
+ * max-write-rate=5M
+ * max-rows-per-sec=20000
+ * </pre>
+ * Sizes may have a suffix {@code K}, {@code M} or {@code G}, {@code 0} removes a limit. Limits that are not in the
+ * file are left unchanged. The file is checked once per second and read whenever it was modified.
+ */
+public class ThrottleControlFile implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThrottleControlFile.class);
+
+    static final String MAX_READ_RATE = "max-read-rate";
+
+    static final String MAX_WRITE_RATE = "max-write-rate";
+
+    static final String MAX_ROWS_PER_SEC = "max-rows-per-sec";
+
+    private static final long INTERVAL_SECONDS = 1;
+
+    private final ExportThrottle throttle;
+
+    private final Path file;
+
+    private final ScheduledExecutorService scheduler;
+
+    private long lastModified = -1;
+
+    public ThrottleControlFile(ExportThrottle throttle, Path file) {
+        this.throttle = throttle;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-export-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::readQuietly, 0, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void readQuietly() {
+        try {
+            read();
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.warn("Could not read throttle limits from '{}': {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the limits in the file, if it was modified since it was last read.
+     *
+     * @throws IOException if the file could not be read
+     */
+    public synchronized void read() throws IOException {
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(file).toMillis();
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (modified == lastModified) {
+            return;
+        }
+        lastModified = modified;
+
+        Properties limits = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            limits.load(reader);
+        }
+        apply(limits, MAX_READ_RATE, throttle::setMaxReadRate);
+        apply(limits, MAX_WRITE_RATE, throttle::setMaxWriteRate);
+        apply(limits, MAX_ROWS_PER_SEC, throttle::setMaxRowsPerSecond);
+    }
+
+    private void apply(Properties limits, String key, LongConsumer setter) {
+        String value = limits.getProperty(key);
+        if (value != null) {
+            setter.accept(CommandLineParameters.parseSize(value.trim()));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
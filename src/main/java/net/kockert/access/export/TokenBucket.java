@@ -0,0 +1,83 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the rate of some quantity, e.g. bytes or rows, to a number of tokens per second. The bucket holds at most
+ * the tokens of one second, so short bursts are allowed after idle times.
+ * <p>
+ * Tokens are taken before it is known whether enough are available: a caller that takes more tokens than the
+ * bucket holds goes into debt and waits until the debt is paid off. So a single large read is allowed, but delays
+ * the next one accordingly. The rate can be changed at any time, waiting callers pick up the new rate within
+ * {@value #MAX_SLEEP_MILLIS} ms.
+ */
+class TokenBucket {
+
+    static final long UNLIMITED = 0;
+
+    private static final long MAX_SLEEP_MILLIS = 100;
+
+    private volatile long rate;
+
+    private double tokens;
+
+    private long lastRefill = System.nanoTime();
+
+    TokenBucket(long rate) {
+        this.rate = rate;
+    }
+
+    long getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate the tokens per second, {@value #UNLIMITED} or less for no limit
+     */
+    void setRate(long rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Takes the given number of tokens, waits if the bucket does not hold enough.
+     *
+     * @param count the number of tokens to take
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    void acquire(long count) throws InterruptedIOException {
+        if (rate <= UNLIMITED) {
+            return;
+        }
+
+        synchronized (this) {
+            refill();
+            tokens -= count;
+            while (tokens < 0 && rate > UNLIMITED) {
+                long millis = (long) Math.ceil(-tokens * 1000 / rate);
+                try {
+                    Thread.sleep(Math.max(1, Math.min(millis, MAX_SLEEP_MILLIS)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttled");
+                }
+                refill();
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long currentRate = rate;
+        if (currentRate <= UNLIMITED) {
+            tokens = 0;
+        } else {
+            tokens = Math.min(currentRate, tokens + (now - lastRefill) * currentRate / 1e9);
+        }
+        lastRefill = now;
+    }
+
+}
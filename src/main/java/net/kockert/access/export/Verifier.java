@@ -0,0 +1,386 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import com.healthmarketscience.jackcess.util.ExportUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares exported tables with the source database. For every table the rows of the source, as selected by the
+ * {@link ExportOptions}, and the rows of the target are streamed into {@link TableDigest}s, which are compared by
+ * row count and per column. The digests do not depend on the order of the rows.
+ * <p>
+ * Tables are verified in parallel. Every table opens its own read-only handle on the source database and the
+ * target, since Jackcess databases must not be shared between threads.
+ */
+public class Verifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Verifier.class);
+
+    private final File sourceFile;
+
+    private final ExportOptions options;
+
+    private final int threads;
+
+    public Verifier(File sourceFile, ExportOptions options, int threads) {
+        this.sourceFile = sourceFile;
+        this.options = options;
+        this.threads = threads;
+    }
+
+    /**
+     * Verifies tables exported to an SQLite database.
+     *
+     * @param jdbcUrl      the JDBC URL of the target database
+     * @param sqlGenerator the dialect the tables were exported with
+     * @param tableNames   the names of the exported tables, all tables if empty
+     * @return the result for each table
+     * @throws IOException if the source database could not be read
+     */
+    public List<TableVerification> verifyJdbc(String jdbcUrl, SQLGenerator sqlGenerator, Set<String> tableNames)
+            throws IOException {
+        return verify(tableNames, new JDBCTarget(jdbcUrl, sqlGenerator));
+    }
+
+    /**
+     * Verifies tables exported to CSV files.
+     *
+     * @param targetDir  the directory of the CSV files
+     * @param tableNames the names of the exported tables, all tables if empty
+     * @return the result for each table
+     * @throws IOException if the source database could not be read
+     */
+    public List<TableVerification> verifyCsv(Path targetDir, Set<String> tableNames) throws IOException {
+        return verify(tableNames, new CSVTarget(targetDir));
+    }
+
+    private List<TableVerification> verify(Set<String> tableNames, Target target) throws IOException {
+        List<String> tablesToVerify = new ArrayList<>();
+        try (Database db = openSourceDatabase()) {
+            for (String tableName : new TreeSet<>(db.getTableNames())) {
+                if (tableNames.isEmpty() || tableNames.contains(tableName)) {
+                    tablesToVerify.add(tableName);
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tablesToVerify.size())));
+        try {
+            List<Future<TableVerification>> futures = new ArrayList<>();
+            for (String tableName : tablesToVerify) {
+                futures.add(executor.submit(() -> verifyTable(tableName, target)));
+            }
+
+            List<TableVerification> verifications = new ArrayList<>();
+            for (Future<TableVerification> future : futures) {
+                verifications.add(future.get());
+            }
+            return verifications;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while verifying", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error while verifying: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TableVerification verifyTable(String tableName, Target target) throws IOException, SQLException {
+        try (Database db = openSourceDatabase()) {
+            Table table = db.getTable(tableName);
+            List<? extends Column> columns = options.getColumns(table);
+
+            TableDigest sourceDigest = new TableDigest(columns.size());
+            String[] values = new String[columns.size()];
+            Iterator<Row> rows = new TableScan(table, options).rows();
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                for (int i = 0; i < values.length; i++) {
+                    Column column = columns.get(i);
+                    values[i] = target.toCanonicalSourceValue(column, row.get(column.getName()));
+                }
+                sourceDigest.add(values);
+            }
+
+            TableDigest targetDigest = target.digest(table, columns);
+
+            List<String> mismatchedColumns = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (!sourceDigest.columnEquals(targetDigest, i)) {
+                    mismatchedColumns.add(columns.get(i).getName());
+                }
+            }
+            TableVerification verification = new TableVerification(tableName, sourceDigest.getRowCount(),
+                    targetDigest.getRowCount(), mismatchedColumns);
+            LOGGER.debug("Verified table: {}", verification);
+            return verification;
+        }
+    }
+
+    private Database openSourceDatabase() throws IOException {
+        return new DatabaseBuilder(sourceFile).setReadOnly(true).open();
+    }
+
+    /**
+     * Returns a value of a numeric type, a date or a boolean as normalized decimal number, so that values compare
+     * equal regardless of the Java type the target database returns them as.
+     */
+    static String toCanonicalValue(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        } else if (value instanceof java.util.Date) {
+            return String.valueOf(((java.util.Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            return CSVExporter.toText(value);
+        } else if (value instanceof Number) {
+            // floats are stored with double precision
+            String number = value instanceof Float ? Double.toString(((Float) value).doubleValue()) : value.toString();
+            try {
+                return new BigDecimal(number).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return number;
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * The exported tables.
+     */
+    private interface Target {
+
+        String toCanonicalSourceValue(Column column, Object value);
+
+        TableDigest digest(Table table, List<? extends Column> columns) throws IOException, SQLException;
+
+    }
+
+    private static class JDBCTarget implements Target {
+
+        private final String jdbcUrl;
+
+        private final SQLGenerator sqlGenerator;
+
+        JDBCTarget(String jdbcUrl, SQLGenerator sqlGenerator) {
+            this.jdbcUrl = jdbcUrl;
+            this.sqlGenerator = sqlGenerator;
+        }
+
+        @Override
+        public String toCanonicalSourceValue(Column column, Object value) {
+            return toCanonicalValue(value == null ? null : sqlGenerator.toParameter(column, value));
+        }
+
+        @Override
+        public TableDigest digest(Table table, List<? extends Column> columns) throws SQLException {
+            TableDigest digest = new TableDigest(columns.size());
+            String[] values = new String[columns.size()];
+            try (Connection jdbcConnection = openConnection();
+                 Statement statement = jdbcConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sqlGenerator.selectFromTable(table, columns))) {
+                while (resultSet.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = toCanonicalValue(resultSet.getObject(i + 1));
+                    }
+                    digest.add(values);
+                }
+            }
+            return digest;
+        }
+
+        private Connection openConnection() throws SQLException {
+            if (jdbcUrl.startsWith("jdbc:sqlite:")) {
+                SQLiteConfig config = new SQLiteConfig();
+                config.setReadOnly(true);
+                return DriverManager.getConnection(jdbcUrl, config.toProperties());
+            }
+            Connection jdbcConnection = DriverManager.getConnection(jdbcUrl);
+            jdbcConnection.setReadOnly(true);
+            return jdbcConnection;
+        }
+
+    }
+
+    /**
+     * CSV files as written by {@link CSVExporter}. Since null values and empty strings are both written as empty
+     * fields, they are not distinguished.
+     */
+    private static class CSVTarget implements Target {
+
+        private final Path targetDir;
+
+        CSVTarget(Path targetDir) {
+            this.targetDir = targetDir;
+        }
+
+        @Override
+        public String toCanonicalSourceValue(Column column, Object value) {
+            return value == null ? "" : CSVExporter.toText(value);
+        }
+
+        @Override
+        public TableDigest digest(Table table, List<? extends Column> columns) throws IOException {
+            TableDigest digest = new TableDigest(columns.size());
+            Path file = targetDir.resolve(table.getName() + "." + ExportUtil.DEFAULT_FILE_EXT);
+            try (BufferedReader reader = Files.newBufferedReader(file, Charset.defaultCharset())) {
+                CSVRecordReader records = new CSVRecordReader(reader);
+                // skip the header
+                records.next();
+                String[] values = new String[columns.size()];
+                List<String> record;
+                while ((record = records.next()) != null) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = i < record.size() ? record.get(i) : null;
+                    }
+                    digest.add(values);
+                }
+            }
+            return digest;
+        }
+
+    }
+
+    /**
+     * Reads the records of a CSV file, fields may be quoted and contain line breaks.
+     */
+    private static class CSVRecordReader {
+
+        private final BufferedReader reader;
+
+        private final StringBuilder field = new StringBuilder();
+
+        CSVRecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Returns the fields of the next record or {@code null} at the end of the file.
+         */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> record = new ArrayList<>();
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    } else if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    record.add(field.toString());
+                    return record;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+
+    }
+
+    /**
+     * The result of the verification of a table.
+     */
+    public static class TableVerification {
+
+        private final String tableName;
+
+        private final long sourceRows;
+
+        private final long targetRows;
+
+        private final List<String> mismatchedColumns;
+
+        TableVerification(String tableName, long sourceRows, long targetRows, List<String> mismatchedColumns) {
+            this.tableName = tableName;
+            this.sourceRows = sourceRows;
+            this.targetRows = targetRows;
+            this.mismatchedColumns = Collections.unmodifiableList(mismatchedColumns);
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public long getSourceRows() {
+            return sourceRows;
+        }
+
+        public long getTargetRows() {
+            return targetRows;
+        }
+
+        /**
+         * @return the columns whose values differ between source and target
+         */
+        public List<String> getMismatchedColumns() {
+            return mismatchedColumns;
+        }
+
+        public boolean isPassed() {
+            return sourceRows == targetRows && mismatchedColumns.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            if (isPassed()) {
+                return "PASS " + tableName + " (" + sourceRows + " rows)";
+            }
+            return "FAIL " + tableName + " (" + sourceRows + " rows in source, " + targetRows + " rows in target"
+                    + (mismatchedColumns.isEmpty() ? "" : ", mismatched columns " + mismatchedColumns) + ")";
+        }
+
+    }
+
+}
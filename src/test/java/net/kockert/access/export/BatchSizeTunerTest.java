@@ -0,0 +1,62 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class BatchSizeTunerTest {
+
+    private long now;
+
+    @Test
+    public void shouldChooseFastestBatchSize() {
+        BatchSizeTuner tuner = new BatchSizeTuner("table", 1600, () -> now);
+
+        load(tuner, 100, batchSize -> batchSize == 400 ? 1 : 5);
+
+        assertThat(tuner.getBatchSize(), equalTo(400));
+    }
+
+    @Test
+    public void shouldProbeCandidatesAroundStartSize() {
+        BatchSizeTuner tuner = new BatchSizeTuner("table", 1600, () -> now);
+
+        assertThat(tuner.getBatchSize(), equalTo(100));
+        load(tuner, 1, batchSize -> 1);
+        assertThat(tuner.getBatchSize(), equalTo(400));
+        load(tuner, 1, batchSize -> 1);
+        assertThat(tuner.getBatchSize(), equalTo(1600));
+        load(tuner, 1, batchSize -> 1);
+        assertThat(tuner.getBatchSize(), equalTo(6400));
+    }
+
+    @Test
+    public void shouldProbeAgainWhenThroughputDrifts() {
+        BatchSizeTuner tuner = new BatchSizeTuner("table", 1600, () -> now);
+        load(tuner, 100, batchSize -> batchSize == 400 ? 1 : 5);
+
+        load(tuner, 100, batchSize -> batchSize >= 1600 ? 2 : 10);
+
+        assertThat(tuner.getBatchSize(), equalTo(1600));
+    }
+
+    /**
+     * Writes batches of the current size for the given number of measurement windows, each row takes the given
+     * number of microseconds for a batch size.
+     */
+    private void load(BatchSizeTuner tuner, int windows, IntToLongFunction microsPerRow) {
+        for (int i = 0; i < windows; i++) {
+            long windowEnd = now + TimeUnit.MILLISECONDS.toNanos(500);
+            while (now < windowEnd) {
+                int batchSize = tuner.getBatchSize();
+                now += TimeUnit.MICROSECONDS.toNanos(batchSize * microsPerRow.applyAsLong(batchSize));
+                tuner.rowsWritten(batchSize, true);
+            }
+        }
+    }
+
+}
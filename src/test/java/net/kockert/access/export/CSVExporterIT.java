@@ -9,12 +9,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -73,4 +78,117 @@ public class CSVExporterIT {
         }
     }
 
+    @Test
+    public void shouldWriteColumnStatisticsNextToCSVFiles() throws IOException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .toTable(database);
+        table.addRow(1);
+        table.addRow((Object) null);
+
+        CSVExporter exporter = new CSVExporter(database);
+        exporter.setCollectStatistics(true);
+        exporter.export(targetDir);
+
+        String statistics = new String(Files.readAllBytes(targetDir.resolve(TableStatistics.FILE_NAME)), "UTF-8");
+        assertThat(statistics, equalTo("[{\"table_name\":\"TestTable\",\"column_name\":\"id\",\"row_count\":2,"
+                + "\"null_count\":1,\"min_value\":\"1\",\"max_value\":\"1\",\"avg_length\":null,"
+                + "\"distinct_count\":1,\"top_values\":[{\"value\":\"1\",\"count\":1}]}]"));
+    }
+
+    @Test
+    public void shouldExportOnlyRowsMatchingRowFilter() throws IOException {
+        String tableName = "TestTable";
+        String columnName = "TestColumn";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        TableBuilder tableBuilder = new TableBuilder(tableName);
+        tableBuilder.addColumn(new ColumnBuilder(columnName).setType(DataType.TEXT));
+        Table table = tableBuilder.toTable(database);
+        table.addRow("a");
+        table.addRow("b");
+        table.addRow("c");
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .where(tableName, RowFilter.parse(columnName + "<>B"))
+                .build();
+        CSVExporter exporter = new CSVExporter(database, options);
+        exporter.export(targetDir);
+
+        List<String> lines = Files.readAllLines(targetDir.resolve(tableName + ".csv"));
+
+        assertThat(lines, equalTo(Arrays.asList(columnName, "a", "c")));
+    }
+
+    @Test
+    public void shouldExportEveryNthRow() throws IOException {
+        String tableName = "TestTable";
+        String columnName = "TestColumn";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        TableBuilder tableBuilder = new TableBuilder(tableName);
+        tableBuilder.addColumn(new ColumnBuilder(columnName).setType(DataType.LONG));
+        Table table = tableBuilder.toTable(database);
+        for (int i = 0; i < 10; i++) {
+            table.addRow(i);
+        }
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .sample(Sampling.every(4))
+                .build();
+        CSVExporter exporter = new CSVExporter(database, options);
+        exporter.export(targetDir);
+
+        List<String> lines = Files.readAllLines(targetDir.resolve(tableName + ".csv"));
+
+        assertThat(lines, equalTo(Arrays.asList(columnName, "0", "4", "8")));
+    }
+
+    @Test
+    public void shouldExportTablesToZipArchiveWithManifest() throws IOException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("data").setType(DataType.OLE))
+                .toTable(database);
+        table.addRow(1, new byte[]{(byte) 0xCA, (byte) 0xFE});
+        table.addRow(2, null);
+        new TableBuilder("EmptyTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .toTable(database);
+
+        Path zipFile = targetDir.resolve("export.zip");
+        CSVExporter exporter = new CSVExporter(database);
+        exporter.exportZip(zipFile, new LinkedHashSet<>(Arrays.asList("TestTable", "EmptyTable")));
+
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(zipFile))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(zip, Charset.defaultCharset()));
+                entries.put(entry.getName(), reader.lines().collect(Collectors.toList()));
+            }
+        }
+
+        assertThat(new ArrayList<>(entries.keySet()),
+                equalTo(Arrays.asList("TestTable.csv", "EmptyTable.csv", CSVExporter.MANIFEST_NAME)));
+        assertThat(entries.get("TestTable.csv"), equalTo(Arrays.asList("id,data", "1,CAFE", "2,")));
+        assertThat(entries.get("EmptyTable.csv"), equalTo(Collections.singletonList("id")));
+        assertThat(entries.get(CSVExporter.MANIFEST_NAME),
+                equalTo(Arrays.asList("file,rows", "TestTable.csv,2", "EmptyTable.csv,0")));
+    }
+
 }
@@ -0,0 +1,139 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ExportServerIT {
+
+    private Path tempDir;
+
+    private Path rootDir;
+
+    private ExportServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        tempDir = Files.createTempDirectory("serve-");
+        rootDir = Files.createDirectory(tempDir.resolve("root"));
+        try (Database database = DatabaseBuilder.create(Database.FileFormat.V2003, rootDir.resolve("test.mdb").toFile())) {
+            Table table = new TableBuilder("Customers")
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .addColumn(new ColumnBuilder("city").setType(DataType.TEXT))
+                    .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                    .addIndex(new IndexBuilder("CityIndex").addColumns("city"))
+                    .toTable(database);
+            for (int i = 0; i < 100; i++) {
+                table.addRow(i, i % 2 == 0 ? "Berlin" : "Hamburg");
+            }
+        }
+        Files.copy(rootDir.resolve("test.mdb"), tempDir.resolve("outside.mdb"));
+        Files.write(rootDir.resolve("broken.mdb"), new byte[4096]);
+        Files.write(rootDir.resolve("notes.txt"), "not a database".getBytes(StandardCharsets.UTF_8));
+
+        server = new ExportServer.ExportServerBuilder(rootDir).maxOpenDatabases(1).maxCachedRows(10).build();
+        server.start();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        server.close();
+        Files.walk(tempDir).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    public void shouldListDatabasesAndTables() throws IOException {
+        assertThat(get("/"), equalTo("[\"broken.mdb\",\"test.mdb\"]"));
+        assertThat(get("/test.mdb"), equalTo("[\"Customers\"]"));
+    }
+
+    @Test
+    public void shouldLookUpRowByPrimaryKey() throws IOException {
+        assertThat(get("/test.mdb/Customers/key/7"), equalTo("{\"id\":7,\"city\":\"Hamburg\"}\n"));
+        assertThat(get("/test.mdb/Customers/key/7"), equalTo("{\"id\":7,\"city\":\"Hamburg\"}\n"));
+        assertThat(get("/test.mdb/Customers/key/1000"), equalTo(""));
+    }
+
+    @Test
+    public void shouldLookUpRowsByIndex() throws IOException {
+        String rows = get("/test.mdb/Customers/lookup?city=Berlin");
+
+        assertThat(rows.split("\n").length, equalTo(50));
+        assertThat(rows.startsWith("{\"id\":0,\"city\":\"Berlin\"}\n"), equalTo(true));
+    }
+
+    @Test
+    public void shouldStreamTableAsCsv() throws IOException {
+        String csv = get("/test.mdb/Customers?format=csv&columns=id&where=" + "id%3E%3D98");
+
+        assertThat(csv, equalTo("id\n98\n99\n"));
+    }
+
+    @Test
+    public void shouldStreamTableAsJsonLines() throws IOException {
+        String rows = get("/test.mdb/Customers");
+
+        assertThat(rows.split("\n").length, equalTo(100));
+    }
+
+    @Test
+    public void shouldNotServeUnknownResources() throws IOException {
+        assertThat(status("/test.mdb/Orders"), equalTo(404));
+        assertThat(status("/notes.txt"), equalTo(404));
+        assertThat(status("/..%2Foutside.mdb"), equalTo(404));
+        assertThat(status("/test.mdb/Customers/lookup?id=1&city=Berlin"), equalTo(404));
+        assertThat(status("/test.mdb/Customers/key/seven"), equalTo(400));
+        assertThat(status("/test.mdb/Customers?format=xml"), equalTo(400));
+    }
+
+    @Test
+    public void shouldServeOtherDatabasesIfDatabaseCanNotBeOpened() throws IOException {
+        assertThat(status("/broken.mdb/Customers/key/7"), equalTo(500));
+        assertThat(get("/test.mdb/Customers/key/7"), equalTo("{\"id\":7,\"city\":\"Hamburg\"}\n"));
+        assertThat(status("/broken.mdb/Customers/key/7"), equalTo(500));
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        assertThat(connection.getResponseCode(), equalTo(200));
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                body.write(buffer, 0, n);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        }
+    }
+
+    private int status(String path) throws IOException {
+        HttpURLConnection connection = open(path);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+    }
+
+}
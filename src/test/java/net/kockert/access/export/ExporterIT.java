@@ -10,10 +10,20 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Date;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class ExporterIT {
@@ -70,6 +80,532 @@ public class ExporterIT {
         jdbcConnection.close();
     }
 
+    @Test
+    public void shouldExportOptimizedSQLiteSchema() throws IOException, SQLException {
+        String guid = "{6B29FC40-CA47-1067-B31D-00DD010662DA}";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("guid").setType(DataType.GUID))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                .addIndex(new IndexBuilder("GuidIndex").addColumns("guid"))
+                .toTable(database);
+        for (int i = 0; i < 10; i++) {
+            table.addRow(i, guid);
+        }
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .optimizeSchema(true)
+                .storeGuidsAsBlobs(true)
+                .build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT rowid AS r, id, guid FROM TestTable WHERE id = 7");
+            resultSet.next();
+            assertThat(resultSet.getLong("r"), equalTo(7L));
+            assertThat(resultSet.getBytes("guid"), equalTo(SQLiteSQLGenerator.toBytes(guid)));
+
+            resultSet = statement.executeQuery("SELECT COUNT(*) FROM sqlite_stat1 WHERE tbl = 'TestTable'");
+            resultSet.next();
+            assertThat(resultSet.getInt(1) > 0, equalTo(true));
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldExportFractionalCurrencyKeyInOptimizedSQLiteSchema() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("Prices")
+                .addColumn(new ColumnBuilder("price").setType(DataType.MONEY))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("price").setPrimaryKey())
+                .toTable(database);
+        table.addRow(new BigDecimal("3.21"), "fractional");
+        table.addRow(new BigDecimal("5"), "whole");
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder().optimizeSchema(true).build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT price, name FROM Prices ORDER BY price");
+            resultSet.next();
+            assertThat(resultSet.getDouble("price"), equalTo(3.21));
+            assertThat(resultSet.getString("name"), equalTo("fractional"));
+            resultSet.next();
+            assertThat(resultSet.getDouble("price"), equalTo(5.0));
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldCheckDeferredForeignKeysAfterLoad() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .toTable(database);
+        table.addRow(1);
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .deferForeignKeys(true)
+                .build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            Statement statement = jdbcConnection.createStatement();
+            statement.execute("CREATE TABLE Parent (id INTEGER PRIMARY KEY)");
+            statement.execute("CREATE TABLE Child (parentId INTEGER REFERENCES Parent(id))");
+            statement.execute("INSERT INTO Child VALUES (1), (2)");
+
+            exporter.export(jdbcConnection);
+
+            assertThat(exporter.getForeignKeyViolations(), equalTo(Collections.singletonMap("Child", 2)));
+            ResultSet resultSet = statement.executeQuery("PRAGMA foreign_keys");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(0));
+        }
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            Statement statement = jdbcConnection.createStatement();
+            statement.execute("CREATE TABLE Parent (id INTEGER PRIMARY KEY)");
+            statement.execute("CREATE TABLE Child (parentId INTEGER REFERENCES Parent(id))");
+            statement.execute("INSERT INTO Child VALUES (1)");
+            statement.execute("PRAGMA foreign_keys = ON");
+
+            exporter.export(jdbcConnection);
+
+            assertThat(exporter.getForeignKeyViolations(), equalTo(Collections.singletonMap("Child", 1)));
+            ResultSet resultSet = statement.executeQuery("PRAGMA foreign_keys");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(1));
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldOnlyCreateForeignKeysReferencingUniqueColumns() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table parent = new TableBuilder("Parent")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("code").setType(DataType.LONG))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                .toTable(database);
+        parent.addRow(1, 7);
+        Table child = new TableBuilder("Child")
+                .addColumn(new ColumnBuilder("parentId").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("parentCode").setType(DataType.LONG))
+                .toTable(database);
+        child.addRow(1, 7);
+        child.addRow(2, 7);
+        addRelationship(database, "ParentChild", 0, "Parent", "id", "Child", "parentId");
+        addRelationship(database, "ParentChildCode", 2, "Parent", "code", "Child", "parentCode");
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .deferForeignKeys(true)
+                .build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            assertThat(exporter.getForeignKeyViolations(), equalTo(Collections.singletonMap("Child", 1)));
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("PRAGMA foreign_key_list(Child)");
+            assertThat(resultSet.next(), equalTo(true));
+            assertThat(resultSet.getString("from"), equalTo("parentId"));
+            assertThat(resultSet.next(), equalTo(false));
+        }
+
+        database.close();
+    }
+
+    /**
+     * Adds a relationship the way Access stores it, since Jackcess can not create relationships.
+     */
+    private static void addRelationship(Database database, String name, int flags, String parentTable,
+                                        String parentColumn, String childTable, String childColumn) throws IOException {
+        Map<String, Object> row = new HashMap<>();
+        row.put("szRelationship", name);
+        row.put("grbit", flags);
+        row.put("ccolumn", 1);
+        row.put("icolumn", 0);
+        row.put("szObject", childTable);
+        row.put("szColumn", childColumn);
+        row.put("szReferencedObject", parentTable);
+        row.put("szReferencedColumn", parentColumn);
+        database.getSystemTable("MSysRelationships").addRowFromMap(row);
+    }
+
+    @Test
+    public void shouldReportMetrics() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                .toTable(database);
+        for (int i = 0; i < 100; i++) {
+            table.addRow(i, "Text");
+        }
+
+        Exporter exporter = new Exporter(database);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+        }
+
+        ExportMetrics metrics = exporter.getMetrics();
+        assertThat(metrics.getRowsDone().get("TestTable"), equalTo(100L));
+        assertThat(metrics.getRowsTotal().get("TestTable"), equalTo(100L));
+        assertThat(metrics.getTotalRowsDone(), equalTo(100L));
+        assertThat(metrics.getBytesWritten(), equalTo(100L * (4 + 4)));
+        assertThat(metrics.getCommitCount(), equalTo(1L));
+        assertThat(metrics.getCurrentTable(), nullValue());
+
+        database.close();
+    }
+
+    @Test
+    public void shouldRecordResourceUsagePerTableAndPhase() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                .addIndex(new IndexBuilder("TextIndex").addColumns("text"))
+                .toTable(database);
+        for (int i = 0; i < 1000; i++) {
+            table.addRow(i, "Text " + i);
+        }
+
+        Exporter exporter = new Exporter(database);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+        }
+
+        Map<String, ResourceUsage> phases = exporter.getMetrics().getPhaseUsage();
+        assertThat(phases.keySet(), equalTo(new HashSet<>(Arrays.asList("index of table TestTable", "load of table TestTable"))));
+        assertThat(phases.get("load of table TestTable").getAllocatedBytes() > 1000L * "Text 999".length(), equalTo(true));
+
+        database.close();
+    }
+
+    @Test
+    public void shouldLoadTablesInParallelAndMergeThem() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+        Path targetDir = Files.createTempDirectory("export-");
+        targetDir.toFile().deleteOnExit();
+        Path sqliteFile = targetDir.resolve("export.sqlite");
+        sqliteFile.toFile().deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        for (int t = 0; t < 4; t++) {
+            Table table = new TableBuilder("TestTable" + t)
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                    .addIndex(new IndexBuilder("TextIndex").addColumns("text"))
+                    .toTable(database);
+            for (int i = 0; i < 100 * (t + 1); i++) {
+                table.addRow(i, "Text " + i);
+            }
+        }
+
+        Exporter exporter = new Exporter(database);
+        exporter.exportParallel(sqliteFile, 3);
+
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+             Statement statement = jdbcConnection.createStatement()) {
+            for (int t = 0; t < 4; t++) {
+                ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), SUM(id) FROM TestTable" + t);
+                resultSet.next();
+                int rows = 100 * (t + 1);
+                assertThat(resultSet.getInt(1), equalTo(rows));
+                assertThat(resultSet.getLong(2), equalTo(rows * (rows - 1L) / 2));
+            }
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index'");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(4));
+        }
+        assertThat(exporter.getMetrics().getTotalRowsDone(), equalTo(1000L));
+        try (Stream<Path> files = Files.list(targetDir)) {
+            assertThat(files.collect(Collectors.toList()), equalTo(Collections.singletonList(sqliteFile)));
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldInsertRowsInPrimaryKeyOrder() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("name").setPrimaryKey())
+                .toTable(database);
+        table.addRow("c");
+        table.addRow("a");
+        table.addRow("b");
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder().primaryKeyOrder(true).build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), options);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT group_concat(name, '') FROM (SELECT name FROM TestTable ORDER BY rowid)");
+            resultSet.next();
+            assertThat(resultSet.getString(1), equalTo("abc"));
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldLimitRowRate() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .toTable(database);
+        for (int i = 0; i < 100; i++) {
+            table.addRow(i);
+        }
+
+        ExportThrottle throttle = new ExportThrottle();
+        throttle.setMaxRowsPerSecond(200);
+        Exporter exporter = new Exporter(database);
+        exporter.setThrottle(throttle);
+        long start = System.nanoTime();
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertThat("elapsed " + elapsedMillis + " ms", elapsedMillis >= 450, equalTo(true));
+        assertThat(exporter.getMetrics().getTotalRowsDone(), equalTo(100L));
+
+        database.close();
+    }
+
+    @Test
+    public void shouldInsertAllRowsWithSmallBatchSize() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .toTable(database);
+        for (int i = 0; i < 1050; i++) {
+            table.addRow(i);
+        }
+
+        Exporter exporter = new Exporter(database);
+        exporter.setBatchSize(3);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            try (Statement statement = jdbcConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), SUM(id) FROM TestTable")) {
+                assertThat(resultSet.getLong(1), equalTo(1050L));
+                assertThat(resultSet.getLong(2), equalTo(1050L * 1049 / 2));
+            }
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldStoreDuplicateBlobsOnce() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("logo").setType(DataType.OLE))
+                .toTable(database);
+        byte[] logo = new byte[10000];
+        Arrays.fill(logo, (byte) 7);
+        for (int i = 0; i < 100; i++) {
+            table.addRow(i, i == 99 ? new byte[]{1, 2, 3} : i == 98 ? null : logo);
+        }
+
+        SQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .deduplicateBlobs(true)
+                .createBlobViews(true)
+                .build();
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator).export(jdbcConnection);
+
+            try (Statement statement = jdbcConnection.createStatement()) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM access_export_blobs")) {
+                    assertThat(resultSet.getInt(1), equalTo(2));
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(DISTINCT logo) FROM TestTable")) {
+                    assertThat(resultSet.getInt(1), equalTo(2));
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT logo FROM TestTable_resolved ORDER BY id")) {
+                    for (int i = 0; i < 100; i++) {
+                        resultSet.next();
+                        byte[] expected = i == 99 ? new byte[]{1, 2, 3} : i == 98 ? null : logo;
+                        assertThat(Arrays.equals(resultSet.getBytes(1), expected), equalTo(true));
+                    }
+                }
+            }
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldStoreDuplicateBlobsOnceWhenLoadingInParallel() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+        Path targetDir = Files.createTempDirectory("export-");
+        targetDir.toFile().deleteOnExit();
+        Path sqliteFile = targetDir.resolve("export.sqlite");
+        sqliteFile.toFile().deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        byte[] logo = new byte[10000];
+        Arrays.fill(logo, (byte) 7);
+        for (int t = 0; t < 3; t++) {
+            Table table = new TableBuilder("TestTable" + t)
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .addColumn(new ColumnBuilder("logo").setType(DataType.OLE))
+                    .toTable(database);
+            for (int i = 0; i < 100; i++) {
+                table.addRow(i, i == 99 ? new byte[]{(byte) t} : logo);
+            }
+        }
+
+        SQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .deduplicateBlobs(true)
+                .createBlobViews(true)
+                .build();
+        new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator).exportParallel(sqliteFile, 3);
+
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+             Statement statement = jdbcConnection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM access_export_blobs")) {
+                assertThat(resultSet.getInt(1), equalTo(4));
+            }
+            for (int t = 0; t < 3; t++) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT logo FROM TestTable" + t + "_resolved ORDER BY id")) {
+                    for (int i = 0; i < 100; i++) {
+                        resultSet.next();
+                        byte[] expected = i == 99 ? new byte[]{(byte) t} : logo;
+                        assertThat(Arrays.equals(resultSet.getBytes(1), expected), equalTo(true));
+                    }
+                }
+            }
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldStoreBlobsOfEveryTargetWhenSharingSQLGenerator() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("logo").setType(DataType.OLE))
+                .toTable(database);
+        table.addRow(1, new byte[]{1, 2, 3});
+
+        SQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder().deduplicateBlobs(true).build();
+        Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator);
+        try (Connection firstConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Connection secondConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(firstConnection);
+            exporter.export(secondConnection);
+
+            for (Connection jdbcConnection : Arrays.asList(firstConnection, secondConnection)) {
+                try (Statement statement = jdbcConnection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM access_export_blobs")) {
+                    assertThat(resultSet.getInt(1), equalTo(1));
+                }
+            }
+        }
+
+        database.close();
+    }
+
+    @Test
+    public void shouldStoreColumnStatistics() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .toTable(database);
+        for (int i = 0; i < 100; i++) {
+            table.addRow(i, i % 10 == 0 ? null : i % 2 == 0 ? "even" : "odd");
+        }
+
+        Exporter exporter = new Exporter(database);
+        exporter.setCollectStatistics(true);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.export(jdbcConnection);
+
+            try (Statement statement = jdbcConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT row_count, null_count, min_value, max_value, "
+                         + "avg_length, distinct_count, top_values FROM access_export_column_stats "
+                         + "WHERE table_name = 'TestTable' ORDER BY column_name")) {
+                resultSet.next();
+                assertThat(resultSet.getLong("row_count"), equalTo(100L));
+                assertThat(resultSet.getString("min_value"), equalTo("0"));
+                assertThat(resultSet.getString("max_value"), equalTo("99"));
+                assertThat(resultSet.getLong("distinct_count"), equalTo(100L));
+                resultSet.next();
+                assertThat(resultSet.getLong("null_count"), equalTo(10L));
+                assertThat(resultSet.getString("min_value"), equalTo("even"));
+                assertThat(resultSet.getDouble("avg_length"), equalTo((40 * 4 + 50 * 3) / 90.0));
+                assertThat(resultSet.getLong("distinct_count"), equalTo(2L));
+                assertThat(resultSet.getString("top_values"),
+                        equalTo("[{\"value\":\"odd\",\"count\":50},{\"value\":\"even\",\"count\":40}]"));
+            }
+        }
+
+        database.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectColumnStatisticsForOtherTargets() {
+        new Exporter(null, Collections.emptySet(), ExportOptions.DEFAULTS, new H2SQLGenerator()).setCollectStatistics(true);
+    }
+
     @Test
     public void shouldFilterDuplicateIndex() throws IOException, SQLException {
         String tableName = "TestTable";
@@ -103,4 +639,117 @@ public class ExporterIT {
 
         assertThat(indexCount, equalTo(1));
     }
+
+    @Test
+    public void shouldExportOnlyRowsMatchingRowFilter() throws IOException, SQLException {
+        String tableName = "TestTable";
+        String indexedColumnName = "IndexedColumn";
+        String columnName = "TestColumn";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+        File sqliteFile = File.createTempFile("export-", ".sqlite");
+        sqliteFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        TableBuilder tableBuilder = new TableBuilder(tableName);
+        tableBuilder.addColumn(new ColumnBuilder(indexedColumnName).setType(DataType.LONG));
+        tableBuilder.addColumn(new ColumnBuilder(columnName).setType(DataType.LONG));
+        tableBuilder.addIndex(new IndexBuilder("TestIndex").addColumns(indexedColumnName));
+        Table table = tableBuilder.toTable(database);
+        for (int i = 0; i < 100; i++) {
+            table.addRow(i, i % 2);
+        }
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .where(tableName, RowFilter.parse(indexedColumnName + ">=10"))
+                .where(tableName, RowFilter.parse(indexedColumnName + "<20"))
+                .where(tableName, RowFilter.parse(columnName + "=1"))
+                .build();
+        final Exporter exporter = new Exporter(database, Collections.emptySet(), options);
+        final Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+        exporter.export(jdbcConnection);
+
+        Statement statement = jdbcConnection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), MIN(" + indexedColumnName + "), MAX("
+                + indexedColumnName + ") FROM " + tableName);
+        assertThat(resultSet.getInt(1), equalTo(5));
+        assertThat(resultSet.getInt(2), equalTo(11));
+        assertThat(resultSet.getInt(3), equalTo(19));
+
+        database.close();
+        jdbcConnection.close();
+    }
+
+    @Test
+    public void shouldExportOnlyProjectedColumns() throws IOException, SQLException {
+        String tableName = "TestTable";
+        String columnName = "TestColumn";
+        String memoColumnName = "MemoColumn";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+        File sqliteFile = File.createTempFile("export-", ".sqlite");
+        sqliteFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        TableBuilder tableBuilder = new TableBuilder(tableName);
+        tableBuilder.addColumn(new ColumnBuilder(columnName).setType(DataType.LONG));
+        tableBuilder.addColumn(new ColumnBuilder(memoColumnName).setType(DataType.MEMO));
+        tableBuilder.addIndex(new IndexBuilder("MemoIndex").addColumns(memoColumnName));
+        Table table = tableBuilder.toTable(database);
+        table.addRow(42, "a long text");
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .columns(tableName, Collections.singletonList(columnName))
+                .build();
+        final Exporter exporter = new Exporter(database, Collections.emptySet(), options);
+        final Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+        exporter.export(jdbcConnection);
+
+        Statement statement = jdbcConnection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT * FROM " + tableName);
+        assertThat(resultSet.getMetaData().getColumnCount(), equalTo(1));
+        assertThat(resultSet.getInt(columnName), equalTo(42));
+
+        database.close();
+        jdbcConnection.close();
+    }
+
+    @Test
+    public void shouldExportReservoirSampleOfFilteredRows() throws IOException, SQLException {
+        String tableName = "TestTable";
+        String columnName = "TestColumn";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+        File sqliteFile = File.createTempFile("export-", ".sqlite");
+        sqliteFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        TableBuilder tableBuilder = new TableBuilder(tableName);
+        tableBuilder.addColumn(new ColumnBuilder(columnName).setType(DataType.LONG));
+        Table table = tableBuilder.toTable(database);
+        for (int i = 0; i < 1000; i++) {
+            table.addRow(i);
+        }
+
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .where(tableName, RowFilter.parse(columnName + ">=500"))
+                .sample(Sampling.reservoir(10, 42))
+                .build();
+        final Exporter exporter = new Exporter(database, Collections.emptySet(), options);
+        final Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite:" + sqliteFile);
+        exporter.export(jdbcConnection);
+
+        Statement statement = jdbcConnection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(DISTINCT " + columnName + "), MIN("
+                + columnName + ") FROM " + tableName);
+        assertThat(resultSet.getInt(1), equalTo(10));
+        assertThat(resultSet.getInt(2) >= 500, equalTo(true));
+
+        database.close();
+        jdbcConnection.close();
+    }
+
 }
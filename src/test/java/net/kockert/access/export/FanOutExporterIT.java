@@ -0,0 +1,194 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class FanOutExporterIT {
+
+    private Path targetDir;
+
+    @Before
+    public void createTargetDir() throws IOException {
+        targetDir = Files.createTempDirectory("export-");
+    }
+
+    @After
+    public void deleteTargetDir() throws IOException {
+        Files.walk(targetDir).forEach(path -> {
+            try {
+                Files.delete(path);
+            } catch (IOException e) {
+                // ignore
+            }
+        });
+        Files.deleteIfExists(targetDir);
+    }
+
+    @Test
+    public void shouldWriteAllRowsToEverySink() throws IOException, SQLException {
+        int rowCount = FanOutExporter.BATCH_SIZE * FanOutExporter.QUEUE_CAPACITY * 3 + 7;
+        Database database = createDatabase(rowCount);
+
+        Exporter sqliteExporter = new Exporter(database);
+        CSVExporter csvExporter = new CSVExporter(database);
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            FanOutExporter exporter = new FanOutExporter(database, Collections.emptySet(), ExportOptions.DEFAULTS,
+                    Arrays.asList(sqliteExporter.sink(jdbcConnection), csvExporter.sink(targetDir)));
+            exporter.export();
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), SUM(id) FROM TestTable");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(rowCount));
+            assertThat(resultSet.getLong(2), equalTo((long) rowCount * (rowCount - 1) / 2));
+            assertThat(exporter.getMetrics().getTotalRowsDone(), equalTo((long) rowCount));
+        }
+
+        List<String> lines = Files.readAllLines(targetDir.resolve("TestTable.csv"));
+        assertThat(lines.size(), equalTo(rowCount + 1));
+        assertThat(lines.get(0), equalTo("id,name"));
+        assertThat(lines.get(rowCount), equalTo((rowCount - 1) + ",name " + (rowCount - 1)));
+
+        database.close();
+    }
+
+    @Test(timeout = 60000)
+    public void shouldBoundQueuedRowsByMemoryBudget() throws IOException, SQLException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        int rowCount = 50;
+        int valueSize = 100000;
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("WideTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("data").setType(DataType.OLE))
+                .toTable(database);
+        for (int i = 0; i < rowCount; i++) {
+            table.addRow(i, new byte[valueSize]);
+        }
+
+        AtomicReference<FanOutExporter> exporter = new AtomicReference<>();
+        AtomicLong maxRowsAhead = new AtomicLong();
+        ExportSink slowSink = new ExportSink() {
+            @Override
+            public void start(List<Table> tables) {
+            }
+
+            @Override
+            public RowWriter openTable(Table table, List<? extends Column> columns) {
+                return new RowWriter() {
+                    private long rowsWritten;
+
+                    @Override
+                    public void write(Object[] values) throws IOException {
+                        try {
+                            Thread.sleep(5);
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                        long rowsAhead = exporter.get().getMetrics().getTotalRowsDone() - rowsWritten++;
+                        maxRowsAhead.accumulateAndGet(rowsAhead, Math::max);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+
+        try (Connection jdbcConnection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            exporter.set(new FanOutExporter(database, Collections.emptySet(), ExportOptions.DEFAULTS,
+                    Arrays.asList(new Exporter(database).sink(jdbcConnection), slowSink)));
+            // half of the budget holds two rows, so every row is a batch of its own
+            exporter.get().setMemoryBudget(2 * 3 * valueSize);
+            exporter.get().export();
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*), SUM(LENGTH(data)) FROM WideTable");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(rowCount));
+            assertThat(resultSet.getLong(2), equalTo((long) rowCount * valueSize));
+        } finally {
+            database.close();
+        }
+        assertThat(maxRowsAhead.get() <= 3, equalTo(true));
+    }
+
+    @Test(expected = SQLException.class)
+    public void shouldFailIfSinkFails() throws IOException, SQLException {
+        Database database = createDatabase(FanOutExporter.BATCH_SIZE * FanOutExporter.QUEUE_CAPACITY * 3);
+        ExportSink failingSink = new ExportSink() {
+            @Override
+            public void start(List<Table> tables) {
+            }
+
+            @Override
+            public RowWriter openTable(Table table, List<? extends Column> columns) {
+                return new RowWriter() {
+                    @Override
+                    public void write(Object[] values) throws SQLException {
+                        throw new SQLException("Target is full");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+
+        try {
+            new FanOutExporter(database, Collections.emptySet(), ExportOptions.DEFAULTS,
+                    Arrays.asList(new CSVExporter(database).sink(targetDir), failingSink)).export();
+        } finally {
+            database.close();
+        }
+    }
+
+    private Database createDatabase(int rowCount) throws IOException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .toTable(database);
+        for (int i = 0; i < rowCount; i++) {
+            table.addRow(i, "name " + i);
+        }
+        return database;
+    }
+
+}
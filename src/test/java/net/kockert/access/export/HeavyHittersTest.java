@@ -0,0 +1,51 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class HeavyHittersTest {
+
+    @Test
+    public void shouldCountFewValuesExactly() {
+        HeavyHitters heavyHitters = new HeavyHitters(4);
+        for (String value : Arrays.asList("a", "b", "a", "c", "a", "b")) {
+            heavyHitters.add(value);
+        }
+
+        Map<Object, Long> top = heavyHitters.top(2);
+        assertThat(top.keySet().toString(), equalTo("[a, b]"));
+        assertThat(top.get("a"), equalTo(3L));
+        assertThat(top.get("b"), equalTo(2L));
+    }
+
+    @Test
+    public void shouldReplaceValueWithLowestCount() {
+        HeavyHitters heavyHitters = new HeavyHitters(2);
+        for (String value : Arrays.asList("a", "a", "a", "b", "b", "c")) {
+            heavyHitters.add(value);
+        }
+
+        Map<Object, Long> top = heavyHitters.top(2);
+        assertThat(top.get("a"), equalTo(3L));
+        assertThat(top.get("c"), equalTo(3L));
+        assertThat(top.containsKey("b"), equalTo(false));
+    }
+
+    @Test
+    public void shouldKeepFrequentValuesAmongManyDistinctValues() {
+        HeavyHitters heavyHitters = new HeavyHitters(40);
+        for (int i = 0; i < 1000000; i++) {
+            heavyHitters.add(i % 10 == 0 ? "frequent" : i);
+        }
+
+        Map<Object, Long> top = heavyHitters.top(1);
+        assertThat(top.keySet().iterator().next(), equalTo("frequent"));
+        assertThat(top.get("frequent") >= 100000L, equalTo(true));
+    }
+
+}
@@ -0,0 +1,37 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void shouldCountFewDistinctValuesExactly() {
+        HyperLogLog distinctValues = new HyperLogLog();
+        for (int i = 0; i < 1000; i++) {
+            distinctValues.add("value " + (i % 50));
+        }
+
+        assertThat(distinctValues.estimate(), equalTo(50L));
+    }
+
+    @Test
+    public void shouldEstimateManyDistinctValuesWithinFivePercent() {
+        HyperLogLog distinctValues = new HyperLogLog();
+        for (int i = 0; i < 1000000; i++) {
+            distinctValues.add(i);
+        }
+
+        assertThat(Math.abs(distinctValues.estimate() - 1000000) < 50000, equalTo(true));
+    }
+
+    @Test
+    public void shouldHashEqualDecimalsWithDifferentScalesEqually() {
+        assertThat(HyperLogLog.hash(new BigDecimal("1.50")), equalTo(HyperLogLog.hash(new BigDecimal("1.5"))));
+    }
+
+}
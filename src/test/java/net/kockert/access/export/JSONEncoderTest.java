@@ -0,0 +1,66 @@
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.DataType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class JSONEncoderTest {
+
+    @Test
+    public void shouldEncodeValuesByDataType() throws IOException {
+        Date date = Date.from(LocalDateTime.of(2015, 1, 2, 3, 4, 5, 6000000).atZone(ZoneId.systemDefault()).toInstant());
+
+        String json = encode(
+                new ColumnStub[]{
+                        new ColumnStub("boolean", DataType.BOOLEAN),
+                        new ColumnStub("long", DataType.LONG),
+                        new ColumnStub("double", DataType.DOUBLE),
+                        new ColumnStub("money", DataType.MONEY),
+                        new ColumnStub("date", DataType.SHORT_DATE_TIME),
+                        new ColumnStub("ole", DataType.OLE),
+                        new ColumnStub("memo", DataType.MEMO)},
+                new Object[]{true, 42, 0.5, new BigDecimal("3.2100"), date, new byte[]{1, 2, 3, 4}, null});
+
+        assertThat(json, equalTo("{\"boolean\":true,\"long\":42,\"double\":0.5,\"money\":3.2100,"
+                + "\"date\":\"2015-01-02T03:04:05.006\",\"ole\":\"AQIDBA==\",\"memo\":null}\n"));
+    }
+
+    @Test
+    public void shouldEscapeText() throws IOException {
+        String json = encode(new ColumnStub[]{new ColumnStub("te\"xt", DataType.TEXT)},
+                new Object[]{"a\"b\\c\nd\u0001e "});
+
+        assertThat(json, equalTo("{\"te\\\"xt\":\"a\\\"b\\\\c\\nd\\u0001e\\u2028\"}\n"));
+    }
+
+    @Test
+    public void shouldEncodeValuesLongerThanBuffer() throws IOException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String text = new String(chars);
+
+        String json = encode(new ColumnStub[]{new ColumnStub("memo", DataType.MEMO)}, new Object[]{text});
+
+        assertThat(json, equalTo("{\"memo\":\"" + text + "\"}\n"));
+    }
+
+    private String encode(ColumnStub[] columns, Object[] values) throws IOException {
+        StringWriter writer = new StringWriter();
+        JSONEncoder encoder = new JSONEncoder(writer);
+        encoder.setColumns(Arrays.asList(columns));
+        encoder.writeRow(values);
+        encoder.flush();
+        return writer.toString();
+    }
+
+}
@@ -0,0 +1,70 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class JSONLExporterIT {
+
+    private Database database;
+
+    @Before
+    public void createSourceDatabase() throws IOException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                .toTable(database);
+        table.addRow(1, "Ä \"quoted\"");
+        table.addRow(2, null);
+    }
+
+    @Test
+    public void shouldExportTableToStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new JSONLExporter(database).export("TestTable", out);
+
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                equalTo("{\"id\":1,\"text\":\"Ä \\\"quoted\\\"\"}\n{\"id\":2,\"text\":null}\n"));
+        database.close();
+    }
+
+    @Test
+    public void shouldExportTablesToFiles() throws IOException {
+        Path targetDir = Files.createTempDirectory("export-");
+        targetDir.toFile().deleteOnExit();
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .columns("TestTable", Collections.singletonList("id"))
+                .build();
+
+        new JSONLExporter(database, options).export(targetDir);
+
+        Path targetFile = targetDir.resolve("TestTable.jsonl");
+        targetFile.toFile().deleteOnExit();
+        List<String> lines = Files.readAllLines(targetFile, StandardCharsets.UTF_8);
+        assertThat(lines, equalTo(Arrays.asList("{\"id\":1}", "{\"id\":2}")));
+        database.close();
+    }
+
+}
@@ -0,0 +1,379 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+
+import java.io.*;
+import java.lang.management.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Runs complete exports through {@link Main} over generated databases of different shapes and records how they
+ * scale with the number of processors, for the {@code benchmark} profile.
+ * <p>
+ * Every export runs in a JVM of its own, limited to the given number of processors with
+ * {@code -XX:ActiveProcessorCount}, and SQLite exports load as many tables in parallel. The child JVM measures the
+ * wall time of {@link Main#run(String...)} without the start of the JVM, the peak heap as the sum of the peaks of
+ * the heap pools, the GC time and the peak resident set size. The runner adds the size of the output and writes all
+ * runs to {@code results.csv} and {@code results.json} in the output directory.
+ * <p>
+ * The databases are generated once per scale and kept in the output directory:
+ * <ul>
+ * <li>{@code tall}: a single narrow table with many rows</li>
+ * <li>{@code wide}: a single table with 100 columns of mixed types</li>
+ * <li>{@code lob}: a single table with a MEMO and an OLE value of several kilobytes per row</li>
+ * <li>{@code many}: 200 small tables</li>
+ * </ul>
+ */
+public class MacroBenchmark {
+
+    private static final String[] SHAPES = {"tall", "wide", "lob", "many"};
+
+    private static final String[] FORMATS = {"sqlite", "csv"};
+
+    private static final String[] RESULT_COLUMNS = {"shape", "format", "threads", "run", "rows", "wall_ms",
+            "rows_per_sec", "peak_heap_bytes", "gc_ms", "peak_rss_bytes", "output_bytes"};
+
+    private static final int ROWS_PER_ADD = 1000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 5 && args[0].equals("run")) {
+            runExport(args[1], args[2], Integer.parseInt(args[3]), Paths.get(args[4]));
+            return;
+        }
+        if (args.length < 1 || args.length > 4) {
+            throw new IllegalArgumentException("Usage: MacroBenchmark <output dir> [scale] [threads, comma-separated] [runs]");
+        }
+        Path outputDir = Paths.get(args[0]);
+        int scale = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int[] threadCounts = args.length > 2
+                ? Stream.of(args[2].split(",")).mapToInt(Integer::parseInt).toArray() : new int[]{1, 2, 4};
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        new MacroBenchmark(outputDir, scale).run(threadCounts, runs);
+    }
+
+    private final Path outputDir;
+
+    private final int scale;
+
+    private MacroBenchmark(Path outputDir, int scale) {
+        this.outputDir = outputDir;
+        this.scale = scale;
+    }
+
+    private void run(int[] threadCounts, int runs) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir.resolve("databases"));
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String shape : SHAPES) {
+            Path database = outputDir.resolve("databases").resolve(shape + "-" + scale + ".mdb");
+            long rows = Files.exists(database) ? countRows(database) : createDatabase(shape, database);
+            for (String format : FORMATS) {
+                for (int threads : threadCounts) {
+                    for (int run = 1; run <= runs; run++) {
+                        Map<String, Object> result = new LinkedHashMap<>();
+                        result.put("shape", shape);
+                        result.put("format", format);
+                        result.put("threads", threads);
+                        result.put("run", run);
+                        result.put("rows", rows);
+                        result.putAll(fork(format, threads, database));
+                        result.put("rows_per_sec", rows * 1000 / Math.max(1, (Long) result.get("wall_ms")));
+                        System.out.println(result);
+                        results.add(result);
+                    }
+                }
+            }
+        }
+        writeCsv(results, outputDir.resolve("results.csv"));
+        writeJson(results, outputDir.resolve("results.json"));
+    }
+
+    /**
+     * Runs an export in a new JVM and returns its measurements.
+     */
+    private Map<String, Object> fork(String format, int threads, Path database) throws IOException, InterruptedException {
+        Path target = outputDir.resolve("target");
+        deleteRecursively(target);
+        if (format.equals("csv")) {
+            Files.createDirectories(target);
+        }
+        Path measurements = outputDir.resolve("measurements.properties");
+        Files.deleteIfExists(measurements);
+
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:ActiveProcessorCount=" + threads,
+                "-Dlogback.configurationFile=" + writeLogbackConfig(),
+                "-cp", System.getProperty("java.class.path"),
+                MacroBenchmark.class.getName(), "run", format, database.toString(), String.valueOf(threads),
+                measurements.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(outputDir.resolve("benchmark.log").toFile()))
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Export of " + database + " to " + format + " failed, see benchmark.log");
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(measurements, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : new String[]{"wall_ms", "peak_heap_bytes", "gc_ms", "peak_rss_bytes"}) {
+            result.put(name, Long.parseLong(properties.getProperty(name)));
+        }
+        result.put("output_bytes", size(target));
+        deleteRecursively(target);
+        return result;
+    }
+
+    /**
+     * Runs the export in the child JVM and writes the measurements of the JVM.
+     */
+    private static void runExport(String format, String database, int threads, Path measurements) throws IOException {
+        Path target = measurements.resolveSibling("target");
+        List<String> args = new ArrayList<>(Arrays.asList("-f", format));
+        if (format.equals("sqlite") && threads > 1) {
+            args.addAll(Arrays.asList("--parallel", String.valueOf(threads)));
+        }
+        args.addAll(Arrays.asList(database, target.toString()));
+
+        long start = System.nanoTime();
+        new Main(systemExitException -> {
+            throw new IllegalStateException(systemExitException.getMessage(), systemExitException);
+        }).run(args.toArray(new String[0]));
+        long wallMillis = (System.nanoTime() - start) / 1000000;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0, collector.getCollectionTime());
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("wall_ms", String.valueOf(wallMillis));
+        properties.setProperty("peak_heap_bytes", String.valueOf(peakHeap));
+        properties.setProperty("gc_ms", String.valueOf(gcMillis));
+        properties.setProperty("peak_rss_bytes", String.valueOf(peakResidentSetSize()));
+        try (Writer writer = Files.newBufferedWriter(measurements, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+    }
+
+    /**
+     * Returns the high water mark of the resident set size from {@code /proc}, or -1 on other systems than Linux.
+     */
+    private static long peakResidentSetSize() throws IOException {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Logs only warnings in the child JVMs, so logging does not distort the measurements.
+     */
+    private String writeLogbackConfig() throws IOException {
+        Path config = outputDir.resolve("logback-benchmark.xml");
+        if (!Files.exists(config)) {
+            Files.write(config, Arrays.asList(
+                    "<configuration>",
+                    "    <appender name=\"STDERR\" class=\"ch.qos.logback.core.ConsoleAppender\">",
+                    "        <target>System.err</target>",
+                    "        <encoder><pattern>%d %-5level %logger - %msg%n</pattern></encoder>",
+                    "    </appender>",
+                    "    <root level=\"WARN\"><appender-ref ref=\"STDERR\"/></root>",
+                    "</configuration>"), StandardCharsets.UTF_8);
+        }
+        return config.toString();
+    }
+
+    private long createDatabase(String shape, Path file) throws IOException {
+        System.out.println("Creating " + file);
+        try (Database database = DatabaseBuilder.create(Database.FileFormat.V2003, file.toFile())) {
+            switch (shape) {
+                case "tall":
+                    return createTallTable(database, 200000 * scale);
+                case "wide":
+                    return createWideTable(database, 20000 * scale);
+                case "lob":
+                    return createLobTable(database, 2000 * scale);
+                case "many":
+                    long rows = 0;
+                    for (int i = 0; i < 200; i++) {
+                        rows += createSmallTable(database, "Table" + i, 500 * scale);
+                    }
+                    return rows;
+                default:
+                    throw new IllegalArgumentException("Unknown shape: " + shape);
+            }
+        }
+    }
+
+    private long createTallTable(Database database, int rowCount) throws IOException {
+        Table table = new TableBuilder("Tall")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .addColumn(new ColumnBuilder("value").setType(DataType.DOUBLE))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                .toTable(database);
+        return addRows(table, rowCount, i -> new Object[]{i, "Name " + i, i * 0.5});
+    }
+
+    private long createWideTable(Database database, int rowCount) throws IOException {
+        TableBuilder builder = new TableBuilder("Wide")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG));
+        DataType[] types = {DataType.LONG, DataType.TEXT, DataType.DOUBLE, DataType.SHORT_DATE_TIME, DataType.MONEY};
+        for (int c = 1; c < 100; c++) {
+            builder.addColumn(new ColumnBuilder("column" + c).setType(types[c % types.length]));
+        }
+        Table table = builder.toTable(database);
+        return addRows(table, rowCount, i -> {
+            Object[] row = new Object[100];
+            row[0] = i;
+            for (int c = 1; c < row.length; c++) {
+                switch (types[c % types.length]) {
+                    case LONG:
+                        row[c] = i + c;
+                        break;
+                    case TEXT:
+                        row[c] = "Value " + i + "/" + c;
+                        break;
+                    case DOUBLE:
+                        row[c] = i * 0.25 + c;
+                        break;
+                    case SHORT_DATE_TIME:
+                        row[c] = new Date(1420070400000L + i * 60000L);
+                        break;
+                    default:
+                        row[c] = BigDecimal.valueOf(i + c, 2);
+                }
+            }
+            return row;
+        });
+    }
+
+    private long createLobTable(Database database, int rowCount) throws IOException {
+        Table table = new TableBuilder("Lob")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("memo").setType(DataType.MEMO))
+                .addColumn(new ColumnBuilder("ole").setType(DataType.OLE))
+                .toTable(database);
+        Random random = new Random(42);
+        char[] text = new char[4096];
+        byte[] data = new byte[16384];
+        return addRows(table, rowCount, i -> {
+            for (int c = 0; c < text.length; c++) {
+                text[c] = (char) ('a' + random.nextInt(26));
+            }
+            random.nextBytes(data);
+            return new Object[]{i, new String(text), data.clone()};
+        });
+    }
+
+    private long createSmallTable(Database database, String name, int rowCount) throws IOException {
+        Table table = new TableBuilder(name)
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                .toTable(database);
+        return addRows(table, rowCount, i -> new Object[]{i, name + " " + i});
+    }
+
+    private interface RowFactory {
+
+        Object[] create(int i);
+
+    }
+
+    private long addRows(Table table, int rowCount, RowFactory rowFactory) throws IOException {
+        List<Object[]> rows = new ArrayList<>(ROWS_PER_ADD);
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(rowFactory.create(i));
+            if (rows.size() == ROWS_PER_ADD || i == rowCount - 1) {
+                table.addRows(rows);
+                rows.clear();
+            }
+        }
+        return rowCount;
+    }
+
+    private long countRows(Path file) throws IOException {
+        long rows = 0;
+        try (Database database = DatabaseBuilder.open(file.toFile())) {
+            for (String tableName : database.getTableNames()) {
+                rows += database.getTable(tableName).getRowCount();
+            }
+        }
+        return rows;
+    }
+
+    private static long size(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            return paths.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private void writeCsv(List<Map<String, Object>> results, Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println(String.join(",", RESULT_COLUMNS));
+            for (Map<String, Object> result : results) {
+                StringJoiner line = new StringJoiner(",");
+                for (String column : RESULT_COLUMNS) {
+                    line.add(String.valueOf(result.get(column)));
+                }
+                writer.println(line);
+            }
+        }
+    }
+
+    private void writeJson(List<Map<String, Object>> results, Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.println("[");
+            for (Iterator<Map<String, Object>> iterator = results.iterator(); iterator.hasNext(); ) {
+                Map<String, Object> result = iterator.next();
+                StringJoiner object = new StringJoiner(", ", "  {", "}");
+                for (String column : RESULT_COLUMNS) {
+                    Object value = result.get(column);
+                    object.add("\"" + column + "\": " + (value instanceof String ? "\"" + value + "\"" : value));
+                }
+                writer.println(object + (iterator.hasNext() ? "," : ""));
+            }
+            writer.println("]");
+        }
+    }
+
+}
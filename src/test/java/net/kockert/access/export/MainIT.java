@@ -67,6 +67,56 @@ public class MainIT {
         main.run("-f", "csv", "src/test/resources/source.mdb", "src/test/resources/noDirectory.txt");
     }
 
+    @Test(expected = SystemExitRuntimeException.class)
+    public void shouldExitIfNoDriverForTargetUrl() {
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("-u", "jdbc:nosuchdatabase:target", "src/test/resources/source.mdb");
+    }
+
+    @Test
+    public void shouldVerifyExport() throws IOException {
+        File targetFile = File.createTempFile("export-", ".sqlite");
+        targetFile.deleteOnExit();
+        assumeTrue(targetFile.delete());
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("--verify", "src/test/resources/source.mdb", targetFile.toString());
+    }
+
+    @Test
+    public void shouldVerifyZipExport() throws IOException {
+        File targetFile = File.createTempFile("export-", ".zip");
+        targetFile.deleteOnExit();
+        assumeTrue(targetFile.delete());
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("--verify", "--zip", "-f", "csv", "src/test/resources/source.mdb", targetFile.toString());
+    }
+
+    @Test
+    public void shouldVerifyExportToSeveralFormats() throws IOException {
+        File targetFile = File.createTempFile("export-", ".sqlite");
+        targetFile.deleteOnExit();
+        assumeTrue(targetFile.delete());
+        File targetDir = Files.createTempDirectory("export-").toFile();
+        targetDir.deleteOnExit();
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("--verify", "-f", "sqlite,csv", "src/test/resources/source.mdb", targetFile.toString(), targetDir.toString());
+    }
+
+    @Test(expected = SystemExitRuntimeException.class)
+    public void shouldExitIfTargetIsMissingForFormat() {
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("-f", "sqlite,csv", "src/test/resources/source.mdb", "targetFile");
+    }
+
+    @Test(expected = SystemExitRuntimeException.class)
+    public void shouldExitIfVerificationIsNotSupportedForFormat() throws IOException {
+        File targetFile = File.createTempFile("export-", ".duckdb");
+        targetFile.deleteOnExit();
+        assumeTrue(targetFile.delete());
+        Main main = new Main(new TestSystemExitHandler());
+        main.run("--verify", "-f", "duckdb", "src/test/resources/source.mdb", targetFile.toString());
+    }
+
     class TestSystemExitHandler implements Main.SystemExitHandler {
 
         @Override
@@ -0,0 +1,42 @@
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.DataType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MemoryBudgetTest {
+
+    private final List<ColumnStub> columns = Arrays.asList(
+            new ColumnStub("id", DataType.LONG), new ColumnStub("memo", DataType.MEMO), new ColumnStub("ole", DataType.OLE));
+
+    @Test
+    public void shouldEstimateRowSizeFromValueLengths() {
+        long empty = MemoryBudget.estimateRowSize(new Object[]{1, null, null}, columns);
+        long wide = MemoryBudget.estimateRowSize(new Object[]{1, new String(new char[1000]), new byte[5000]}, columns);
+
+        assertThat(wide - empty >= 2 * 1000 + 5000, equalTo(true));
+    }
+
+    @Test
+    public void shouldAdmitRowLargerThanBudgetIfNothingIsInFlight() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+
+        assertThat(budget.tryAcquire(1000, 0), equalTo(true));
+    }
+
+    @Test
+    public void shouldWaitUntilMemoryIsReleased() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.tryAcquire(60, 0);
+
+        assertThat(budget.tryAcquire(60, 10), equalTo(false));
+        budget.release(60);
+        assertThat(budget.tryAcquire(60, 10), equalTo(true));
+    }
+
+}
@@ -0,0 +1,38 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+public class PrometheusTextFileTest {
+
+    @Test
+    public void shouldWriteMetricsInTextFormat() throws IOException {
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.startTable("Order \"Details\"", 3);
+        metrics.rowWritten(10);
+        metrics.rowWritten(20);
+
+        Path file = Files.createTempFile("metrics-", ".prom");
+        file.toFile().deleteOnExit();
+        StringWriter writer = new StringWriter();
+        try (PrometheusTextFile metricsFile = new PrometheusTextFile(metrics, file)) {
+            metricsFile.writeMetrics(writer);
+        }
+
+        String text = writer.toString();
+        assertThat(text, containsString("# TYPE access_export_rows_done gauge\n"));
+        assertThat(text, containsString("access_export_rows_done{table=\"Order \\\"Details\\\"\"} 2\n"));
+        assertThat(text, containsString("access_export_rows_total{table=\"Order \\\"Details\\\"\"} 3\n"));
+        assertThat(text, containsString("access_export_current_table{table=\"Order \\\"Details\\\"\"} 1\n"));
+        assertThat(text, containsString("access_export_bytes_written 30\n"));
+        assertThat(new String(Files.readAllBytes(file), "UTF-8"), containsString("access_export_rows_done"));
+    }
+
+}
@@ -0,0 +1,39 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ResourceUsageTest {
+
+    private static volatile Object sink;
+
+    @Test
+    public void shouldCountBytesAllocatedByCurrentThread() {
+        ResourceUsage start = ResourceUsage.snapshot();
+        for (int i = 0; i < 10; i++) {
+            sink = new byte[100000];
+        }
+        ResourceUsage usage = ResourceUsage.since(start);
+
+        assertThat("allocated " + usage.getAllocatedBytes(), usage.getAllocatedBytes() >= 1000000, equalTo(true));
+    }
+
+    @Test
+    public void shouldCountGarbageCollections() {
+        ResourceUsage start = ResourceUsage.snapshot();
+        System.gc();
+        ResourceUsage usage = ResourceUsage.since(start);
+
+        assertThat(usage.getGcCount() >= 1, equalTo(true));
+    }
+
+    @Test
+    public void shouldSumUpUsages() {
+        ResourceUsage usage = ResourceUsage.NONE.plusAllocatedBytes(10).plus(ResourceUsage.NONE.plusAllocatedBytes(5));
+
+        assertThat(usage.getAllocatedBytes(), equalTo(15L));
+    }
+
+}
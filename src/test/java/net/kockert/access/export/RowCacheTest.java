@@ -0,0 +1,39 @@
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.Row;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RowCacheTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedLookupsBeyondMaxRows() {
+        RowCache cache = new RowCache(3);
+        List<Row> twoRows = Arrays.asList(null, null);
+        cache.put(Collections.singletonList("a"), twoRows);
+        cache.put(Collections.singletonList("b"), Collections.emptyList());
+        cache.get(Collections.singletonList("a"));
+        cache.put(Collections.singletonList("c"), Collections.emptyList());
+
+        assertThat(cache.get(Collections.singletonList("a")), equalTo(twoRows));
+        assertThat(cache.get(Collections.singletonList("b")), nullValue());
+        assertThat(cache.get(Collections.singletonList("c")), equalTo(Collections.<Row>emptyList()));
+    }
+
+    @Test
+    public void shouldNotCacheLookupWithMoreRowsThanFit() {
+        RowCache cache = new RowCache(1);
+        cache.put(Collections.singletonList("a"), Arrays.asList(null, null));
+
+        assertThat(cache.get(Collections.singletonList("a")), nullValue());
+        assertThat(cache.getMisses(), equalTo(1L));
+    }
+
+}
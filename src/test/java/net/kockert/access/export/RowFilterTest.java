@@ -0,0 +1,47 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RowFilterTest {
+
+    @Test
+    public void shouldParseCondition() {
+        RowFilter rowFilter = RowFilter.parse("OrderDate>=2015-01-01");
+
+        RowFilter.Condition condition = rowFilter.getConditions().get(0);
+        assertThat(condition.getColumnName(), equalTo("OrderDate"));
+        assertThat(condition.getOperator(), equalTo(RowFilter.Operator.GREATER_THAN_OR_EQUAL));
+        assertThat(condition.getValue(), equalTo("2015-01-01"));
+    }
+
+    @Test
+    public void shouldParseNotEqualOperator() {
+        RowFilter rowFilter = RowFilter.parse("Status <> closed");
+
+        RowFilter.Condition condition = rowFilter.getConditions().get(0);
+        assertThat(condition.getColumnName(), equalTo("Status"));
+        assertThat(condition.getOperator(), equalTo(RowFilter.Operator.NOT_EQUAL));
+        assertThat(condition.getValue(), equalTo("closed"));
+    }
+
+    @Test
+    public void shouldCombineConditions() {
+        RowFilter rowFilter = RowFilter.parse("Amount>10").and(RowFilter.parse("Amount<=20"));
+
+        assertThat(rowFilter.getConditions().size(), equalTo(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectExpressionWithoutOperator() {
+        RowFilter.parse("Amount");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectExpressionWithoutColumn() {
+        RowFilter.parse(">10");
+    }
+
+}
@@ -0,0 +1,118 @@
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.RuntimeIOException;
+import com.healthmarketscience.jackcess.impl.RowIdImpl;
+import com.healthmarketscience.jackcess.impl.RowImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RowPipelineTest {
+
+    private final List<ColumnStub> columns = Arrays.asList(
+            new ColumnStub("id", DataType.LONG), new ColumnStub("name", DataType.TEXT));
+
+    @Test
+    public void shouldWriteAllRowsInOrder() throws IOException, SQLException {
+        List<Row> rows = createRows(10000);
+        CollectingRowWriter rowWriter = new CollectingRowWriter();
+
+        long rowCount = new RowPipeline(columns, 16).run(rows.iterator(), rowWriter, new ExportMetrics(), new ExportThrottle());
+
+        assertThat(rowCount, equalTo(10000L));
+        assertThat(rowWriter.values.size(), equalTo(10000));
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(rowWriter.values.get(i), equalTo(Arrays.asList(i, "name" + i)));
+        }
+    }
+
+    @Test
+    public void shouldWriteAllRowsWithinSmallMemoryBudget() throws IOException, SQLException {
+        CollectingRowWriter rowWriter = new CollectingRowWriter();
+
+        long rowCount = new RowPipeline(columns, 16, new MemoryBudget(1))
+                .run(createRows(1000).iterator(), rowWriter, new ExportMetrics(), new ExportThrottle());
+
+        assertThat(rowCount, equalTo(1000L));
+        assertThat(rowWriter.values.get(999), equalTo(Arrays.asList(999, "name999")));
+    }
+
+    @Test
+    public void shouldReuseSlots() throws IOException, SQLException {
+        CollectingRowWriter rowWriter = new CollectingRowWriter();
+
+        new RowPipeline(columns, 4).run(createRows(1000).iterator(), rowWriter, new ExportMetrics(), new ExportThrottle());
+
+        assertThat(rowWriter.slots.size(), equalTo(4));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRethrowReadFailure() throws IOException, SQLException {
+        Iterator<Row> rows = new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Row next() {
+                throw new RuntimeIOException(new IOException("Broken page"));
+            }
+        };
+
+        new RowPipeline(columns, 4).run(rows, new CollectingRowWriter(), new ExportMetrics(), new ExportThrottle());
+    }
+
+    @Test(expected = SQLException.class)
+    public void shouldStopReadingAfterWriteFailure() throws IOException, SQLException {
+        RowWriter rowWriter = new RowWriter() {
+            @Override
+            public void write(Object[] values) throws SQLException {
+                throw new SQLException("Disk full");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        new RowPipeline(columns, 4).run(createRows(1000).iterator(), rowWriter, new ExportMetrics(), new ExportThrottle());
+    }
+
+    private List<Row> createRows(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RowImpl row = new RowImpl(new RowIdImpl(0, i));
+            row.put("id", i);
+            row.put("name", "name" + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static class CollectingRowWriter implements RowWriter {
+
+        private final List<List<Object>> values = new ArrayList<>();
+
+        private final Set<Object[]> slots = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @Override
+        public void write(Object[] values) {
+            this.values.add(new ArrayList<>(Arrays.asList(values)));
+            slots.add(values);
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
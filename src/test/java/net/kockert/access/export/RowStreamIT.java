@@ -0,0 +1,90 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class RowStreamIT {
+
+    @Test
+    public void shouldReadRowsInBatches() throws IOException {
+        Database database = createDatabase();
+
+        Iterator<RowBatch> batches = new RowStream(database).batches("TestTable", 4);
+
+        List<Integer> sizes = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        while (batches.hasNext()) {
+            RowBatch batch = batches.next();
+            sizes.add(batch.size());
+            for (int row = 0; row < batch.size(); row++) {
+                ids.add(batch.getValue(row, 0, Integer.class));
+            }
+        }
+
+        assertThat(sizes, equalTo(Arrays.asList(4, 4, 2)));
+        assertThat(ids, equalTo(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+
+        database.close();
+    }
+
+    @Test
+    public void shouldApplyRowFilterAndColumnProjection() throws IOException {
+        Database database = createDatabase();
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .where("TestTable", RowFilter.parse("id>=7"))
+                .columns("TestTable", Collections.singletonList("name"))
+                .build();
+
+        Iterator<RowBatch> batches = new RowStream(database, options).batches("TestTable");
+        RowBatch batch = batches.next();
+
+        assertThat(batches.hasNext(), equalTo(false));
+        assertThat(batch.getColumns().size(), equalTo(1));
+        assertThat(batch.getType(0), equalTo(DataType.TEXT));
+        assertThat(batch.getRow(0), equalTo(Collections.<Object>singletonList("name7")));
+        assertThat(batch.getRow(2), equalTo(Collections.<Object>singletonList("name9")));
+
+        database.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailForUnknownTable() throws IOException {
+        Database database = createDatabase();
+        try {
+            new RowStream(database).batches("NoSuchTable");
+        } finally {
+            database.close();
+        }
+    }
+
+    private Database createDatabase() throws IOException {
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table table = new TableBuilder("TestTable")
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("name").setType(DataType.TEXT))
+                .toTable(database);
+        for (int i = 0; i < 10; i++) {
+            table.addRow(i, "name" + i);
+        }
+        return database;
+    }
+
+}
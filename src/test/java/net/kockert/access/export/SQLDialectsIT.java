@@ -0,0 +1,122 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SQLDialectsIT {
+
+    @Test
+    public void shouldSelectDialectByJdbcUrl() {
+        assertThat(SQLDialects.forUrl("jdbc:sqlite:target.sqlite"), instanceOf(SQLiteSQLGenerator.class));
+        assertThat(SQLDialects.forUrl("jdbc:h2:mem:test"), instanceOf(H2SQLGenerator.class));
+        assertThat(SQLDialects.forUrl("jdbc:hsqldb:mem:test"), instanceOf(HSQLDBSQLGenerator.class));
+        assertThat(SQLDialects.forUrl("jdbc:derby:memory:test"), instanceOf(DerbySQLGenerator.class));
+        assertThat(SQLDialects.forUrl("jdbc:duckdb:"), instanceOf(DuckDBSQLGenerator.class));
+        assertThat(SQLDialects.forUrl("jdbc:unknown:test"), instanceOf(GenericSQLGenerator.class));
+    }
+
+    @Test
+    public void shouldExportToH2() throws IOException, SQLException {
+        shouldExportArbitraryDataTypes("jdbc:h2:mem:export");
+    }
+
+    @Test
+    public void shouldExportToHSQLDB() throws IOException, SQLException {
+        shouldExportArbitraryDataTypes("jdbc:hsqldb:mem:export");
+    }
+
+    @Test
+    public void shouldExportToDerby() throws IOException, SQLException {
+        shouldExportArbitraryDataTypes("jdbc:derby:memory:export;create=true");
+    }
+
+    @Test
+    public void shouldExportToDuckDB() throws IOException, SQLException {
+        shouldExportArbitraryDataTypes("jdbc:duckdb:");
+    }
+
+    private void shouldExportArbitraryDataTypes(String jdbcUrl) throws IOException, SQLException {
+        byte[] bytes = new byte[]{0x1, 0x2, 0x3, 0x4};
+        double doubly = 0.123;
+        Date now = new Date();
+        BigDecimal bigDecimal = new BigDecimal("3.2100");
+        String memo = "Memo";
+
+        String parentTableName = "Parent";
+        String childTableName = "Child";
+
+        File databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile);
+        Table parentTable = new TableBuilder(parentTableName)
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("binary").setType(DataType.BINARY))
+                .addColumn(new ColumnBuilder("double").setType(DataType.DOUBLE))
+                .addColumn(new ColumnBuilder("datetime").setType(DataType.SHORT_DATE_TIME))
+                .addColumn(new ColumnBuilder("money").setType(DataType.MONEY))
+                .addColumn(new ColumnBuilder("boolean").setType(DataType.BOOLEAN))
+                .addColumn(new ColumnBuilder("memo").setType(DataType.MEMO))
+                .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                .toTable(database);
+        Table childTable = new TableBuilder(childTableName)
+                .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                .addColumn(new ColumnBuilder("parentId").setType(DataType.LONG))
+                .toTable(database);
+        for (int i = 0; i < 150; i++) {
+            parentTable.addRow(i, bytes, doubly, now, bigDecimal, true, memo, null);
+            childTable.addRow(i, i);
+        }
+
+        try (Connection jdbcConnection = DriverManager.getConnection(jdbcUrl)) {
+            Exporter exporter = new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS,
+                    SQLDialects.forUrl(jdbcUrl));
+            exporter.export(jdbcConnection);
+
+            Statement statement = jdbcConnection.createStatement();
+            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM \"" + childTableName + "\"");
+            resultSet.next();
+            assertThat(resultSet.getInt(1), equalTo(150));
+
+            resultSet = statement.executeQuery("SELECT * FROM \"" + parentTableName + "\" WHERE \"id\" = 149");
+            resultSet.next();
+            assertThat(getBytes(resultSet, "binary"), equalTo(bytes));
+            assertThat(resultSet.getDouble("double"), equalTo(doubly));
+            assertThat(resultSet.getTimestamp("datetime").getTime(), equalTo(now.getTime()));
+            assertThat(resultSet.getBigDecimal("money"), equalTo(bigDecimal));
+            assertThat(resultSet.getBoolean("boolean"), equalTo(true));
+            assertThat(resultSet.getString("memo"), equalTo(memo));
+            assertThat(resultSet.getString("text"), nullValue());
+        }
+
+        database.close();
+    }
+
+    private byte[] getBytes(ResultSet resultSet, String columnLabel) throws SQLException {
+        try {
+            return resultSet.getBytes(columnLabel);
+        } catch (SQLFeatureNotSupportedException e) {
+            // DuckDB only returns binary values as Blob
+            Blob blob = resultSet.getBlob(columnLabel);
+            return blob.getBytes(1, (int) blob.length());
+        }
+    }
+
+}
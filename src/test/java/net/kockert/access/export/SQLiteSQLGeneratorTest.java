@@ -117,4 +117,116 @@ public class SQLiteSQLGeneratorTest {
         assertThat(sql, equalTo(expectedSql));
     }
 
+    @Test
+    public void shouldGenerateOnlyProjectedColumnsAndOmitIncompletePrimaryKey() {
+        String tableName = "TestTable";
+        String columnName1 = "TestColumn1";
+        String columnName2 = "TestColumn2";
+
+        TableStub table = new TableStub(tableName);
+        ColumnStub column1 = new ColumnStub(columnName1, DataType.INT);
+        ColumnStub column2 = new ColumnStub(columnName2, DataType.MEMO);
+        table.addColumns(column1, column2);
+        table.addPrimaryKeyIndex(column1);
+        List<Relationship> relationships = Collections.emptyList();
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator();
+        String sql = sqlGenerator.createTable(table, Collections.singletonList(column2), relationships);
+
+        assertThat(sql, equalTo("CREATE TABLE '" + tableName + "' ('" + columnName2 + "' TEXT)"));
+    }
+
+    @Test
+    public void shouldGenerateInsertStatementForProjectedColumns() {
+        String tableName = "TestTable";
+        String columnName1 = "TestColumn1";
+        String columnName2 = "TestColumn2";
+
+        TableStub table = new TableStub(tableName);
+        ColumnStub column1 = new ColumnStub(columnName1, DataType.INT);
+        ColumnStub column2 = new ColumnStub(columnName2, DataType.INT);
+        table.addColumns(column1, column2);
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator();
+        String sql = sqlGenerator.insertIntoTable(table, Collections.singletonList(column2));
+
+        assertThat(sql, equalTo("INSERT INTO '" + tableName + "' ('" + columnName2 + "') VALUES (?)"));
+    }
+
+    @Test
+    public void shouldGenerateTableWithoutRowidForCompositePrimaryKeyInOptimizedSchema() {
+        String tableName = "TestTable";
+        String columnName1 = "TestColumn1";
+        String columnName2 = "TestColumn2";
+
+        TableStub table = new TableStub(tableName);
+        ColumnStub column1 = new ColumnStub(columnName1, DataType.INT);
+        ColumnStub column2 = new ColumnStub(columnName2, DataType.GUID);
+        table.addColumns(column1, column2);
+        table.addPrimaryKeyIndex(column1, column2);
+        List<Relationship> relationships = Collections.emptyList();
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .optimizeSchema(true)
+                .storeGuidsAsBlobs(true)
+                .build();
+        String sql = sqlGenerator.createTable(table, relationships);
+
+        String expectedSql =
+                String.format("CREATE TABLE '%1$s' ('%2$s' INTEGER, '%3$s' BLOB, PRIMARY KEY('%2$s', '%3$s')) WITHOUT ROWID",
+                        tableName, columnName1, columnName2);
+        assertThat(sql, equalTo(expectedSql));
+    }
+
+    @Test
+    public void shouldKeepRowidForCompositePrimaryKeyWithMemoColumn() {
+        TableStub table = new TableStub("TestTable");
+        ColumnStub column1 = new ColumnStub("TestColumn1", DataType.INT);
+        ColumnStub column2 = new ColumnStub("TestColumn2", DataType.INT);
+        table.addColumns(column1, column2, new ColumnStub("TestColumn3", DataType.MEMO));
+        table.addPrimaryKeyIndex(column1, column2);
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder().optimizeSchema(true).build();
+        String sql = sqlGenerator.createTable(table, Collections.emptyList());
+
+        assertThat(sql.endsWith("WITHOUT ROWID"), equalTo(false));
+    }
+
+    @Test
+    public void shouldConvertGuidToBytes() {
+        byte[] bytes = SQLiteSQLGenerator.toBytes("{6B29FC40-CA47-1067-B31D-00DD010662DA}");
+
+        assertThat(bytes.length, equalTo(16));
+        assertThat(bytes[0], equalTo((byte) 0x6B));
+        assertThat(bytes[15], equalTo((byte) 0xDA));
+    }
+
+    @Test
+    public void shouldCopyTableFromAttachedDatabase() {
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator();
+
+        String sql = sqlGenerator.copyFromDatabase(new TableStub("Test\"Table"), "part");
+
+        assertThat(sql, equalTo("INSERT INTO main.\"Test\"\"Table\" SELECT * FROM \"part\".\"Test\"\"Table\""));
+    }
+
+    @Test
+    public void shouldCreateViewResolvingDeduplicatedBlobs() {
+        TableStub table = new TableStub("Images");
+        table.addColumn("id", DataType.LONG);
+        table.addColumn("image", DataType.OLE);
+
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder()
+                .deduplicateBlobs(true)
+                .createBlobViews(true)
+                .build();
+
+        assertThat(sqlGenerator.createTable(table, Collections.emptyList()),
+                equalTo("CREATE TABLE 'Images' ('id' INTEGER, 'image' INTEGER)"));
+        assertThat(sqlGenerator.createViews(table, table.getColumns()), equalTo(Collections.singletonList(
+                "CREATE VIEW \"Images_resolved\" AS SELECT \"Images\".\"id\", (SELECT \"access_export_blobs\".\"data\" "
+                        + "FROM \"access_export_blobs\" WHERE \"access_export_blobs\".\"id\" = \"Images\".\"image\") "
+                        + "AS \"image\" FROM \"Images\"")));
+    }
+
 }
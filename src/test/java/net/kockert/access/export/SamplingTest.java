@@ -0,0 +1,40 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SamplingTest {
+
+    @Test
+    public void shouldParseFirstN() {
+        assertThat(Sampling.parse("first:10").toString(), equalTo("first:10"));
+    }
+
+    @Test
+    public void shouldParseEveryNth() {
+        assertThat(Sampling.parse("every:100").toString(), equalTo("every:100"));
+    }
+
+    @Test
+    public void shouldParseReservoirWithDefaultSeed() {
+        assertThat(Sampling.parse("reservoir:5").toString(), equalTo("reservoir:5:0"));
+    }
+
+    @Test
+    public void shouldParseReservoirWithSeed() {
+        assertThat(Sampling.parse("reservoir:5:42").toString(), equalTo("reservoir:5:42"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownSampling() {
+        Sampling.parse("random:5");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveSize() {
+        Sampling.parse("first:0");
+    }
+
+}
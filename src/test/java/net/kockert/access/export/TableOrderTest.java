@@ -0,0 +1,42 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TableOrderTest {
+
+    @Test
+    public void shouldLoadReferencedTablesFirst() {
+        Map<String, Set<String>> referencedTables = new HashMap<>();
+        referencedTables.put("OrderDetails", new HashSet<>(Arrays.asList("Orders", "Products")));
+        referencedTables.put("Orders", Collections.singleton("Customers"));
+        referencedTables.put("Customers", Collections.emptySet());
+        referencedTables.put("Products", Collections.emptySet());
+
+        assertThat(TableOrder.sort(referencedTables),
+                equalTo(Arrays.asList("Customers", "Orders", "Products", "OrderDetails")));
+    }
+
+    @Test
+    public void shouldIgnoreSelfReferencesAndTablesNotExported() {
+        Map<String, Set<String>> referencedTables = new HashMap<>();
+        referencedTables.put("Employees", new HashSet<>(Arrays.asList("Employees", "Departments")));
+
+        assertThat(TableOrder.sort(referencedTables), equalTo(Collections.singletonList("Employees")));
+    }
+
+    @Test
+    public void shouldAppendTablesOfReferenceCycles() {
+        Map<String, Set<String>> referencedTables = new HashMap<>();
+        referencedTables.put("A", Collections.singleton("B"));
+        referencedTables.put("B", Collections.singleton("A"));
+        referencedTables.put("C", Collections.emptySet());
+
+        assertThat(TableOrder.sort(referencedTables), equalTo(Arrays.asList("C", "A", "B")));
+    }
+
+}
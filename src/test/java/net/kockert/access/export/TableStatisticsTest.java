@@ -0,0 +1,70 @@
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.DataType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TableStatisticsTest {
+
+    @Test
+    public void shouldCollectStatisticsOfColumns() {
+        TableStatistics statistics = new TableStatistics("TestTable", Arrays.asList(
+                new ColumnStub("id", DataType.LONG), new ColumnStub("name", DataType.TEXT), new ColumnStub("ole", DataType.OLE)));
+        statistics.add(new Object[]{3, "b", new byte[4]});
+        statistics.add(new Object[]{1, "abc", null});
+        statistics.add(new Object[]{2, null, new byte[2]});
+
+        TableStatistics.ColumnStatistics id = statistics.getColumns().get(0);
+        TableStatistics.ColumnStatistics name = statistics.getColumns().get(1);
+        TableStatistics.ColumnStatistics ole = statistics.getColumns().get(2);
+        assertThat(statistics.getRowCount(), equalTo(3L));
+        assertThat(id.getMin(), equalTo("1"));
+        assertThat(id.getMax(), equalTo("3"));
+        assertThat(id.getAverageLength(), nullValue());
+        assertThat(id.getDistinctCount(), equalTo(3L));
+        assertThat(name.getNullCount(), equalTo(1L));
+        assertThat(name.getMin(), equalTo("abc"));
+        assertThat(name.getAverageLength(), equalTo(2.0));
+        assertThat(ole.getMin(), nullValue());
+        assertThat(ole.getAverageLength(), equalTo(3.0));
+        assertThat(ole.hasTopValues(), equalTo(false));
+    }
+
+    @Test
+    public void shouldFindMostFrequentValuesAmongManyRareOnes() {
+        TableStatistics statistics = new TableStatistics("TestTable",
+                Collections.singletonList(new ColumnStub("city", DataType.TEXT)));
+        for (int i = 0; i < 10000; i++) {
+            statistics.add(new Object[]{i % 4 == 0 ? "Berlin" : i % 4 == 1 ? "Hamburg" : "city " + i});
+        }
+
+        Map<String, Long> topValues = statistics.getColumns().get(0).getTopValues();
+        assertThat(topValues.get("Berlin") >= 2500, equalTo(true));
+        assertThat(topValues.get("Hamburg") >= 2500, equalTo(true));
+        assertThat(topValues.size(), equalTo(TableStatistics.TOP_VALUES));
+    }
+
+    @Test
+    public void shouldWriteStatisticsAsJson() throws IOException {
+        TableStatistics statistics = new TableStatistics("TestTable",
+                Collections.singletonList(new ColumnStub("name", DataType.TEXT)));
+        statistics.add(new Object[]{"a\"b"});
+
+        StringWriter json = new StringWriter();
+        TableStatistics.writeJson(Collections.singletonList(statistics), json);
+
+        assertThat(json.toString(), equalTo("[{\"table_name\":\"TestTable\",\"column_name\":\"name\",\"row_count\":1,"
+                + "\"null_count\":0,\"min_value\":\"a\\\"b\",\"max_value\":\"a\\\"b\",\"avg_length\":3.0,"
+                + "\"distinct_count\":1,\"top_values\":[{\"value\":\"a\\\"b\",\"count\":1}]}]"));
+    }
+
+}
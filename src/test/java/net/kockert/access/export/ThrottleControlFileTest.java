@@ -0,0 +1,43 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ThrottleControlFileTest {
+
+    @Test
+    public void shouldApplyLimitsInFile() throws IOException {
+        ExportThrottle throttle = new ExportThrottle();
+        throttle.setMaxRowsPerSecond(100);
+
+        Path file = Files.createTempFile("throttle-", ".properties");
+        file.toFile().deleteOnExit();
+        Files.write(file, Collections.singletonList("max-read-rate = 10M\nmax-write-rate=512k\n"), StandardCharsets.UTF_8);
+        try (ThrottleControlFile controlFile = new ThrottleControlFile(throttle, file)) {
+            controlFile.read();
+        }
+
+        assertThat(throttle.getMaxReadRate(), equalTo(10L * 1024 * 1024));
+        assertThat(throttle.getMaxWriteRate(), equalTo(512L * 1024));
+        assertThat(throttle.getMaxRowsPerSecond(), equalTo(100L));
+    }
+
+    @Test
+    public void shouldIgnoreMissingFile() throws IOException {
+        ExportThrottle throttle = new ExportThrottle();
+        try (ThrottleControlFile controlFile = new ThrottleControlFile(throttle, Files.createTempDirectory("throttle-").resolve("missing"))) {
+            controlFile.read();
+        }
+
+        assertThat(throttle.getMaxReadRate(), equalTo(0L));
+    }
+
+}
@@ -0,0 +1,55 @@
+package net.kockert.access.export;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TokenBucketTest {
+
+    @Test
+    public void shouldNotWaitWithoutLimit() throws IOException {
+        TokenBucket bucket = new TokenBucket(TokenBucket.UNLIMITED);
+
+        long start = System.nanoTime();
+        bucket.acquire(Long.MAX_VALUE / 2);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100, equalTo(true));
+    }
+
+    @Test
+    public void shouldLimitRate() throws IOException {
+        TokenBucket bucket = new TokenBucket(1000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire(50);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat("elapsed " + elapsedMillis + " ms", elapsedMillis >= 450, equalTo(true));
+    }
+
+    @Test
+    public void shouldReleaseWaitingThreadWhenLimitIsRemoved() throws Exception {
+        TokenBucket bucket = new TokenBucket(1);
+        Thread thread = new Thread(() -> {
+            try {
+                bucket.acquire(1000);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+
+        bucket.setRate(TokenBucket.UNLIMITED);
+        thread.join(1000);
+
+        assertThat(thread.isAlive(), equalTo(false));
+    }
+
+}
@@ -0,0 +1,59 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Date;
+
+/**
+ * Creates a small Access database for the training run of the {@code appcds} profile, which records the classes an
+ * export loads in a class data sharing archive. The database has a table with every data type the export maps, a
+ * primary key and an index, so the export takes the same code paths as a real one.
+ */
+public class TrainingDatabase {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: TrainingDatabase <database file> <export target to remove>");
+        }
+        File databaseFile = new File(args[0]);
+        Files.createDirectories(databaseFile.getAbsoluteFile().getParentFile().toPath());
+        Files.deleteIfExists(databaseFile.toPath());
+        Files.deleteIfExists(Paths.get(args[1]));
+
+        try (Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile)) {
+            Table table = new TableBuilder("Training")
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .addColumn(new ColumnBuilder("byte").setType(DataType.BYTE))
+                    .addColumn(new ColumnBuilder("int").setType(DataType.INT))
+                    .addColumn(new ColumnBuilder("boolean").setType(DataType.BOOLEAN))
+                    .addColumn(new ColumnBuilder("float").setType(DataType.FLOAT))
+                    .addColumn(new ColumnBuilder("double").setType(DataType.DOUBLE))
+                    .addColumn(new ColumnBuilder("money").setType(DataType.MONEY))
+                    .addColumn(new ColumnBuilder("numeric").setType(DataType.NUMERIC))
+                    .addColumn(new ColumnBuilder("datetime").setType(DataType.SHORT_DATE_TIME))
+                    .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                    .addColumn(new ColumnBuilder("memo").setType(DataType.MEMO))
+                    .addColumn(new ColumnBuilder("binary").setType(DataType.BINARY))
+                    .addColumn(new ColumnBuilder("ole").setType(DataType.OLE))
+                    .addColumn(new ColumnBuilder("guid").setType(DataType.GUID))
+                    .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("id").setPrimaryKey())
+                    .addIndex(new IndexBuilder("TextIndex").addColumns("text"))
+                    .toTable(database);
+            for (int i = 0; i < 1000; i++) {
+                table.addRow(i, (byte) i, (short) i, i % 2 == 0, 0.5f * i, 0.25 * i, BigDecimal.valueOf(i, 2),
+                        BigDecimal.valueOf(i), new Date(1420070400000L + i * 1000L), "Text " + i, "Memo " + i,
+                        new byte[]{1, 2, (byte) i}, new byte[]{3, 4, (byte) i}, "{6B29FC40-CA47-1067-B31D-00DD010662DA}");
+            }
+        }
+    }
+
+}
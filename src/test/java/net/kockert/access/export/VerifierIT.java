@@ -0,0 +1,127 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package net.kockert.access.export;
+
+import com.healthmarketscience.jackcess.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class VerifierIT {
+
+    private File databaseFile;
+
+    @Before
+    public void createSourceDatabase() throws IOException {
+        databaseFile = File.createTempFile("access2003-", ".mdb");
+        databaseFile.deleteOnExit();
+
+        try (Database database = DatabaseBuilder.create(Database.FileFormat.V2003, databaseFile)) {
+            Table table = new TableBuilder("TestTable")
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .addColumn(new ColumnBuilder("binary").setType(DataType.BINARY))
+                    .addColumn(new ColumnBuilder("float").setType(DataType.FLOAT))
+                    .addColumn(new ColumnBuilder("datetime").setType(DataType.SHORT_DATE_TIME))
+                    .addColumn(new ColumnBuilder("money").setType(DataType.MONEY))
+                    .addColumn(new ColumnBuilder("boolean").setType(DataType.BOOLEAN))
+                    .addColumn(new ColumnBuilder("text").setType(DataType.TEXT))
+                    .addColumn(new ColumnBuilder("guid").setType(DataType.GUID))
+                    .toTable(database);
+            for (int i = 0; i < 50; i++) {
+                table.addRow(i, new byte[]{1, 2, (byte) i}, 0.123f * i, new Date(1420070400000L + i * 1000L),
+                        new BigDecimal("3.2100").add(BigDecimal.valueOf(i)), i % 2 == 0,
+                        i % 5 == 0 ? null : "Text, \"quoted\"\nline " + i, "{6B29FC40-CA47-1067-B31D-00DD010662DA}");
+            }
+            new TableBuilder("EmptyTable")
+                    .addColumn(new ColumnBuilder("id").setType(DataType.LONG))
+                    .toTable(database);
+        }
+    }
+
+    @Test
+    public void shouldPassForSQLiteExport() throws IOException, SQLException {
+        File sqliteFile = File.createTempFile("export-", ".sqlite");
+        sqliteFile.deleteOnExit();
+        String jdbcUrl = "jdbc:sqlite:" + sqliteFile;
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator.SQLiteSQLGeneratorBuilder().storeGuidsAsBlobs(true).build();
+        exportToSQLite(jdbcUrl, sqlGenerator);
+
+        List<Verifier.TableVerification> verifications = new Verifier(databaseFile, ExportOptions.DEFAULTS, 2)
+                .verifyJdbc(jdbcUrl, sqlGenerator, Collections.emptySet());
+
+        assertThat(verifications.size(), equalTo(2));
+        assertThat(verifications.get(0).isPassed(), equalTo(true));
+        assertThat(verifications.get(1).getTableName(), equalTo("TestTable"));
+        assertThat(verifications.get(1).getSourceRows(), equalTo(50L));
+        assertThat(verifications.get(1).isPassed(), equalTo(true));
+    }
+
+    @Test
+    public void shouldReportMismatchedColumnsAndRowCounts() throws IOException, SQLException {
+        File sqliteFile = File.createTempFile("export-", ".sqlite");
+        sqliteFile.deleteOnExit();
+        String jdbcUrl = "jdbc:sqlite:" + sqliteFile;
+        SQLiteSQLGenerator sqlGenerator = new SQLiteSQLGenerator();
+        exportToSQLite(jdbcUrl, sqlGenerator);
+        try (Connection jdbcConnection = DriverManager.getConnection(jdbcUrl);
+             Statement statement = jdbcConnection.createStatement()) {
+            statement.execute("UPDATE TestTable SET money = 0 WHERE id = 7");
+            statement.execute("INSERT INTO EmptyTable VALUES (1)");
+        }
+
+        List<Verifier.TableVerification> verifications = new Verifier(databaseFile, ExportOptions.DEFAULTS, 2)
+                .verifyJdbc(jdbcUrl, sqlGenerator, Collections.emptySet());
+
+        assertThat(verifications.get(0).isPassed(), equalTo(false));
+        assertThat(verifications.get(0).getTargetRows(), equalTo(1L));
+        assertThat(verifications.get(1).isPassed(), equalTo(false));
+        assertThat(verifications.get(1).getMismatchedColumns(), equalTo(Collections.singletonList("money")));
+    }
+
+    @Test
+    public void shouldPassForCSVExport() throws IOException {
+        Path targetDir = Files.createTempDirectory("export-");
+        targetDir.toFile().deleteOnExit();
+        ExportOptions options = new ExportOptions.ExportOptionsBuilder()
+                .where("TestTable", RowFilter.parse("id>=10"))
+                .build();
+        try (Database database = DatabaseBuilder.open(databaseFile)) {
+            new CSVExporter(database, options).export(targetDir);
+        }
+
+        List<Verifier.TableVerification> verifications = new Verifier(databaseFile, options, 2)
+                .verifyCsv(targetDir, Collections.singleton("TestTable"));
+
+        for (File file : targetDir.toFile().listFiles()) {
+            file.deleteOnExit();
+        }
+        assertThat(verifications.size(), equalTo(1));
+        assertThat(verifications.get(0).getSourceRows(), equalTo(40L));
+        assertThat(verifications.get(0).isPassed(), equalTo(true));
+    }
+
+    private void exportToSQLite(String jdbcUrl, SQLGenerator sqlGenerator) throws IOException, SQLException {
+        try (Database database = DatabaseBuilder.open(databaseFile);
+             Connection jdbcConnection = DriverManager.getConnection(jdbcUrl)) {
+            new Exporter(database, Collections.emptySet(), ExportOptions.DEFAULTS, sqlGenerator).export(jdbcConnection);
+        }
+    }
+
+}